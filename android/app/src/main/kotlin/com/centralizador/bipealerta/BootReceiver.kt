@@ -3,10 +3,7 @@ package com.centralizador.bipealerta
 import android.content.BroadcastReceiver
 import android.content.Context
 import android.content.Intent
-import android.os.Build
 import android.util.Log
-import android.content.ComponentName
-import android.service.notification.NotificationListenerService
 import notification.listener.service.NotificationListener
 import androidx.work.WorkManager
 import androidx.work.OneTimeWorkRequestBuilder
@@ -21,15 +18,10 @@ class BootReceiver : BroadcastReceiver() {
     override fun onReceive(context: Context, intent: Intent) {
         if (intent.action == Intent.ACTION_BOOT_COMPLETED || intent.action == "android.intent.action.QUICKBOOT_POWERON") {
             Log.d("BootReceiver", "BiPE Device Booted")
+            // El coordinador nativo hace requestRebind y solo escala al toggle si no alcanza
             try {
                 NotificationListener.reconnectService(context)
             } catch (_: Exception) {}
-            try {
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                    val cn = ComponentName(context, NotificationListener::class.java)
-                    NotificationListenerService.requestRebind(cn)
-                }
-            } catch (_: Exception) {}
             try {
                 val constraints = Constraints.Builder()
                     .setRequiredNetworkType(NetworkType.CONNECTED)
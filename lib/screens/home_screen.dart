@@ -676,12 +676,13 @@ class _HomeScreenState extends State<HomeScreen> with WidgetsBindingObserver {
                 children: [
                   _buildStatusRow('Conectado', 
                       status['isConnected'] == true ? '✅ Sí' : '❌ No'),
-                  _buildStatusRow('Watchdog Activo', 
-                      status['watchdogActive'] == true ? '✅ Activo (${status['watchdogInterval'] ?? '5 min'})' : '⚠️ Inactivo'),
-                  _buildStatusRow('Reconexión Agresiva', 
-                      status['aggressiveReconnectActive'] == true ? '⚡ Activa (${status['aggressiveInterval'] ?? '15 seg'})' : '⏸️ Inactiva'),
-                  _buildStatusRow('Intentos de Reconexión', 
-                      '${status['reconnectAttempts'] ?? 0}/${status['maxReconnectAttempts'] ?? 10}'),
+                  _buildStatusRow('Salud (nativo)', 
+                      status['healthStatus'] == 'HEALTHY' ? '✅ OK' : '⚠️ ${status['healthStatus'] ?? 'Sin datos'}'),
+                  if (status['nextHealthCheck'] != null)
+                    _buildStatusRow('Próxima Revisión', 
+                        _formatDateTime(status['nextHealthCheck'])),
+                  _buildStatusRow('Reconexión', 
+                      '${status['reconnectState'] ?? 'IDLE'} (fallos: ${status['reconnectFailures'] ?? 0}, toggles: ${status['reconnectToggles'] ?? 0})'),
                   if (status['lastNotificationTime'] != null)
                     _buildStatusRow('Última Notificación', 
                         _formatDateTime(status['lastNotificationTime'])),
@@ -701,9 +702,9 @@ class _HomeScreenState extends State<HomeScreen> with WidgetsBindingObserver {
                       borderRadius: BorderRadius.circular(8),
                     ),
                     child: Text(
-                      '• El Watchdog verifica cada 5 minutos si el servicio está funcionando.\n'
-                      '• Al detectar desconexión, se activa la Reconexión Agresiva que intenta cada 15 segundos.\n'
-                      '• Después de 10 intentos fallidos, usa el botón "Forzar Reconexión".',
+                      '• El servicio nativo vigila las notificaciones que llegan; solo verifica la conexión tras un silencio largo.\n'
+                      '• Al detectar desconexión reconecta solo (primero rebind, luego toggle si hace falta).\n'
+                      '• Si sigue sin conectar, usa el botón "Forzar Reconexión".',
                       style: TextStyle(
                         fontSize: 12,
                         color: Colors.grey.shade700,
@@ -1,6 +1,5 @@
 import 'dart:async';
 
-import 'package:bipealerta/models/BipeModel.dart';
 import 'package:bipealerta/services/auth_service.dart';
 import 'package:bipealerta/services/retryQueue_service.dart';
 import 'package:http/http.dart' as http;
@@ -17,12 +16,6 @@ class NotificationService {
   static const String baseUrl = 'https://apialert.c-centralizador.com/api';
   static const Duration requestTimeout = Duration(seconds: 30);
   
-  // Configuración del Watchdog para Android 15 - OPTIMIZADO
-  static const Duration _watchdogInterval = Duration(minutes: 2); // Más agresivo para Android 15
-  static const Duration _reconnectCooldown = Duration(seconds: 20); // Cooldown más corto
-  static const Duration _aggressiveReconnectInterval = Duration(seconds: 10); // Para reconexión agresiva
-  static const Duration _maxTimeWithoutNotification = Duration(minutes: 15); // Tiempo máximo sin notificaciones antes de reconectar
-  
   final AuthService _authService = AuthService();
   NotificationCallback? onNotificationReceived;
   ErrorCallback? onError;
@@ -30,15 +23,13 @@ class NotificationService {
   RetryQueueManager? _retryQueueManager;
 
   StreamSubscription? _notificationSubscription;
-  Timer? _watchdogTimer;
-  Timer? _aggressiveReconnectTimer; // Timer para reconexión agresiva
   DateTime? _lastNotificationTime;
-  DateTime? _lastReconnectAttempt;
   DateTime? _lastConnectedTime;
   DateTime? _lastDisconnectedTime;
   bool _isConnected = false;
-  int _reconnectAttempts = 0;
-  static const int _maxReconnectAttempts = 10; // Más intentos antes de rendirse
+  // Últimos estados empujados por el lado nativo (monitor de salud y coordinador de reconexión)
+  HealthStatus? _health;
+  ReconnectStatus? _reconnect;
 
   // Getter para el estado de conexión
   bool get isConnected => _isConnected;
@@ -64,33 +55,12 @@ class NotificationService {
       }
 
       print("NotificationService - Configurando stream de notificaciones");
-      _notificationSubscription =
-          NotificationListenerService.notificationsStream.listen(
-        (event) {
-          // Manejar eventos de conexión/desconexión (nuevo para Xiaomi)
-          if (event.isConnectionEvent) {
-            _handleConnectionEvent(event);
-            return;
-          }
-          
-          print(
-              "NotificationService - Evento recibido: ${event.packageName} - ${event.content}");
-          
-          // Actualizar timestamp de última notificación
-          _lastNotificationTime = DateTime.now();
-          _isConnected = true;
-          _reconnectAttempts = 0; // Reset intentos al recibir notificación
-          
-          _handleNotification(event);
-        },
-        onError: (error) {
-          print('NotificationService - Error en stream: $error');
-          onError?.call('Error al procesar notificaciones');
-        },
-      );
-      
-      // Iniciar el Watchdog para Xiaomi
-      _startWatchdog();
+      // Ráfagas (varios pagos tras Doze) llegan en un solo mensaje del canal
+      await NotificationListenerService.setBatchDelivery();
+
+      await _subscribe();
+      // La salud y la reconexión las vigila el lado nativo (HealthMonitor):
+      // aquí no hay timers, solo se escuchan sus eventos
       
       // Verificar estado inicial de conexión
       await _checkInitialConnectionStatus();
@@ -102,6 +72,55 @@ class NotificationService {
     }
   }
 
+  /// Escucha el stream nativo. Se vuelve a llamar cuando cambian los bipes.
+  Future<void> _subscribe() async {
+    await _notificationSubscription?.cancel();
+    // Solo se usa el texto: no pedir íconos ni imágenes al lado nativo
+    _notificationSubscription = NotificationListenerService.notificationsStreamWith(
+      NotificationSubscription(
+        packages: await _bipePackages(),
+        fields: const <NotificationField>{},
+      ),
+    ).listen(
+      (event) {
+        // Manejar eventos de conexión/desconexión (nuevo para Xiaomi)
+        if (event.isConnectionEvent) {
+          _handleConnectionEvent(event);
+          return;
+        }
+        if (event.isStatusEvent) {
+          _handleStatusEvent(event);
+          return;
+        }
+
+        print(
+            "NotificationService - Evento recibido: ${event.packageName} - ${event.content}");
+
+        // Actualizar timestamp de última notificación
+        _lastNotificationTime = DateTime.now();
+        _isConnected = true;
+
+        _handleNotification(event);
+      },
+      onError: (error) {
+        print('NotificationService - Error en stream: $error');
+        onError?.call('Error al procesar notificaciones');
+      },
+    );
+  }
+
+  /// Paquetes con bipes: solo sus notificaciones cruzan el canal. null = todos,
+  /// mientras no haya bipes (para detectar SKIPPED y recargarlos) o haya uno comodín.
+  /// Los pagos de un paquete agregado después los envía igual el lado nativo; la UI
+  /// los ve desde la próxima suscripción.
+  Future<List<String>?> _bipePackages() async {
+    final packages = (await _authService.getBipes()).map((b) => b.packageName).toSet();
+    if (packages.isEmpty || packages.contains('-1')) {
+      return null;
+    }
+    return packages.toList();
+  }
+
   /// Maneja eventos de conexión/desconexión del NotificationListenerService
   void _handleConnectionEvent(ServiceNotificationEvent event) {
     final wasConnected = _isConnected;
@@ -109,13 +128,11 @@ class NotificationService {
     
     if (_isConnected) {
       print('🟢 NotificationService - Listener CONECTADO');
-      _reconnectAttempts = 0;
       _lastConnectedTime = DateTime.now();
-      _stopAggressiveReconnect(); // Detener reconexión agresiva si está activa
     } else {
+      // El coordinador nativo ya está reconectando
       print('🔴 NotificationService - Listener DESCONECTADO');
       _lastDisconnectedTime = DateTime.now();
-      _startAggressiveReconnect(); // Iniciar reconexión agresiva automáticamente
     }
     
     // Notificar cambio de estado si cambió
@@ -124,39 +141,6 @@ class NotificationService {
     }
   }
 
-  /// Inicia el modo de reconexión agresiva (intenta cada 15 segundos)
-  void _startAggressiveReconnect() {
-    _stopAggressiveReconnect(); // Asegurar que no haya timer previo
-    
-    print('⚡ Iniciando reconexión agresiva (cada ${_aggressiveReconnectInterval.inSeconds}s)...');
-    
-    // Intentar inmediatamente
-    _attemptReconnection('Desconexión detectada - Reconexión inmediata');
-    
-    // Luego configurar timer para intentos periódicos
-    _aggressiveReconnectTimer = Timer.periodic(_aggressiveReconnectInterval, (_) async {
-      if (_isConnected) {
-        _stopAggressiveReconnect();
-        return;
-      }
-      
-      if (_reconnectAttempts >= _maxReconnectAttempts) {
-        print('⚡ Reconexión agresiva: Máximo de intentos alcanzado');
-        _stopAggressiveReconnect();
-        onError?.call('Servicio desconectado. Toca "Reiniciar servicio" para reconectar.');
-        return;
-      }
-      
-      await _attemptReconnection('Reconexión agresiva automática');
-    });
-  }
-
-  /// Detiene el modo de reconexión agresiva
-  void _stopAggressiveReconnect() {
-    _aggressiveReconnectTimer?.cancel();
-    _aggressiveReconnectTimer = null;
-  }
-
   /// Verifica el estado inicial de conexión
   Future<void> _checkInitialConnectionStatus() async {
     try {
@@ -168,155 +152,37 @@ class NotificationService {
     }
   }
 
-  /// Inicia el Watchdog que monitorea la salud del servicio
-  void _startWatchdog() {
-    _watchdogTimer?.cancel();
-    _watchdogTimer = Timer.periodic(_watchdogInterval, (_) async {
-      await _watchdogCheck();
-    });
-    print('🐕 NotificationService - Watchdog iniciado (intervalo: ${_watchdogInterval.inMinutes} min)');
-  }
-
-  /// Ejecuta la verificación del Watchdog
-  Future<void> _watchdogCheck() async {
-    print('🐕 Watchdog - Ejecutando verificación de salud...');
-    
-    try {
-      // 1. Verificar si tenemos permiso
-      final hasPermission = await NotificationListenerService.isPermissionGranted();
-      if (!hasPermission) {
-        print('🐕 Watchdog - Sin permiso de notificaciones');
-        return;
-      }
-      
-      // 2. Verificar estado de conexión del servicio
-      final isServiceConnected = await NotificationListenerService.isServiceConnected();
-      
-      // 3. Verificar si hemos recibido notificaciones recientemente (Android 15 fix)
-      final now = DateTime.now();
-      final hasRecentActivity = _lastNotificationTime != null && 
-          now.difference(_lastNotificationTime!).inMinutes < 10; // Reducido de 30 a 10 min
-      
-      print('🐕 Watchdog - Servicio conectado: $isServiceConnected, Actividad reciente: $hasRecentActivity');
-      
-      // 4. Si el servicio no está conectado, intentar reconectar
-      if (!isServiceConnected) {
-        await _attemptReconnection('Servicio desconectado detectado por Watchdog');
-      }
-      // 5. Verificar si ha pasado mucho tiempo sin notificaciones (Android 15 fix)
-      else if (_lastNotificationTime != null && 
-               now.difference(_lastNotificationTime!) > _maxTimeWithoutNotification) {
-        print('⚠️ Watchdog - Tiempo excesivo sin notificaciones: ${now.difference(_lastNotificationTime!).inMinutes} min');
-        await _attemptReconnection('Tiempo excesivo sin notificaciones (Android 15)');
-      }
-      // 6. Si no hay actividad reciente y estamos en horario laboral, verificar
-      else if (!hasRecentActivity && _isWorkingHours()) {
-        print('🐕 Watchdog - Sin actividad reciente en horario laboral, verificando conexión...');
-        final status = await NotificationListenerService.getConnectionStatus();
-        print('🐕 Watchdog - Estado detallado: $status');
-        
-        // Si la última desconexión fue reciente, intentar reconectar
-        if (status.lastDisconnectedTime != null &&
-            now.difference(status.lastDisconnectedTime!).inMinutes < 15) { // Reducido de 30 a 15 min
-          await _attemptReconnection('Desconexión reciente detectada');
-        }
-      }
-      
-      _isConnected = isServiceConnected;
-      
-    } catch (e) {
-      print('🐕 Watchdog - Error en verificación: $e');
-    }
-  }
-
-  /// Intenta reconectar el servicio
-  Future<void> _attemptReconnection(String reason, {bool skipCooldown = false}) async {
-    // Verificar cooldown para evitar reconexiones excesivas (solo si no es agresiva)
-    if (!skipCooldown && _lastReconnectAttempt != null) {
-      final timeSinceLastAttempt = DateTime.now().difference(_lastReconnectAttempt!);
-      if (timeSinceLastAttempt < _reconnectCooldown) {
-        final secondsRemaining = _reconnectCooldown.inSeconds - timeSinceLastAttempt.inSeconds;
-        print('🔄 Reconexión - En cooldown, esperando $secondsRemaining segundos más');
-        return;
-      }
-    }
-    
-    // Verificar límite de intentos
-    if (_reconnectAttempts >= _maxReconnectAttempts) {
-      print('🔄 Reconexión - Máximo de intentos alcanzado ($_maxReconnectAttempts)');
-      onError?.call('Servicio desconectado. Toca "Reiniciar servicio" para reconectar.');
+  /// Cambios del monitor nativo de salud y del coordinador de reconexión
+  void _handleStatusEvent(ServiceNotificationEvent event) {
+    final data = event.status;
+    if (data == null) {
       return;
     }
-    
-    _reconnectAttempts++;
-    _lastReconnectAttempt = DateTime.now();
-    
-    print('🔄 Reconexión - Intento $_reconnectAttempts/$_maxReconnectAttempts - Razón: $reason');
-    
-    // Notificar que estamos intentando reconectar
-    onConnectionStatusChanged?.call(false);
-    
-    try {
-      // Alternar entre métodos según el intento
-      if (_reconnectAttempts % 3 == 1) {
-        // Intento 1, 4, 7: requestRebind (método suave)
-        print('🔄 Método: requestRebind (suave)');
-        await NotificationListenerService.forceRequestRebind();
-      } else if (_reconnectAttempts % 3 == 2) {
-        // Intento 2, 5, 8: reconnectService (toggle componente)
-        print('🔄 Método: reconnectService (toggle)');
-        await NotificationListenerService.reconnectService();
-      } else {
-        // Intento 3, 6, 9: Combinación de ambos
-        print('🔄 Método: Combinado (toggle + rebind)');
-        await NotificationListenerService.reconnectService();
-        await Future.delayed(const Duration(milliseconds: 500));
-        await NotificationListenerService.forceRequestRebind();
+    if (event.statusType == 'health') {
+      _health = HealthStatus.fromMap(data);
+      print('🩺 NotificationService - $_health');
+      final wasConnected = _isConnected;
+      _isConnected = _health!.isHealthy;
+      if (wasConnected != _isConnected) {
+        onConnectionStatusChanged?.call(_isConnected);
       }
-      
-      // Esperar un poco y verificar
-      await Future.delayed(const Duration(seconds: 2));
-      
-      final isNowConnected = await NotificationListenerService.isServiceConnected();
-      if (isNowConnected) {
-        print('✅ Reconexión exitosa después de $_reconnectAttempts intentos');
-        _isConnected = true;
-        _reconnectAttempts = 0;
-        _lastConnectedTime = DateTime.now();
-        _stopAggressiveReconnect();
-        onConnectionStatusChanged?.call(true);
-      } else {
-        print('⚠️ Intento $_reconnectAttempts completado pero servicio aún desconectado');
+    } else if (event.statusType == 'reconnect') {
+      _reconnect = ReconnectStatus.fromMap(data);
+      print('🔄 NotificationService - $_reconnect');
+      if (_reconnect!.state == 'COOLDOWN') {
+        onError?.call('No se pudo reconectar el servicio. Se reintentará automáticamente.');
       }
-      
-    } catch (e) {
-      print('❌ Error en reconexión: $e');
     }
   }
 
-  /// Verifica si estamos en horario laboral (8am - 10pm)
-  bool _isWorkingHours() {
-    final hour = DateTime.now().hour;
-    return hour >= 8 && hour <= 22;
-  }
-
   /// Método público para forzar reconexión manual
   Future<bool> forceReconnect() async {
     print('🔄 Reconexión manual solicitada por usuario');
-    
-    // Reset completo de contadores para reconexión manual
-    _reconnectAttempts = 0;
-    _lastReconnectAttempt = null;
-    _stopAggressiveReconnect(); // Detener cualquier reconexión automática
-    
+
     try {
-      // Intentar múltiples métodos en secuencia
-      print('🔄 Paso 1: Toggle del componente...');
-      await NotificationListenerService.reconnectService();
-      await Future.delayed(const Duration(seconds: 1));
-      
-      print('🔄 Paso 2: Request rebind...');
-      await NotificationListenerService.forceRequestRebind();
+      // Sin cooldown; el coordinador nativo escala de rebind a toggle si hace falta
+      await NotificationListenerService.reconnectService(
+          trigger: ReconnectTrigger.manual);
       await Future.delayed(const Duration(seconds: 2));
       
       _isConnected = await NotificationListenerService.isServiceConnected();
@@ -325,17 +191,14 @@ class NotificationService {
         print('✅ Reconexión manual exitosa');
         _lastConnectedTime = DateTime.now();
       } else {
-        print('⚠️ Reconexión manual completada pero servicio no conectado');
-        // Iniciar reconexión agresiva como fallback
-        _startAggressiveReconnect();
+        // El coordinador nativo sigue intentando y avisará por evento
+        print('⚠️ Reconexión manual en curso, servicio aún no conectado');
       }
       
       onConnectionStatusChanged?.call(_isConnected);
       return _isConnected;
     } catch (e) {
       print('❌ Error en reconexión manual: $e');
-      // Iniciar reconexión agresiva como fallback
-      _startAggressiveReconnect();
       return false;
     }
   }
@@ -344,17 +207,22 @@ class NotificationService {
   Future<Map<String, dynamic>> getDetailedStatus() async {
     try {
       final status = await NotificationListenerService.getConnectionStatus();
+      final health =
+          await NotificationListenerService.getHealthStatus() ?? _health;
+      final reconnect =
+          await NotificationListenerService.getReconnectStatus() ?? _reconnect;
       return {
         'isConnected': _isConnected,
         'lastNotificationTime': _lastNotificationTime?.toIso8601String(),
         'lastConnectedTime': _lastConnectedTime?.toIso8601String() ?? status.lastConnectedTime?.toIso8601String(),
         'lastDisconnectedTime': _lastDisconnectedTime?.toIso8601String() ?? status.lastDisconnectedTime?.toIso8601String(),
-        'reconnectAttempts': _reconnectAttempts,
-        'maxReconnectAttempts': _maxReconnectAttempts,
-        'watchdogActive': _watchdogTimer?.isActive ?? false,
-        'aggressiveReconnectActive': _aggressiveReconnectTimer?.isActive ?? false,
-        'watchdogInterval': '${_watchdogInterval.inMinutes} min',
-        'aggressiveInterval': '${_aggressiveReconnectInterval.inSeconds} seg',
+        'healthStatus': health?.status,
+        'nextHealthCheck': health?.nextCheckAt?.toIso8601String(),
+        'healthProbes': health?.probes ?? 0,
+        'reconnectState': reconnect?.state,
+        'reconnectFailures': reconnect?.consecutiveFailures ?? 0,
+        'reconnectRequests': reconnect?.requests ?? 0,
+        'reconnectToggles': reconnect?.toggles ?? 0,
       };
     } catch (e) {
       return {'error': e.toString()};
@@ -400,72 +268,30 @@ class NotificationService {
 
       print('${DateTime.now().toIso8601String()} - Notificación recibida: $content de app: $packageName');
 
-      // Obtener bipes y verificar que no esté vacío
-      final bipes = await _authService.getBipes();
-
-      if (bipes.isEmpty) {
-        print(
-            'ALERTA: Lista de bipes vacía al procesar notificación. Intentando actualizar...');
-        try {
-          // Intentar actualizar bipes si la lista está vacía
-          await _authService.migrateAndUpdateBipes();
-          // Obtener la lista actualizada
-          final updatedBipes = await _authService.getBipes();
-
-          if (updatedBipes.isEmpty) {
-            print(
-                'ERROR CRÍTICO: No se pudieron cargar bipes después de actualización');
-            onError?.call('Error al cargar configuración de notificaciones');
-            return;
-          }
-
-          // Continuar con la lista actualizada
-          print(
-              'Bipes actualizados correctamente. Continuando procesamiento...');
-
-          // Procesar con los bipes actualizados
-          for (var bipe in updatedBipes) {
-            if (packageName == bipe.packageName || bipe.packageName == "-1") {
-              print('Coincidencia de package: ${bipe.packageName}');
-              if (content.contains(bipe.contain)) {
-                print('Coincidencia de contenido: ${bipe.contain}');
-                onNotificationReceived?.call(content);
-                await processMessage(content, idnotifacion, bipe, packageName);
-                return; // Salimos al encontrar coincidencia
-              }
-            }
-          }
-
-          print(
-              'No se encontró coincidencia con bipes actualizados para: $packageName');
-          return;
-        } catch (e) {
-          print(
-              'Error actualizando bipes durante procesamiento de notificación: $e');
-          onError?.call('Error en configuración de notificaciones');
-          return;
-        }
-      }
-
-      // Procesamiento normal con la lista de bipes
-      print('Procesando notificación con ${bipes.length} bipes configurados');
-
-      bool coincidenciaEncontrada = false;
-      for (var bipe in bipes) {
-        if (packageName == bipe.packageName || bipe.packageName == "-1") {
-          print('Coincidencia de package: ${bipe.packageName}');
-          if (content.contains(bipe.contain)) {
-            print('Coincidencia de contenido: ${bipe.contain}');
-            coincidenciaEncontrada = true;
-            onNotificationReceived?.call(content);
-            await processMessage(content, idnotifacion, bipe, packageName);
-            break;
-          }
-        }
+      // Las reglas, el parseo del monto y el envío al API ya los hizo la capa nativa
+      // (NotificationListener); aquí solo se muestra su resultado.
+      final payment = event.payment;
+      if (payment == null) {
+        print('Sin resultado nativo para notificación de: $packageName');
+        return;
       }
 
-      if (!coincidenciaEncontrada) {
-        print('No se encontró coincidencia para notificación de: $packageName');
+      switch (payment.status) {
+        case 'QUEUED':
+        case 'JOURNALED':
+          print('✅ Pago detectado (${payment.rule}): ${payment.nombreCliente} - ${payment.monto}');
+          onNotificationReceived?.call(content);
+          break;
+        case 'DUPLICATE':
+          print('Pago duplicado, ya enviado: ${payment.nombreCliente} - ${payment.monto}');
+          break;
+        case 'SKIPPED':
+          // Sin reglas o sin sesión en el lado nativo: refrescar bipes por si la lista quedó vacía
+          print('ALERTA: El lado nativo no evaluó la notificación (sin sesión o sin bipes)');
+          await _refreshBipesIfEmpty();
+          break;
+        default:
+          print('No se encontró coincidencia para notificación de: $packageName');
       }
     } catch (e) {
       print('Error procesando notificación: $e');
@@ -473,91 +299,23 @@ class NotificationService {
     }
   }
 
-  Future<Map<String, dynamic>?> _getUserData() async {
-    try {
-      final prefs = await SharedPreferences.getInstance();
-      final idUsuario = prefs.getInt('idUsuario');
-      final idNegocio = prefs.getInt('idNegocio');
-
-      if (idUsuario == null || idNegocio == null) {
-        print('Datos de usuario no encontrados');
-        return null;
-      }
-
-      return {
-        'idUsuario': idUsuario,
-        'idNegocio': idNegocio,
-      };
-    } catch (e) {
-      print('Error obteniendo datos de usuario: $e');
-      return null;
-    }
-  }
-
-  Future<void> processMessage(
-      String message, int idnotifacion, Bipe bipe, String packageName) async {
+  Future<void> _refreshBipesIfEmpty() async {
     try {
-      final userData = await _getUserData();
-      if (userData == null) {
+      final bipes = await _authService.getBipes();
+      if (bipes.isNotEmpty) {
         return;
       }
-
-      print('message');
-
-      final RegExp regex = RegExp(bipe.regex);
-      final match = regex.firstMatch(message);
-
-      if (match == null) {
-        print('Formato de mensaje inválido para ${bipe.contain}');
+      await _authService.migrateAndUpdateBipes();
+      if ((await _authService.getBipes()).isEmpty) {
+        print('ERROR CRÍTICO: No se pudieron cargar bipes después de actualización');
+        onError?.call('Error al cargar configuración de notificaciones');
         return;
       }
-
-      // Para Yape que tiene dos grupos (nombre y monto)
-      final String nombreCliente =
-          match.groupCount > 1 ? match.group(1)! : bipe.contain;
-
-      // Manejo dinámico del monto
-      double monto = 0.0;
-      if (bipe.hasMonto) {
-        final String montoStr =
-            match.groupCount > 1 ? match.group(2)! : match.group(1)!;
-        monto = double.parse(montoStr);
-      }
-
-      final data = {
-        'IdUsuarioNegocio': userData['idUsuario'],
-        'IdNegocio': userData['idNegocio'],
-        'NombreCliente': nombreCliente,
-        'Monto': monto,
-        'Estado': "ACTIVO",
-        'FechaHora': DateTime.now().toIso8601String(),
-        'IdNotificationApp': idnotifacion,
-        'IdBilletera': bipe.idBilletera,
-        'PackageName': packageName
-      };
-
-      print('✅ Notificación procesada para UI: $nombreCliente - $monto');
-      // NOTA: El envío al API ahora lo maneja EXCLUSIVAMENTE la capa nativa (Android)
-      // para evitar duplicidad y garantizar funcionamiento en segundo plano.
-      // Aquí solo mantenemos el procesamiento para actualizar la UI si fuera necesario.
-      
-      /* 
-      try {
-        final success = await _sendToApiWithRetry(data);
-        if (!success && _retryQueueManager != null) {
-          await _retryQueueManager!.addToQueue(data);
-        }
-      } catch (e) {
-        print('Error enviando al API: $e');
-        if (_retryQueueManager != null) {
-          // Agregar esta verificación
-          await _retryQueueManager!.addToQueue(data);
-        }
-      }
-      */
+      // Con bipes ya no hace falta recibir todos los paquetes
+      await _subscribe();
     } catch (e) {
-      print('Error procesando mensaje ${bipe.contain}: $e');
-      onError?.call('Error al procesar pago ${bipe.contain}');
+      print('Error actualizando bipes: $e');
+      onError?.call('Error en configuración de notificaciones');
     }
   }
 
@@ -611,9 +369,6 @@ class NotificationService {
 
   Future<void> dispose() async {
     print('NotificationService - Disposing...');
-    _watchdogTimer?.cancel();
-    _watchdogTimer = null;
-    _stopAggressiveReconnect(); // Cancelar reconexión agresiva
     await _notificationSubscription?.cancel();
     await _retryQueueManager?.dispose();
     print('NotificationService - Disposed');
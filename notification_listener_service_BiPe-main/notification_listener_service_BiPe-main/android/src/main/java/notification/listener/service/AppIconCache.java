@@ -0,0 +1,174 @@
+package notification.listener.service;
+
+import static notification.listener.service.NotificationUtils.getBitmapFromDrawable;
+
+import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.os.Build;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caché LRU de íconos de app ya codificados en PNG, acotada por bytes.
+ *
+ * La clave es "paquete@versionCode": el ícono solo cambia cuando la app se actualiza.
+ * La versión de cada paquete se recuerda en memoria y se olvida al recibir
+ * PACKAGE_REPLACED / PACKAGE_REMOVED / PACKAGE_CHANGED, así en régimen estable
+ * no se consulta al PackageManager ni se rasteriza nada.
+ */
+public final class AppIconCache {
+
+    private static final String TAG = "AppIconCache";
+    // Un ícono PNG típico pesa 5-30 KB; 1 MB alcanza para decenas de apps
+    private static final int MAX_BYTES = 1024 * 1024;
+
+    private static volatile AppIconCache instance;
+
+    private final Context context;
+    private final LruCache<String, byte[]> icons = new LruCache<String, byte[]>(MAX_BYTES) {
+        @Override
+        protected int sizeOf(String key, byte[] value) {
+            return value.length;
+        }
+    };
+    private final ConcurrentHashMap<String, Long> versions = new ConcurrentHashMap<>();
+
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data != null) {
+                invalidate(data.getSchemeSpecificPart());
+            }
+        }
+    };
+    private boolean receiverRegistered = false;
+
+    private AppIconCache(Context context) {
+        this.context = context;
+    }
+
+    public static AppIconCache get(Context context) {
+        AppIconCache c = instance;
+        if (c == null) {
+            synchronized (AppIconCache.class) {
+                c = instance;
+                if (c == null) {
+                    c = new AppIconCache(context.getApplicationContext());
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Ícono de la app en PNG, o null si el paquete no existe */
+    public byte[] getIcon(String packageName) {
+        Long version = versions.get(packageName);
+        if (version == null) {
+            version = resolveVersion(packageName);
+            if (version == null) {
+                return null;
+            }
+            versions.put(packageName, version);
+        }
+        String key = packageName + "@" + version;
+        byte[] icon = icons.get(key);
+        if (icon == null) {
+            icon = encode(packageName);
+            if (icon != null) {
+                icons.put(key, icon);
+            }
+        }
+        return icon;
+    }
+
+    /** Olvida la versión y los íconos del paquete (se instaló una actualización o se borró) */
+    public void invalidate(String packageName) {
+        if (packageName == null) {
+            return;
+        }
+        Long version = versions.remove(packageName);
+        if (version != null) {
+            icons.remove(packageName + "@" + version);
+        }
+    }
+
+    /** Escucha cambios de paquetes mientras el servicio esté vivo */
+    public synchronized void register() {
+        if (receiverRegistered) {
+            return;
+        }
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addDataScheme("package");
+        try {
+            context.registerReceiver(packageReceiver, filter);
+            receiverRegistered = true;
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo registrar receiver de paquetes: " + e.getMessage());
+        }
+    }
+
+    public synchronized void unregister() {
+        if (!receiverRegistered) {
+            return;
+        }
+        try {
+            context.unregisterReceiver(packageReceiver);
+        } catch (Exception ignored) {
+            // Ya estaba desregistrado
+        }
+        receiverRegistered = false;
+        // Sin receiver no nos enteraríamos de actualizaciones: volver a consultar versiones
+        versions.clear();
+    }
+
+    /** Libera memoria según el nivel que informe el sistema */
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            icons.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            icons.trimToSize(MAX_BYTES / 2);
+        }
+    }
+
+    private Long resolveVersion(String packageName) {
+        try {
+            PackageInfo info = context.getPackageManager().getPackageInfo(packageName, 0);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                return info.getLongVersionCode();
+            }
+            return (long) info.versionCode;
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private byte[] encode(String packageName) {
+        try {
+            Drawable drawable = context.getPackageManager().getApplicationIcon(packageName);
+            Bitmap bitmap = getBitmapFromDrawable(drawable);
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+            bitmap.recycle();
+            return stream.toByteArray();
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package notification.listener.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import notification.listener.service.core.BipeRuleSet;
+
+/**
+ * Caché de proceso del {@link BipeRuleSet} compilado.
+ * Se compila una sola vez y se reemplaza atómicamente cuando Flutter cambia "flutter.bipes".
+ * Lo comparten NotificationListener y BipeHealthWorker (mismo proceso).
+ */
+public final class BipeRuleStore {
+
+    private static final String TAG = "BipeRuleStore";
+    static final String PREFS_NAME = "FlutterSharedPreferences";
+    static final String KEY_BIPES = "flutter.bipes";
+
+    private static final AtomicReference<BipeRuleSet> current = new AtomicReference<>(BipeRuleSet.EMPTY);
+
+    // SharedPreferences guarda los listeners con referencia débil: hay que retenerlos aquí
+    private static volatile SharedPreferences prefs;
+    private static SharedPreferences.OnSharedPreferenceChangeListener prefsListener;
+
+    private BipeRuleStore() {
+    }
+
+    /**
+     * Devuelve el conjunto de reglas vigente, inicializando la caché la primera vez.
+     */
+    public static BipeRuleSet get(Context context) {
+        if (prefs == null) {
+            init(context);
+        }
+        return current.get();
+    }
+
+    private static synchronized void init(Context context) {
+        if (prefs != null) {
+            return;
+        }
+        SharedPreferences sp = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        prefsListener = (sharedPreferences, key) -> {
+            // key == null cuando se hace clear() (API 30+)
+            if (key == null || KEY_BIPES.equals(key)) {
+                reload(sharedPreferences);
+            }
+        };
+        sp.registerOnSharedPreferenceChangeListener(prefsListener);
+        reload(sp);
+        prefs = sp;
+    }
+
+    private static void reload(SharedPreferences sp) {
+        String bipesJson = sp.getString(KEY_BIPES, null);
+        BipeRuleSet previous = current.get();
+        if (bipesJson != null && bipesJson.equals(previous.getSource())) {
+            return;
+        }
+        try {
+            BipeRuleSet compiled = BipeRuleSet.compile(bipesJson);
+            current.set(compiled);
+            Log.i(TAG, "📐 Reglas compiladas: " + compiled.getRules().size()
+                    + " válidas, " + compiled.getInvalidCount() + " descartadas");
+        } catch (Exception e) {
+            // Mantener las reglas anteriores si el JSON nuevo no se puede parsear
+            Log.e(TAG, "Error parseando bipes JSON: " + e.getMessage());
+        }
+    }
+}
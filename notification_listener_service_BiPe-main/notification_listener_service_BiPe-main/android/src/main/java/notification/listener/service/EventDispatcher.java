@@ -0,0 +1,155 @@
+package notification.listener.service;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.flutter.plugin.common.EventChannel.EventSink;
+import notification.listener.service.models.NotificationEvent;
+
+/**
+ * Entrega directa de eventos del listener al EventSink cuando ambos viven en el mismo proceso.
+ *
+ * Varios hilos productores (NotificationProcessor, callbacks del servicio) encolan en una
+ * ConcurrentLinkedQueue sin locks; un solo consumidor, el hilo principal, la vacía hacia el
+ * EventSink. Solo se programa un drenado a la vez, así una ráfaga cuesta un único post al Looper.
+ *
+ * Si no hay EventSink en este proceso {@link #dispatch(NotificationEvent)} devuelve false y
+ * el listener cae al broadcast (camino entre procesos).
+ *
+ * Con {@link #setBatching(long, int)} los eventos se agrupan: se espera hasta windowMs desde
+ * el primero (o hasta juntar maxBatch) y se envía una sola lista por el canal, en lugar de un
+ * mensaje por notificación. El lado Dart expande la lista.
+ */
+public final class EventDispatcher {
+
+    private static final String TAG = "EventDispatcher";
+    private static final EventDispatcher instance = new EventDispatcher();
+
+    static final int DEFAULT_MAX_BATCH = 50;
+
+    private final ConcurrentLinkedQueue<NotificationEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    // Aproximado (se incrementa tras offer y se decrementa tras poll): solo decide cuándo adelantar el envío
+    private final AtomicInteger queued = new AtomicInteger(0);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable drainTask = this::drain;
+
+    private volatile EventSink sink;
+    // 0 = un mensaje por evento
+    private volatile long batchWindowMs = 0;
+    private volatile int maxBatch = DEFAULT_MAX_BATCH;
+
+    private EventDispatcher() {
+    }
+
+    public static EventDispatcher get() {
+        return instance;
+    }
+
+    /** El plugin empezó a escuchar (onListen) */
+    public void attach(EventSink eventSink) {
+        sink = eventSink;
+    }
+
+    /** El plugin dejó de escuchar (onCancel): lo pendiente se descarta */
+    public void detach() {
+        sink = null;
+        queue.clear();
+        queued.set(0);
+    }
+
+    /**
+     * Activa la entrega agrupada (windowMs &gt; 0) o vuelve a un mensaje por evento (windowMs = 0).
+     */
+    public void setBatching(long windowMs, int maxBatch) {
+        this.batchWindowMs = Math.max(0, windowMs);
+        this.maxBatch = maxBatch > 0 ? maxBatch : DEFAULT_MAX_BATCH;
+        Log.i(TAG, "Entrega a Flutter: " + (windowMs > 0
+                ? "agrupada (" + windowMs + " ms, máx " + this.maxBatch + ")" : "un mensaje por evento"));
+    }
+
+    /** Eventos esperando ser entregados al EventSink */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public boolean isAttached() {
+        return sink != null;
+    }
+
+    /**
+     * Encola el evento para el EventSink. Nunca bloquea.
+     *
+     * @return false si no hay EventSink en este proceso (usar broadcast)
+     */
+    public boolean dispatch(NotificationEvent event) {
+        if (sink == null) {
+            return false;
+        }
+        queue.offer(event);
+        int pending = queued.incrementAndGet();
+        long window = batchWindowMs;
+        if (drainScheduled.compareAndSet(false, true)) {
+            if (window > 0) {
+                // Primer evento de la ventana: esperar a que lleguen los demás
+                mainHandler.postDelayed(drainTask, window);
+            } else {
+                mainHandler.post(drainTask);
+            }
+        } else if (window > 0 && pending == maxBatch) {
+            // Lote lleno: no esperar al resto de la ventana
+            mainHandler.removeCallbacks(drainTask);
+            mainHandler.post(drainTask);
+        }
+        return true;
+    }
+
+    private void drain() {
+        // Liberar la marca antes de leer: lo que llegue durante el drenado programa otro
+        drainScheduled.set(false);
+        boolean batching = batchWindowMs > 0;
+        int limit = maxBatch;
+        while (true) {
+            EventSink s = sink;
+            if (s == null) {
+                queue.clear();
+                queued.set(0);
+                return;
+            }
+            if (!batching) {
+                NotificationEvent event = queue.poll();
+                if (event == null) {
+                    return;
+                }
+                queued.decrementAndGet();
+                send(s, event.toMap());
+                continue;
+            }
+            ArrayList<HashMap<String, Object>> batch = new ArrayList<>();
+            NotificationEvent event;
+            while (batch.size() < limit && (event = queue.poll()) != null) {
+                queued.decrementAndGet();
+                batch.add(event.toMap());
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            send(s, batch);
+        }
+    }
+
+    private static void send(EventSink s, Object message) {
+        try {
+            s.success(message);
+        } catch (Exception e) {
+            Log.e(TAG, "Error entregando evento a Flutter: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package notification.listener.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import notification.listener.service.models.NotificationEvent;
+
+/**
+ * Buffer circular acotado con las notificaciones que llegaron mientras Flutter no escuchaba.
+ *
+ * Se repite completo al próximo suscriptor (onListen / RECEIVER_READY), así el historial de
+ * la UI no tiene huecos tras reiniciarse el engine de Flutter.
+ *
+ * - Capacidad fija; al llenarse aplica {@link DropPolicy}.
+ * - Opcionalmente, lo que se desaloja (y el contenido al destruirse el servicio) va a un
+ *   segmento pequeño en disco, que se repite antes que lo que está en memoria.
+ * - Cuenta lo descartado para reportarlo a Flutter.
+ *
+ * Solo guarda texto y flags: las imágenes no se repiten.
+ */
+public final class EventReplayBuffer {
+
+    private static final String TAG = "EventReplayBuffer";
+    // v2: cada evento lleva el resultado del pipeline nativo (formato incompatible con el anterior)
+    private static final String SPILL_FILE = "bipe_replay_v2.bin";
+    private static final String LEGACY_SPILL_FILE = "bipe_replay.bin";
+    static final int DEFAULT_CAPACITY = 50;
+    static final long SPILL_MAX_BYTES = 256 * 1024;
+
+    public enum DropPolicy {
+        /** Desaloja el evento más viejo (o lo pasa al disco si el respaldo está activo) */
+        DROP_OLDEST,
+        /** Conserva los primeros y rechaza los nuevos */
+        DROP_NEWEST
+    }
+
+    private static volatile EventReplayBuffer instance;
+
+    private final File spillFile;
+
+    private NotificationEvent[] ring = new NotificationEvent[DEFAULT_CAPACITY];
+    private int head = 0;
+    private int count = 0;
+    private DropPolicy dropPolicy = DropPolicy.DROP_OLDEST;
+    private boolean spillEnabled = true;
+    private long dropped = 0;
+    private long replayed = 0;
+
+    EventReplayBuffer(File spillFile) {
+        this.spillFile = spillFile;
+    }
+
+    public static EventReplayBuffer get(Context context) {
+        EventReplayBuffer b = instance;
+        if (b == null) {
+            synchronized (EventReplayBuffer.class) {
+                b = instance;
+                if (b == null) {
+                    File dir = context.getApplicationContext().getFilesDir();
+                    new File(dir, LEGACY_SPILL_FILE).delete();
+                    b = new EventReplayBuffer(new File(dir, SPILL_FILE));
+                    instance = b;
+                }
+            }
+        }
+        return b;
+    }
+
+    /** Cambia capacidad y política. Si la nueva capacidad es menor se aplican las reglas de descarte. */
+    public synchronized void configure(int capacity, DropPolicy policy, boolean spillToDisk) {
+        List<NotificationEvent> current = takeRing();
+        ring = new NotificationEvent[Math.max(1, capacity)];
+        dropPolicy = policy != null ? policy : DropPolicy.DROP_OLDEST;
+        spillEnabled = spillToDisk;
+        for (NotificationEvent event : current) {
+            add(event);
+        }
+        if (!spillToDisk && spillFile.exists()) {
+            spillFile.delete();
+        }
+    }
+
+    public synchronized void add(NotificationEvent event) {
+        if (count < ring.length) {
+            ring[(head + count) % ring.length] = event;
+            count++;
+            return;
+        }
+        if (dropPolicy == DropPolicy.DROP_NEWEST) {
+            dropped++;
+            return;
+        }
+        NotificationEvent oldest = ring[head];
+        ring[head] = event;
+        head = (head + 1) % ring.length;
+        if (!spillEnabled || !spill(oldest)) {
+            dropped++;
+        }
+    }
+
+    /**
+     * Entrega todo lo guardado, del más viejo al más nuevo (primero el disco) y vacía el buffer.
+     */
+    public synchronized List<NotificationEvent> drain() {
+        List<NotificationEvent> events = readSpill();
+        events.addAll(takeRing());
+        replayed += events.size();
+        return events;
+    }
+
+    /** Pasa a disco lo que esté en memoria (el servicio se destruye) */
+    public synchronized void persist() {
+        if (!spillEnabled) {
+            return;
+        }
+        for (NotificationEvent event : takeRing()) {
+            if (!spill(event)) {
+                dropped++;
+            }
+        }
+    }
+
+    /** Estado para Flutter: en memoria, en disco, descartados y repetidos */
+    public synchronized HashMap<String, Object> getStats() {
+        HashMap<String, Object> stats = new HashMap<>();
+        stats.put("buffered", count);
+        stats.put("capacity", ring.length);
+        stats.put("spilledBytes", spillFile.exists() ? spillFile.length() : 0L);
+        stats.put("dropped", dropped);
+        stats.put("replayed", replayed);
+        stats.put("dropPolicy", dropPolicy.name());
+        return stats;
+    }
+
+    private List<NotificationEvent> takeRing() {
+        List<NotificationEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = (head + i) % ring.length;
+            events.add(ring[index]);
+            ring[index] = null;
+        }
+        head = 0;
+        count = 0;
+        return events;
+    }
+
+    private boolean spill(NotificationEvent event) {
+        if (spillFile.length() >= SPILL_MAX_BYTES) {
+            return false;
+        }
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(spillFile, true)));
+            try {
+                event.writeTo(out);
+            } finally {
+                out.close();
+            }
+            return true;
+        } catch (IOException e) {
+            Log.w(TAG, "No se pudo respaldar evento en disco: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private List<NotificationEvent> readSpill() {
+        List<NotificationEvent> events = new ArrayList<>();
+        if (!spillFile.exists()) {
+            return events;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(spillFile)));
+            try {
+                while (true) {
+                    events.add(NotificationEvent.readFrom(in));
+                }
+            } catch (EOFException ignored) {
+                // Fin del archivo (o registro parcial por corte de energía)
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Respaldo de eventos ilegible, se descarta: " + e.getMessage());
+        }
+        spillFile.delete();
+        return events;
+    }
+}
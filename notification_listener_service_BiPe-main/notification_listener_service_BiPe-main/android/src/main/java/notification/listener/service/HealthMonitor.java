@@ -0,0 +1,141 @@
+package notification.listener.service;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+import notification.listener.service.core.HealthPolicy;
+import notification.listener.service.core.ReconnectPolicy;
+import notification.listener.service.models.NotificationEvent;
+
+/**
+ * Vigila la salud del listener con los latidos que ya llegan (notificaciones y callbacks del
+ * sistema) en lugar de que Flutter sondee por el canal. Las decisiones las toma
+ * {@link HealthPolicy}; aquí se ejecutan en un HandlerThread propio.
+ *
+ * La próxima revisión se programa para cuando los latidos quedarían viejos, no a intervalo fijo.
+ * Handler usa uptime: con el equipo dormido no corre, así que el monitor nunca lo despierta
+ * (BipeHealthWorker queda de respaldo con {@link #checkNow()}).
+ *
+ * Cada cambio de estado se envía a Flutter como evento "health".
+ */
+public final class HealthMonitor {
+
+    private static final String TAG = "HealthMonitor";
+    static final String STATUS_TYPE = "health";
+
+    private static volatile HealthMonitor instance;
+
+    private final Context context;
+    private final HealthPolicy policy = new HealthPolicy();
+    private final Handler handler;
+    private final Runnable check = this::check;
+
+    private volatile WeakReference<NotificationListener> service = new WeakReference<>(null);
+
+    private HealthMonitor(Context context) {
+        this.context = context;
+        HandlerThread thread = new HandlerThread("BipeHealth");
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    public static HealthMonitor get(Context context) {
+        HealthMonitor m = instance;
+        if (m == null) {
+            synchronized (HealthMonitor.class) {
+                m = instance;
+                if (m == null) {
+                    m = new HealthMonitor(context.getApplicationContext());
+                    instance = m;
+                }
+            }
+        }
+        return m;
+    }
+
+    /** onListenerConnected: el servicio queda disponible para el sondeo */
+    void onConnected(NotificationListener listener) {
+        service = new WeakReference<>(listener);
+        changed(policy.onConnected(System.currentTimeMillis()));
+        schedule();
+    }
+
+    /** onListenerDisconnected / onDestroy */
+    void onDisconnected() {
+        service = new WeakReference<>(null);
+        changed(policy.onDisconnected(System.currentTimeMillis()));
+        schedule();
+    }
+
+    /** Notificación publicada o quitada: solo registra el latido (se llama por cada notificación) */
+    void onEvent() {
+        changed(policy.onEvent(System.currentTimeMillis()));
+    }
+
+    /** Otro callback del sistema (ranking, hints, filtro de interrupciones) */
+    void onCallback() {
+        changed(policy.onCallback(System.currentTimeMillis()));
+    }
+
+    /** Revisión inmediata (BipeHealthWorker): sondea solo si los latidos están viejos */
+    public void checkNow() {
+        handler.removeCallbacks(check);
+        handler.post(check);
+    }
+
+    /** Estado actual para getHealthStatus (lectura segura desde cualquier hilo) */
+    public HashMap<String, Object> snapshot() {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("status", policy.getStatus().name());
+        data.put("lastEventAt", policy.getLastEventAt());
+        data.put("lastCallbackAt", policy.getLastCallbackAt());
+        data.put("lastProbeAt", policy.getLastProbeAt());
+        data.put("nextCheckAt", policy.nextCheckAt());
+        data.put("quietMs", policy.getQuietMs());
+        data.put("probes", policy.getProbes());
+        data.put("probeFailures", policy.getProbeFailures());
+        return data;
+    }
+
+    private void check() {
+        long now = System.currentTimeMillis();
+        HealthPolicy.Step step = policy.evaluate(now);
+        if (step == HealthPolicy.Step.PROBE) {
+            NotificationListener listener = service.get();
+            boolean alive = listener != null && listener.isBinderAlive();
+            Log.i(TAG, "🩺 Sin latidos hace "
+                    + (now - Math.max(policy.getLastEventAt(), policy.getLastCallbackAt())) / 1000
+                    + " s, sondeo del binder: " + (alive ? "vivo" : "muerto"));
+            changed(policy.onProbe(now, alive));
+            // Si murió, la política pide reconexión en esta misma revisión
+            step = policy.evaluate(now);
+        }
+        if (step == HealthPolicy.Step.RECONNECT) {
+            // DEAD: figura conectado pero no responde, reconectar aunque el flag diga lo contrario
+            boolean dead = policy.getStatus() == HealthPolicy.Status.DEAD;
+            ReconnectCoordinator.get(context).request(
+                    dead ? ReconnectPolicy.Trigger.SUSPECT : ReconnectPolicy.Trigger.AUTO,
+                    dead ? "health probe" : "health disconnected");
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        handler.removeCallbacks(check);
+        handler.postDelayed(check, Math.max(1_000, policy.nextCheckAt() - System.currentTimeMillis()));
+    }
+
+    private void changed(boolean statusChanged) {
+        if (!statusChanged) {
+            return;
+        }
+        HashMap<String, Object> status = snapshot();
+        Log.i(TAG, "🩺 Salud del listener: " + status.get("status"));
+        NotificationListener.deliverToFlutter(context, NotificationEvent.status(STATUS_TYPE, status));
+    }
+}
@@ -2,6 +2,7 @@ package notification.listener.service;
 
 public final class NotificationConstants {
     public static String ID = "notification_id";
+    public static String KEY = "notification_key";
     public static String INTENT = "slayer.notification.listener.service.intent";
     public static String PACKAGE_NAME = "package_name";
     public static String NOTIFICATION_CONTENT = "message";
@@ -12,4 +13,9 @@ public final class NotificationConstants {
     public static String NOTIFICATIONS_LARGE_ICON = "notifications_large_icon";
     public static String IS_REMOVED = "is_removed";
     public static String CAN_REPLY = "can_reply_to_it";
+    public static String PAYMENT_STATUS = "payment_status";
+    public static String PAYMENT_ID_BILLETERA = "payment_id_billetera";
+    public static String PAYMENT_RULE = "payment_rule";
+    public static String PAYMENT_CLIENTE = "payment_nombre_cliente";
+    public static String PAYMENT_MONTO = "payment_monto";
 }
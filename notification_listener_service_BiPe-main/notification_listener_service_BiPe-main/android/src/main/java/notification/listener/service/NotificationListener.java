@@ -1,14 +1,9 @@
 package notification.listener.service;
 
-import static notification.listener.service.NotificationUtils.getBitmapFromDrawable;
-import static notification.listener.service.models.ActionCache.cachedNotifications;
-
 import android.annotation.SuppressLint;
 import android.app.Notification;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
@@ -27,25 +22,24 @@ import android.graphics.Color;
 import androidx.annotation.RequiresApi;
 
 import java.io.ByteArrayOutputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import android.content.SharedPreferences;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
-
+import java.util.List;
+
+import notification.listener.service.core.BipeRuleSet;
+import notification.listener.service.core.Clock;
+import notification.listener.service.core.OrderedExecutor;
+import notification.listener.service.core.PaymentDetector;
+import notification.listener.service.core.PipelineMetrics;
+import notification.listener.service.core.PostTimeWatermark;
+import notification.listener.service.core.ReconnectPolicy;
+import notification.listener.service.core.YapeHttpClient;
 import notification.listener.service.models.Action;
+import notification.listener.service.models.ActionCache;
+import notification.listener.service.models.NotificationEvent;
+import notification.listener.service.models.PaymentResult;
 
 
 @SuppressLint("OverrideAbstract")
@@ -53,7 +47,6 @@ import notification.listener.service.models.Action;
 public class NotificationListener extends NotificationListenerService {
 
     private static final String TAG = "NotificationListener";
-    private static final String API_BASE = "https://apialert.c-centralizador.com/api";
     private volatile boolean isForeground = false;
     
     // Estado de conexión del listener - accesible desde el plugin
@@ -63,15 +56,22 @@ public class NotificationListener extends NotificationListenerService {
     public static long lastConnectedTime = 0;
     public static long lastDisconnectedTime = 0;
     
-    // Buffer para notificaciones cuando el receiver no está listo
-    private ConcurrentLinkedQueue<Intent> notificationBuffer;
-    private static final int MAX_BUFFER_SIZE = 50;
-    
     // Flag para controlar si el receiver está listo
     private static boolean isReceiverReady = false;
+
+    static final String EXTRA_SUBSCRIPTION = "subscription";
+
+    // Suscripción activa desde Flutter (null = nadie escucha: no se arma nada para la UI)
+    private static volatile SubscriptionSpec subscription;
+    // Última suscripción conocida: decide qué guardar para repetir mientras nadie escucha
+    private static volatile SubscriptionSpec lastSubscription;
     
-    // ExecutorService para procesamiento asíncrono de notificaciones (Android 15 fix)
-    private ExecutorService notificationExecutor;
+    // Procesamiento asíncrono de notificaciones (Android 15 fix), en orden por notificación
+    private OrderedExecutor notificationExecutor;
+    private static final int NOTIFICATION_LANES = 4;
+    private static final int PAYMENT_LANES = 1;
+    // Latidos para el monitor de salud (se registran en cada notificación)
+    private HealthMonitor healthMonitor;
     
     /**
      * Llamado cuando el servicio se crea
@@ -80,14 +80,17 @@ public class NotificationListener extends NotificationListenerService {
     public void onCreate() {
         super.onCreate();
         
-        // Crear pool de hilos para procesamiento de notificaciones
-        // Usar 5 hilos para mayor capacidad de procesamiento en Android 15
-        notificationExecutor = Executors.newFixedThreadPool(5, r -> {
-            Thread thread = new Thread(r, "NotificationProcessor");
-            thread.setPriority(Thread.NORM_PRIORITY);
-            return thread;
-        });
+        // Carriles seriales por notificación + carril prioritario para apps de pago
+        notificationExecutor = createNotificationExecutor();
+        PipelineMetrics.get().setExecutor(notificationExecutor);
+        healthMonitor = HealthMonitor.get(this);
         
+        // Precompilar reglas de bipes para que la primera notificación no pague el parseo
+        BipeRuleStore.get(this);
+
+        // Invalidar íconos cacheados cuando una app se actualiza
+        AppIconCache.get(this).register();
+
         Log.i(TAG, "🚀 Servicio creado - ExecutorService inicializado");
     }
     
@@ -102,6 +105,12 @@ public class NotificationListener extends NotificationListenerService {
         if (intent != null && "RECEIVER_READY".equals(intent.getAction())) {
             isReceiverReady = true;
             Log.i(TAG, "📡 Receiver marcado como listo desde Plugin");
+
+            // Plugin en otro proceso: la suscripción solo llega por este intent
+            Object args = intent.getSerializableExtra(EXTRA_SUBSCRIPTION);
+            if (args != null && !EventDispatcher.get().isAttached()) {
+                setSubscription(SubscriptionSpec.fromArguments(args));
+            }
             
             // Enviar notificaciones pendientes del buffer
             flushNotificationBuffer();
@@ -133,16 +142,19 @@ public class NotificationListener extends NotificationListenerService {
                 Log.e(TAG, "Error esperando que ExecutorService termine: " + e.getMessage());
             }
             notificationExecutor = null;
+            PipelineMetrics.get().setExecutor(null);
             Log.i(TAG, "🧹 ExecutorService limpiado");
         }
         
-        // Limpiar buffer
-        if (notificationBuffer != null) {
-            notificationBuffer.clear();
-            notificationBuffer = null;
-            Log.i(TAG, "🧹 Buffer de notificaciones limpiado");
-        }
+        // Guardar en disco los eventos que Flutter aún no vio
+        EventReplayBuffer.get(this).persist();
         
+        // No perder pagos que aún estén en la cola de subida en memoria
+        PaymentUploader.get(this).persistPending();
+        PostTimeWatermarkStore.flush(this);
+        AppIconCache.get(this).unregister();
+        healthMonitor.onDisconnected();
+
         isReceiverReady = false;
         try {
             if (isForeground && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
@@ -155,6 +167,15 @@ public class NotificationListener extends NotificationListenerService {
         Log.i(TAG, "🔚 Servicio destruido");
     }
 
+    /**
+     * El sistema pide liberar memoria: soltar íconos cacheados
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        AppIconCache.get(this).onTrimMemory(level);
+    }
+
     /**
      * Llamado cuando el listener se conecta correctamente al sistema.
      * Xiaomi puede llamar esto múltiples veces si reconecta el servicio.
@@ -166,38 +187,35 @@ public class NotificationListener extends NotificationListenerService {
         
         // Verificar ExecutorService está activo (Android 15 fix)
         if (notificationExecutor == null || notificationExecutor.isShutdown()) {
-            notificationExecutor = Executors.newFixedThreadPool(5, r -> {
-                Thread thread = new Thread(r, "NotificationProcessor");
-                thread.setPriority(Thread.NORM_PRIORITY);
-                return thread;
-            });
+            notificationExecutor = createNotificationExecutor();
             Log.i(TAG, "🔧 ExecutorService reinicializado");
         }
         
-        // Inicializar buffer si no existe
-        if (notificationBuffer == null) {
-            notificationBuffer = new ConcurrentLinkedQueue<>();
-            Log.i(TAG, "📦 Buffer de notificaciones inicializado");
-        }
-        
         // Iniciar como Foreground Service para evitar que el sistema mate el proceso
         isForeground = startForegroundService();
 
         lastConnectedTime = System.currentTimeMillis();
         Log.i(TAG, "✅ Listener CONECTADO correctamente al sistema");
+        ReconnectCoordinator.get(this).onConnected();
+        healthMonitor.onConnected(this);
         
         // Marcar receiver como listo
         isReceiverReady = true;
         
         // Enviar notificaciones pendientes del buffer
         flushNotificationBuffer();
+
+        // Pagos publicados mientras estuvimos desconectados no vuelven a llegar por onNotificationPosted
+        if (Build.VERSION.SDK_INT >= VERSION_CODES.KITKAT) {
+            catchUpActiveNotifications();
+        }
+
+        // Abrir la conexión TLS al API por adelantado y reintentar pagos pendientes
+        YapeHttpClient.shared().prewarm();
+        PaymentUploader.get(this).requestDrain();
         
         // Notificar a Flutter sobre la conexión
-        Intent intent = new Intent(NotificationConstants.INTENT);
-        intent.putExtra("connection_event", true);
-        intent.putExtra("is_connected", true);
-        intent.putExtra("timestamp", lastConnectedTime);
-        sendBroadcast(intent);
+        deliverToFlutter(NotificationEvent.connection(true, lastConnectedTime));
     }
 
     /**
@@ -227,23 +245,14 @@ public class NotificationListener extends NotificationListenerService {
 
         lastDisconnectedTime = System.currentTimeMillis();
         Log.w(TAG, "⚠️ Listener DESCONECTADO por el sistema - Intentando reconectar...");
+        PostTimeWatermarkStore.flush(this);
+        healthMonitor.onDisconnected();
         
         // Notificar a Flutter sobre la desconexión
-        Intent intent = new Intent(NotificationConstants.INTENT);
-        intent.putExtra("connection_event", true);
-        intent.putExtra("is_connected", false);
-        intent.putExtra("timestamp", lastDisconnectedTime);
-        sendBroadcast(intent);
+        deliverToFlutter(NotificationEvent.connection(false, lastDisconnectedTime));
         
-        // Intentar reconexión automática (API 24+)
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-            try {
-                requestRebind(new ComponentName(this, NotificationListener.class));
-                Log.i(TAG, "🔄 Solicitando reconexión con requestRebind()...");
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Error al solicitar reconexión: " + e.getMessage());
-            }
-        }
+        // Reconexión automática: rebind y, solo si no alcanza, toggle del componente
+        ReconnectCoordinator.get(this).request(ReconnectPolicy.Trigger.AUTO, "onListenerDisconnected");
         
         // Opcional: detener el servicio si quedó en background sin conexión
         try {
@@ -273,51 +282,33 @@ public class NotificationListener extends NotificationListenerService {
     }
 
     /**
-     * Método estático para forzar reconexión desde el Plugin.
-     * Implementa el "Toggle del Componente" recomendado para Xiaomi.
+     * Registra lo que Flutter pidió en listen() (null cuando cancela la suscripción).
      */
-    public static void reconnectService(Context context) {
-        try {
-            PackageManager pm = context.getPackageManager();
-            ComponentName componentName = new ComponentName(context, NotificationListener.class);
-            
-            Log.i(TAG, "🔄 Iniciando Toggle del Componente para reconectar...");
-            
-            // 1. Deshabilitar el componente
-            pm.setComponentEnabledSetting(
-                componentName,
-                PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
-                PackageManager.DONT_KILL_APP
-            );
-            
-            // Pequeña pausa para asegurar que el sistema procese el cambio
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                // Ignorar
-            }
-            
-            // 2. Habilitar el componente inmediatamente
-            pm.setComponentEnabledSetting(
-                componentName,
-                PackageManager.COMPONENT_ENABLED_STATE_ENABLED,
-                PackageManager.DONT_KILL_APP
-            );
-            
-            Log.i(TAG, "✅ Toggle completado - El sistema debería reconectar el listener");
-            
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Error en reconnectService: " + e.getMessage());
+    public static void setSubscription(SubscriptionSpec spec) {
+        subscription = spec;
+        if (spec != null) {
+            lastSubscription = spec;
         }
+        Log.i(TAG, "📋 Suscripción Flutter: " + spec);
+    }
+
+    /**
+     * Pide una reconexión al {@link ReconnectCoordinator} (se mantiene por BootReceiver y
+     * BipeHealthWorker). Vuelve de inmediato; si ya hay un intento en curso se suma a él y solo
+     * se llega al toggle del componente si requestRebind no alcanza.
+     */
+    public static void reconnectService(Context context) {
+        ReconnectCoordinator.get(context).request(ReconnectPolicy.Trigger.AUTO, "reconnectService");
     }
 
     /**
-     * Verifica si el listener puede obtener notificaciones activas.
-     * Este es el test real de si el "binder" está vivo o muerto.
+     * Sondeo del binder: si el sistema no reconoce al listener (servicio zombie) la llamada falla.
+     * Desde API 21 se piden 0 claves, así no se serializan todas las notificaciones activas.
      */
     public boolean isBinderAlive() {
         try {
-            StatusBarNotification[] activeNotifications = getActiveNotifications();
+            StatusBarNotification[] activeNotifications = Build.VERSION.SDK_INT >= VERSION_CODES.LOLLIPOP
+                    ? getActiveNotifications(new String[0]) : getActiveNotifications();
             return activeNotifications != null;
         } catch (Exception e) {
             Log.w(TAG, "Binder parece estar muerto: " + e.getMessage());
@@ -325,6 +316,25 @@ public class NotificationListener extends NotificationListenerService {
         }
     }
 
+    // Otros callbacks del sistema: solo cuentan como latido para el monitor de salud
+    @Override
+    public void onNotificationRankingUpdate(RankingMap rankingMap) {
+        super.onNotificationRankingUpdate(rankingMap);
+        healthMonitor.onCallback();
+    }
+
+    @Override
+    public void onListenerHintsChanged(int hints) {
+        super.onListenerHintsChanged(hints);
+        healthMonitor.onCallback();
+    }
+
+    @Override
+    public void onInterruptionFilterChanged(int interruptionFilter) {
+        super.onInterruptionFilterChanged(interruptionFilter);
+        healthMonitor.onCallback();
+    }
+
     @RequiresApi(api = VERSION_CODES.KITKAT)
     @Override
     public void onNotificationPosted(StatusBarNotification notification) {
@@ -334,12 +344,17 @@ public class NotificationListener extends NotificationListenerService {
             Log.i(TAG, "📥 Notificación recibida - Actualizando estado a CONECTADO");
         }
         
+        PipelineMetrics.get().onSeen();
+        healthMonitor.onEvent();
+
+        // Descartar en el acto lo que no interesa ni a las reglas ni a Flutter
+        if (!isInteresting(notification.getPackageName())) {
+            PipelineMetrics.get().onFiltered();
+            return;
+        }
+
         // Procesar de forma asíncrona usando ExecutorService (Android 15 fix)
-        if (notificationExecutor != null && !notificationExecutor.isShutdown()) {
-            notificationExecutor.submit(() -> {
-                handleNotification(notification, false);
-            });
-        } else {
+        if (!submitInOrder(notification, () -> handleNotification(notification, false))) {
             // Fallback: procesar síncronamente si el executor no está listo
             Log.w(TAG, "⚠️ ExecutorService no disponible, procesando síncronamente");
             handleNotification(notification, false);
@@ -349,173 +364,290 @@ public class NotificationListener extends NotificationListenerService {
     @RequiresApi(api = VERSION_CODES.KITKAT)
     @Override
     public void onNotificationRemoved(StatusBarNotification sbn) {
-        // Procesar de forma asíncrona usando ExecutorService (Android 15 fix)
-        if (notificationExecutor != null && !notificationExecutor.isShutdown()) {
-            notificationExecutor.submit(() -> {
+        healthMonitor.onEvent();
+        boolean interesting = isInteresting(sbn.getPackageName());
+        String key = PaymentDedup.notificationKey(sbn);
+
+        // En el carril de la clave, detrás de un post que todavía no corrió: si no, ese post
+        // guardaría la acción de respuesta de una notificación que ya no existe
+        Runnable task = () -> {
+            // Su acción de respuesta ya no sirve (aunque el paquete no interese ahora)
+            ActionCache.remove(key);
+            if (interesting) {
                 handleNotification(sbn, true);
-            });
-        } else {
+            }
+        };
+        if (!submitInOrder(sbn, task)) {
             // Fallback: procesar síncronamente si el executor no está listo
             Log.w(TAG, "⚠️ ExecutorService no disponible, procesando síncronamente");
-            handleNotification(sbn, true);
+            task.run();
         }
     }
 
     @RequiresApi(api = VERSION_CODES.KITKAT)
 private void handleNotification(StatusBarNotification notification, boolean isRemoved) {
+    handleNotification(notification, isRemoved, true);
+}
+
+    /**
+     * @param toFlutter false en el catch-up para notificaciones que Flutter probablemente ya vio
+     */
+    @RequiresApi(api = VERSION_CODES.KITKAT)
+private void handleNotification(StatusBarNotification notification, boolean isRemoved, boolean toFlutter) {
     try {
         String packageName = notification.getPackageName();
         Bundle extras = notification.getNotification().extras;
-        byte[] appIcon = getAppIcon(packageName);
-        byte[] largeIcon = null;
-        Action action = NotificationUtils.getQuickReplyAction(notification.getNotification(), packageName);
-
-        if (Build.VERSION.SDK_INT >= VERSION_CODES.M) {
-            largeIcon = getNotificationLargeIcon(getApplicationContext(), notification.getNotification());
-        }
-
-        Intent intent = new Intent(NotificationConstants.INTENT);
-        intent.putExtra(NotificationConstants.PACKAGE_NAME, packageName);
-        intent.putExtra(NotificationConstants.ID, notification.getId());
-        intent.putExtra(NotificationConstants.CAN_REPLY, action != null);
-
-        if (NotificationUtils.getQuickReplyAction(notification.getNotification(), packageName) != null) {
-            cachedNotifications.put(notification.getId(), action);
-        }
-
-        intent.putExtra(NotificationConstants.NOTIFICATIONS_ICON, appIcon);
-        intent.putExtra(NotificationConstants.NOTIFICATIONS_LARGE_ICON, largeIcon);
 
-        String safeText = null;
-        String safeTitle = null;
-        
+        String fullTitle = null;
+        String fullText = null;
         if (extras != null) {
             CharSequence title = extras.getCharSequence(Notification.EXTRA_TITLE);
             CharSequence text = extras.getCharSequence(Notification.EXTRA_TEXT);
-
-            // Limitar tamaño del texto para evitar TransactionTooLargeException
-            safeTitle = (title == null) ? null : 
-                (title.length() > 100 ? title.subSequence(0, 100) + "..." : title.toString());
-            
-            safeText = (text == null) ? null : 
-                (text.length() > 500 ? text.subSequence(0, 500) + "..." : text.toString());
-                
-            intent.putExtra(NotificationConstants.NOTIFICATION_TITLE, safeTitle);
-            intent.putExtra(NotificationConstants.NOTIFICATION_CONTENT, safeText);
-            intent.putExtra(NotificationConstants.IS_REMOVED, isRemoved);
-            
-            // Solo incluir imagen si la notificación no es demasiado grande
-            boolean containsImage = extras.containsKey(Notification.EXTRA_PICTURE);
-            intent.putExtra(NotificationConstants.HAVE_EXTRA_PICTURE, containsImage);
-
-            if (containsImage) {
-                try {
-                    Bitmap bmp = (Bitmap) extras.get(Notification.EXTRA_PICTURE);
-                    if (bmp != null) {
-                        // Reducir tamaño de imagen si es muy grande
-                        Bitmap scaledBmp = bmp;
-                        if (bmp.getWidth() > 300 || bmp.getHeight() > 300) {
-                            int maxSize = 300;
-                            float ratio = Math.min(
-                                (float) maxSize / bmp.getWidth(),
-                                (float) maxSize / bmp.getHeight()
-                            );
-                            int width = Math.round(bmp.getWidth() * ratio);
-                            int height = Math.round(bmp.getHeight() * ratio);
-                            scaledBmp = Bitmap.createScaledBitmap(bmp, width, height, true);
-                        }
-                        
-                        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                        scaledBmp.compress(Bitmap.CompressFormat.JPEG, 70, stream);
-                        byte[] imageData = stream.toByteArray();
-                        
-                        // Solo incluir si no es demasiado grande
-                        if (imageData.length < 200000) { // 200KB límite
-                            intent.putExtra(NotificationConstants.EXTRAS_PICTURE, imageData);
-                        }
-                    }
-                } catch (Exception e) {
-                    // Ignorar errores de procesamiento de imagen
-                    Log.e("NotificationListener", "Error procesando imagen: " + e.getMessage());
-                }
-            }
+            fullTitle = title == null ? null : title.toString();
+            fullText = text == null ? null : text.toString();
         }
+        // El envío nativo sigue analizando el texto recortado, como siempre
+        String safeTitle = (fullTitle == null) ? null :
+            (fullTitle.length() > 100 ? fullTitle.substring(0, 100) + "..." : fullTitle);
+        String safeText = (fullText == null) ? null :
+            (fullText.length() > 500 ? fullText.substring(0, 500) + "..." : fullText);
         
         // Enviar la notificación
         // CAMBIO CRITICO: Siempre ejecutar la lógica nativa para asegurar el envío al API.
         // Ya no dependemos exclusivamente de Flutter (isReceiverReady) para el procesamiento crítico.
         
-        // 1. Intentar enviar a Flutter si está activo (para UI)
-        if (isReceiverReady) {
+        // 1. SIEMPRE ejecutar envío nativo (para asegurar API), antes que el trabajo de UI.
+        // Esto garantiza que aunque Flutter se cierre o falle, la notificación se procese.
+        // Corre en el mismo carril: el pago no vuelve a la cola detrás de íconos de otras apps.
+        PaymentResult payment = null;
+        if (!isRemoved && (safeText != null || safeTitle != null)) {
+            payment = tryNativeSend(safeTitle != null ? safeTitle : "", safeText != null ? safeText : "",
+                    notification.getId(), packageName, PaymentDedup.notificationKey(notification),
+                    notification.getPostTime());
+        }
+        
+        // 2. Intentar enviar a Flutter si está activo y pidió este paquete (para UI)
+        if (!toFlutter) {
+            return;
+        }
+        SubscriptionSpec spec = subscription;
+        if (!isReceiverReady || spec == null) {
+            // Nadie escucha: guardar (solo texto) para repetirlo al próximo suscriptor
+            EventReplayBuffer.get(this).add(NotificationEvent.notification(notification.getId(), null, packageName,
+                    fullTitle, fullText, null, null, null,
+                    extras != null && extras.containsKey(Notification.EXTRA_PICTURE), isRemoved, false)
+                    .withPayment(payment));
+        } else if (spec.wantsPackage(packageName)) {
             try {
-                sendBroadcast(intent);
-                Log.d(TAG, "� Notificación enviada a Flutter (UI)");
+                deliverToFlutter(buildFlutterEvent(notification, extras, fullTitle, fullText, isRemoved, spec)
+                        .withPayment(payment));
+                Log.d(TAG, "📤 Notificación enviada a Flutter (UI)");
             } catch (Exception e) {
                 Log.w(TAG, "⚠️ Falló envío a Flutter: " + e.getMessage());
             }
         }
-        
-        // 2. SIEMPRE ejecutar envío nativo (para asegurar API)
-        // Esto garantiza que aunque Flutter se cierre o falle, la notificación se procese.
-        if (!isRemoved && (safeText != null || safeTitle != null) && notificationExecutor != null && !notificationExecutor.isShutdown()) {
-            final String contentCopy = safeText != null ? safeText : "";
-            final String titleCopy = safeTitle != null ? safeTitle : "";
-            final int idCopy = notification.getId();
-            final String pkgCopy = packageName;
-            notificationExecutor.submit(() -> {
-                tryNativeSend(titleCopy, contentCopy, idCopy, pkgCopy);
-            });
-        }
     } catch (Exception e) {
         Log.e("NotificationListener", "Error en handleNotification: " + e.getMessage());
     }
 }
 
     /**
-     * Envía todas las notificaciones del buffer al receiver (Android 15 fix)
+     * Catch-up tras reconectar: revisa las notificaciones activas de apps con reglas que son
+     * posteriores a la marca de agua. Las que ya se enviaron las descarta la huella "vista" de
+     * PaymentDedup antes de evaluar reglas, así que el costo es proporcional a lo nuevo.
+     */
+    @RequiresApi(api = VERSION_CODES.KITKAT)
+    private void catchUpActiveNotifications() {
+        PostTimeWatermark watermark = PostTimeWatermarkStore.get(this);
+        if (!watermark.isInitialized()) {
+            // Primera conexión: lo que ya está en la bandeja es anterior a este listener
+            PostTimeWatermarkStore.advance(this, System.currentTimeMillis());
+            PostTimeWatermarkStore.flush(this);
+            return;
+        }
+        StatusBarNotification[] active;
+        try {
+            active = getActiveNotifications();
+        } catch (Exception e) {
+            Log.w(TAG, "Catch-up: no se pudieron leer las notificaciones activas: " + e.getMessage());
+            return;
+        }
+        if (active == null) {
+            return;
+        }
+        BipeRuleSet rules = BipeRuleStore.get(this);
+        long mark = watermark.get();
+        int queued = 0;
+        for (StatusBarNotification sbn : active) {
+            if (!rules.hasRulesFor(sbn.getPackageName()) || !watermark.isNew(sbn.getPostTime())) {
+                continue;
+            }
+            // Dentro del margen Flutter probablemente ya la mostró: solo el envío nativo
+            boolean toFlutter = sbn.getPostTime() > mark;
+            if (!submitInOrder(sbn, () -> handleNotification(sbn, false, toFlutter))) {
+                handleNotification(sbn, false, toFlutter);
+            }
+            queued++;
+        }
+        PipelineMetrics.get().onCaughtUp(queued);
+        Log.i(TAG, "🔎 Catch-up: " + queued + " de " + active.length + " notificaciones activas por revisar");
+    }
+
+    /**
+     * true si el paquete tiene reglas de bipe o lo pide (o pidió) la suscripción de Flutter
+     */
+    private boolean isInteresting(String packageName) {
+        SubscriptionSpec spec = subscription;
+        return PackageGate.isInteresting(packageName, BipeRuleStore.get(this),
+                spec != null ? spec : lastSubscription);
+    }
+
+    private static OrderedExecutor createNotificationExecutor() {
+        return new OrderedExecutor("NotificationProcessor", NOTIFICATION_LANES, "PaymentProcessor", PAYMENT_LANES);
+    }
+
+    /**
+     * Encola en el carril de la notificación (post y remove de la misma clave quedan en orden).
+     * Las apps con reglas de bipe van al carril prioritario.
+     *
+     * @return false si el executor no está disponible
+     */
+    private boolean submitInOrder(StatusBarNotification sbn, Runnable task) {
+        OrderedExecutor executor = notificationExecutor;
+        if (executor == null || executor.isShutdown()) {
+            return false;
+        }
+        boolean payment = BipeRuleStore.get(this).hasPackageRules(sbn.getPackageName());
+        return executor.execute(PaymentDedup.notificationKey(sbn), payment, task);
+    }
+
+    /**
+     * Entrega directa al EventSink si el plugin está en este proceso; si no, broadcast
+     */
+    private void deliverToFlutter(NotificationEvent event) {
+        deliverToFlutter(this, event);
+    }
+
+    /** Mismo proceso: directo al EventSink; si no, broadcast (también lo usan los monitores) */
+    static void deliverToFlutter(Context context, NotificationEvent event) {
+        if (!EventDispatcher.get().dispatch(event)) {
+            context.sendBroadcast(event.toIntent());
+        }
+    }
+
+    /**
+     * Arma el evento para Flutter incluyendo solo los campos pesados que pide la suscripción
+     */
+    @RequiresApi(api = VERSION_CODES.KITKAT)
+    private NotificationEvent buildFlutterEvent(StatusBarNotification notification, Bundle extras, String title,
+                                                String text, boolean isRemoved, SubscriptionSpec spec) {
+        String packageName = notification.getPackageName();
+        Action action = NotificationUtils.getQuickReplyAction(notification.getNotification(), packageName);
+        if (action != null) {
+            ActionCache.put(PaymentDedup.notificationKey(notification), notification.getId(), action);
+        }
+
+        byte[] appIcon = null;
+        if (spec.wantsAppIcon()) {
+            appIcon = getAppIcon(packageName);
+        }
+        byte[] largeIcon = null;
+        if (spec.wantsLargeIcon() && Build.VERSION.SDK_INT >= VERSION_CODES.M) {
+            largeIcon = getNotificationLargeIcon(getApplicationContext(), notification.getNotification(), spec.getMaxImageSize());
+        }
+
+        boolean containsImage = extras != null && extras.containsKey(Notification.EXTRA_PICTURE);
+        byte[] imageData = null;
+        if (containsImage && spec.wantsExtrasPicture()) {
+            try {
+                Bitmap bmp = (Bitmap) extras.get(Notification.EXTRA_PICTURE);
+                if (bmp != null) {
+                    // Reducir tamaño de imagen si es muy grande
+                    Bitmap scaledBmp = scaleToFit(bmp, spec.getMaxImageSize());
+                    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    scaledBmp.compress(Bitmap.CompressFormat.JPEG, 70, stream);
+                    imageData = stream.toByteArray();
+                }
+            } catch (Exception e) {
+                // Ignorar errores de procesamiento de imagen
+                Log.e("NotificationListener", "Error procesando imagen: " + e.getMessage());
+            }
+        }
+
+        return NotificationEvent.notification(notification.getId(), PaymentDedup.notificationKey(notification),
+                packageName, title, text,
+                appIcon, largeIcon, imageData, containsImage, isRemoved, action != null);
+    }
+
+    /**
+     * Reduce el bitmap para que ningún lado supere maxSize (lo devuelve igual si ya cabe)
+     */
+    private static Bitmap scaleToFit(Bitmap bmp, int maxSize) {
+        if (bmp.getWidth() <= maxSize && bmp.getHeight() <= maxSize) {
+            return bmp;
+        }
+        float ratio = Math.min(
+            (float) maxSize / bmp.getWidth(),
+            (float) maxSize / bmp.getHeight()
+        );
+        int width = Math.max(1, Math.round(bmp.getWidth() * ratio));
+        int height = Math.max(1, Math.round(bmp.getHeight() * ratio));
+        return Bitmap.createScaledBitmap(bmp, width, height, true);
+    }
+
+    /**
+     * Envía las notificaciones guardadas mientras Flutter no escuchaba (Android 15 fix)
      */
     private void flushNotificationBuffer() {
-        if (notificationBuffer == null || notificationBuffer.isEmpty()) {
+        replayBufferedEvents(this);
+    }
+
+    /**
+     * Repite al suscriptor actual lo guardado en {@link EventReplayBuffer}. Lo llama el servicio
+     * (RECEIVER_READY, onListenerConnected) y el plugin en onListen cuando comparten proceso.
+     */
+    public static void replayBufferedEvents(Context context) {
+        SubscriptionSpec spec = subscription;
+        if (spec == null) {
+            return;
+        }
+        List<NotificationEvent> events = EventReplayBuffer.get(context).drain();
+        if (events.isEmpty()) {
             Log.d(TAG, "📦 Buffer vacío, nada que enviar");
             return;
         }
-        
         int flushedCount = 0;
-        Intent notification;
-        while ((notification = notificationBuffer.poll()) != null) {
+        for (NotificationEvent stored : events) {
+            if (!stored.isConnectionEvent() && !spec.wantsPackage(stored.getPackageName())) {
+                continue;
+            }
+            NotificationEvent event = stored.asReplay();
             try {
-                sendBroadcast(notification);
+                if (!EventDispatcher.get().dispatch(event)) {
+                    context.sendBroadcast(event.toIntent());
+                }
                 flushedCount++;
             } catch (Exception e) {
                 Log.e(TAG, "Error al enviar notificación del buffer: " + e.getMessage());
             }
         }
-        
-        Log.i(TAG, "✅ Buffer vaciado - $flushedCount notificaciones enviadas");
+        Log.i(TAG, "✅ Buffer vaciado - " + flushedCount + " notificaciones enviadas");
     }
 
     public byte[] getAppIcon(String packageName) {
-        try {
-            PackageManager manager = getBaseContext().getPackageManager();
-            Drawable icon = manager.getApplicationIcon(packageName);
-            ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            getBitmapFromDrawable(icon).compress(Bitmap.CompressFormat.PNG, 100, stream);
-            return stream.toByteArray();
-        } catch (PackageManager.NameNotFoundException e) {
-            e.printStackTrace();
-            return null;
-        }
+        // Cacheado por paquete y versión: solo se rasteriza la primera vez
+        return AppIconCache.get(this).getIcon(packageName);
     }
 
     @RequiresApi(api = VERSION_CODES.M)
-    private byte[] getNotificationLargeIcon(Context context, Notification notification) {
+    private byte[] getNotificationLargeIcon(Context context, Notification notification, int maxSize) {
         try {
             Icon largeIcon = notification.getLargeIcon();
             if (largeIcon == null) {
                 return null;
             }
             Drawable iconDrawable = largeIcon.loadDrawable(context);
-            Bitmap iconBitmap = ((BitmapDrawable) iconDrawable).getBitmap();
+            Bitmap iconBitmap = scaleToFit(((BitmapDrawable) iconDrawable).getBitmap(), maxSize);
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             iconBitmap.compress(Bitmap.CompressFormat.PNG, 100, outputStream);
 
@@ -606,14 +738,20 @@ private void handleNotification(StatusBarNotification notification, boolean isRe
         return false;
     }
 
-    private void tryNativeSend(String title, String content, int id, String packageName) {
+    /**
+     * Aplica las reglas y encola el pago si corresponde.
+     *
+     * @return la decisión, para adjuntarla al evento de Flutter (null si hubo un error)
+     */
+    private PaymentResult tryNativeSend(String title, String content, int id, String packageName, String key, long postTime) {
         try {
             Log.d(TAG, "Native: Iniciando procesamiento nativo para " + packageName);
             // Recuperar preferencias con manejo seguro de tipos
             SharedPreferences prefs = getSharedPreferences("FlutterSharedPreferences", Context.MODE_PRIVATE);
             String token = prefs.getString("flutter.jwt_token", null);
-            String bipesJson = prefs.getString("flutter.bipes", null);
-            
+            // Reglas ya parseadas y con regex precompiladas (se recompilan solo si cambia "flutter.bipes")
+            BipeRuleSet ruleSet = BipeRuleStore.get(this);
+
             // Fix: Manejar idUsuario e idNegocio como Long y castear a int si es necesario, 
             // ya que Flutter a veces guarda enteros grandes como Long en SharedPreferences.
             int idUsuario = -1;
@@ -636,174 +774,68 @@ private void handleNotification(StatusBarNotification notification, boolean isRe
             
             if (token == null) {
                 Log.e(TAG, "Native: Token es NULL. No se puede enviar.");
-                return;
+                return PaymentResult.of(PaymentResult.Status.SKIPPED);
             }
-            if (bipesJson == null) {
+            if (ruleSet.getSource() == null) {
                 Log.e(TAG, "Native: Bipes JSON es NULL. No hay reglas configuradas.");
-                return;
+                return PaymentResult.of(PaymentResult.Status.SKIPPED);
             }
             
             // Concatenar título y contenido para buscar en ambos
             String fullTextToSearch = (content).trim();
             Log.d(TAG, "Native: Texto a analizar: " + fullTextToSearch);
 
-            flushQueueIfAny(prefs, token);
-            JSONArray arr;
-            try {
-                arr = new JSONArray(bipesJson);
-            } catch (Exception e) {
-                Log.e(TAG, "Native: Error parseando bipes JSON: " + e.getMessage());
-                return;
+            // Huellas de duplicados, reglas y payload (FechaHora en hora Perú) en el módulo core
+            PaymentDetector detector = new PaymentDetector(PaymentDedup.get(this), Clock.SYSTEM, PipelineMetrics.get());
+            PaymentDetector.Result result = detector.process(ruleSet, key, packageName, fullTextToSearch, id,
+                    postTime, idUsuario, idNegocio);
+            if (result.getOutcome() != PaymentDetector.Outcome.PAYMENT && ruleSet.hasRulesFor(packageName)) {
+                // Nada que enviar: el catch-up tras reconectar no necesita volver a mirarla.
+                // Las apps sin reglas (solo para Flutter) no mueven la marca
+                PostTimeWatermarkStore.advance(this, postTime);
             }
-            
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject bipe = arr.getJSONObject(i);
-                String contain = bipe.optString("contain", null);
-                String pkg = bipe.optString("packageName", null);
-                String regex = bipe.optString("regex", null);
-                boolean hasMonto = bipe.optBoolean("hasMonto", false);
-                int idBilletera = bipe.optInt("idBilletera", 0);
-                
-                if (contain == null || pkg == null || regex == null) {
-                    continue;
-                }
-                
-                // Verificar paquete
-                if (!pkg.equals(packageName) && !pkg.equals("-1")) {
-                    continue;
-                }
-                
-                // Verificar contain (case insensitive podría ser útil, pero mantenemos lógica original por ahora)
-                if (!fullTextToSearch.contains(contain)) {
-                    continue;
-                }
-                Log.d(TAG, "Native: 'Contain' encontrado: " + contain);
-
-                Matcher m;
-                try {
-                    Pattern p = Pattern.compile(regex); // Ojo: flags por defecto
-                    m = p.matcher(fullTextToSearch);
-                    if (!m.find()) {
-                        Log.d(TAG, "Native: Regex no hizo match: " + regex);
-                        continue;
-                    }
-                } catch (Exception e) {
-                    Log.e(TAG, "Native: Error en regex: " + e.getMessage());
-                    continue;
-                }
-                
-                Log.i(TAG, "Native: MATCH EXITOSO para regla: " + contain);
-
-                String nombreCliente = m.groupCount() > 1 ? m.group(1) : contain;
-                double monto = 0.0;
-                if (hasMonto) {
-                    String montoStr = m.groupCount() > 1 ? m.group(2) : m.group(1);
-                    try {
-                        if (montoStr != null) {
-                            montoStr = montoStr.replace(",", "").replace("S/ ", "").replace("s/ ", "").trim();
-                            monto = Double.parseDouble(montoStr);
-                        }
-                    } catch (Exception ignored) {
-                        Log.w(TAG, "Native: Error parseando monto: " + montoStr);
-                    }
-                }
-                
-                JSONObject payload = new JSONObject();
-                payload.put("IdUsuarioNegocio", idUsuario);
-                payload.put("IdNegocio", idNegocio);
-                payload.put("NombreCliente", nombreCliente);
-                payload.put("Monto", monto);
-                payload.put("Estado", "ACTIVO");
-                // Formato hora Perú (America/Lima)
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
-                sdf.setTimeZone(TimeZone.getTimeZone("America/Lima"));
-                payload.put("FechaHora", sdf.format(new Date()));
-                payload.put("IdNotificationApp", id);
-                payload.put("IdBilletera", idBilletera);
-                payload.put("PackageName", packageName);
-                
-                Log.d(TAG, "Native: Enviando payload: " + payload.toString());
-
-                URL url = new URL(API_BASE + "/yape");
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("POST");
-                conn.setConnectTimeout(15000);
-                conn.setReadTimeout(15000);
-                conn.setDoOutput(true);
-                conn.setRequestProperty("Content-Type", "application/json");
-                conn.setRequestProperty("Authorization", "Bearer " + token);
-                byte[] body = payload.toString().getBytes("UTF-8");
-                OutputStream os = conn.getOutputStream();
-                os.write(body);
-                os.flush();
-                os.close();
-                int code = conn.getResponseCode();
-                conn.disconnect();
-                
-                if (code == 200) {
-                    Log.i(TAG, "Native: Envio exitoso (200 OK)");
-                    return;
+            switch (result.getOutcome()) {
+                case SEEN:
+                    // Post repetido idéntico (update sin cambios o reconexión en Xiaomi): nada que hacer
+                    Log.d(TAG, "Native: Notificación ya procesada, se ignora: " + key);
+                    return PaymentResult.of(PaymentResult.Status.SEEN);
+                case NO_MATCH:
+                    Log.d(TAG, "Native: Ninguna regla hizo match para " + packageName);
+                    return PaymentResult.of(PaymentResult.Status.NO_MATCH);
+                case DUPLICATE:
+                    // Mismo pago en una actualización de la notificación: no enviarlo otra vez
+                    Log.i(TAG, "Native: Pago duplicado, no se reenvía: " + key);
+                    return PaymentResult.matched(PaymentResult.Status.DUPLICATE, result.getMatch());
+                default:
+                    break;
+            }
+            Log.i(TAG, "Native: MATCH EXITOSO para regla: " + result.getMatch().getRule().getContain());
+            String payload = result.getPayload();
+            Log.d(TAG, "Native: Enviando payload: " + payload);
+
+            // El envío (y los reintentos) los hace el hilo de subida; aquí solo se encola.
+            // Las huellas y la marca de agua avanzan recién cuando el payload es durable: si el
+            // proceso muere con el pago solo en memoria, el catch-up lo vuelve a detectar
+            PostTimeWatermarkStore.hold(this, postTime);
+            boolean queued = PaymentUploader.get(this).submit(payload, postTime, durable -> {
+                if (durable) {
+                    detector.confirm(result);
+                    PostTimeWatermarkStore.release(this, postTime);
                 } else {
-                    Log.w(TAG, "Native: Fallo envio (Code " + code + "), agregando a cola.");
-                    addToQueue(prefs, payload);
+                    // No se pudo enviar ni guardar: liberar las huellas para poder detectarlo otra
+                    // vez. La marca sigue retenida, así el próximo catch-up lo vuelve a revisar
+                    Log.e(TAG, "Native: Pago perdido, se podrá volver a detectar: " + key);
+                    detector.abandon(result);
                 }
-            }
+            });
+            // Historial local con totales por día (para pantallas sin ir al servidor), en su propio hilo
+            PaymentLedger.recordAsync(this, key, packageName, result.getMatch(), postTime);
+            return PaymentResult.matched(queued ? PaymentResult.Status.QUEUED : PaymentResult.Status.JOURNALED,
+                    result.getMatch());
         } catch (Exception e) {
             Log.e(TAG, "Native send error: " + e.getMessage());
             e.printStackTrace();
-        }
-    }
-    
-    private void addToQueue(SharedPreferences prefs, JSONObject payload) {
-        try {
-            String q = prefs.getString("flutter.native_retry_queue", "[]");
-            JSONArray arr = new JSONArray(q);
-            arr.put(payload);
-            prefs.edit().putString("flutter.native_retry_queue", arr.toString()).apply();
-        } catch (Exception e) {
-            Log.e(TAG, "Error al agregar a cola nativa: " + e.getMessage());
-        }
-    }
-    
-    private void flushQueueIfAny(SharedPreferences prefs, String token) {
-        try {
-            String q = prefs.getString("flutter.native_retry_queue", "[]");
-            JSONArray arr = new JSONArray(q);
-            if (arr.length() == 0) return;
-            JSONArray toKeep = new JSONArray();
-            for (int i = 0; i < arr.length(); i++) {
-                JSONObject payload = arr.optJSONObject(i);
-                if (payload == null) continue;
-                if (!postPayload(token, payload)) {
-                    toKeep.put(payload);
-                }
-            }
-            prefs.edit().putString("flutter.native_retry_queue", toKeep.toString()).apply();
-        } catch (Exception e) {
-            Log.e(TAG, "Error al vaciar cola nativa: " + e.getMessage());
-        }
-    }
-    
-    private boolean postPayload(String token, JSONObject payload) {
-        try {
-            URL url = new URL(API_BASE + "/yape");
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setRequestMethod("POST");
-            conn.setConnectTimeout(15000);
-            conn.setReadTimeout(15000);
-            conn.setDoOutput(true);
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + token);
-            byte[] body = payload.toString().getBytes("UTF-8");
-            OutputStream os = conn.getOutputStream();
-            os.write(body);
-            os.flush();
-            os.close();
-            int code = conn.getResponseCode();
-            conn.disconnect();
-            return code == 200;
-        } catch (Exception e) {
-            return false;
+            return null;
         }
     }
 
@@ -5,7 +5,6 @@ import static notification.listener.service.NotificationUtils.isPermissionGrante
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.PendingIntent;
-import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -14,12 +13,16 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.provider.Settings;
-import android.service.notification.NotificationListenerService;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.RequiresApi;
 
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import io.flutter.embedding.engine.plugins.FlutterPlugin;
 import io.flutter.embedding.engine.plugins.activity.ActivityAware;
 import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding;
@@ -29,6 +32,10 @@ import io.flutter.plugin.common.MethodChannel;
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler;
 import io.flutter.plugin.common.MethodChannel.Result;
 import io.flutter.plugin.common.PluginRegistry;
+import notification.listener.service.core.DedupCache;
+import notification.listener.service.core.PipelineMetrics;
+import notification.listener.service.core.ReconnectPolicy;
+import notification.listener.service.core.SendPolicy;
 import notification.listener.service.models.Action;
 import notification.listener.service.models.ActionCache;
 
@@ -45,6 +52,9 @@ public class NotificationListenerServicePlugin implements FlutterPlugin, Activit
     private Activity mActivity;
 
     private Result pendingResult;
+    // Lecturas con disco (historial SQLite, diario, métricas) fuera del hilo de la plataforma
+    private static final ExecutorService queryExecutor =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "BipeQuery"));
     final int REQUEST_CODE_FOR_NOTIFICATIONS = 1199;
 
     @Override
@@ -66,11 +76,15 @@ public class NotificationListenerServicePlugin implements FlutterPlugin, Activit
             mActivity.startActivityForResult(intent, REQUEST_CODE_FOR_NOTIFICATIONS);
         } else if (call.method.equals("sendReply")) {
             final String message = call.argument("message");
-            final int notificationId = call.argument("notificationId");
+            final String notificationKey = call.argument("notificationKey");
+            final Integer notificationId = call.argument("notificationId");
 
-            final Action action = ActionCache.cachedNotifications.get(notificationId);
+            // Por clave; los clientes que solo mandan el id caen a la búsqueda por id
+            final Action action = notificationKey != null ? ActionCache.get(notificationKey)
+                    : notificationId != null ? ActionCache.findById(notificationId) : null;
             if (action == null) {
                 result.error("Notification", "Can't find this cached notification", null);
+                return;
             }
             try {
                 action.sendReply(context, message);
@@ -79,6 +93,57 @@ public class NotificationListenerServicePlugin implements FlutterPlugin, Activit
                 result.success(false);
                 e.printStackTrace();
             }
+        } else if (call.method.equals("setBatchDelivery")) {
+            // Agrupar eventos en una sola lista por mensaje (windowMs = 0 lo desactiva)
+            Number windowMs = call.argument("windowMs");
+            Number maxBatch = call.argument("maxBatch");
+            EventDispatcher.get().setBatching(
+                    windowMs != null ? windowMs.longValue() : 0,
+                    maxBatch != null ? maxBatch.intValue() : 0);
+            result.success(true);
+        } else if (call.method.equals("configureReplayBuffer")) {
+            // Capacidad y política del buffer de eventos para suscriptores tardíos
+            Number capacity = call.argument("capacity");
+            String policy = call.argument("dropPolicy");
+            Boolean spill = call.argument("spillToDisk");
+            EventReplayBuffer.get(context).configure(
+                    capacity != null ? capacity.intValue() : EventReplayBuffer.DEFAULT_CAPACITY,
+                    "dropNewest".equals(policy) ? EventReplayBuffer.DropPolicy.DROP_NEWEST : EventReplayBuffer.DropPolicy.DROP_OLDEST,
+                    spill == null || spill);
+            result.success(true);
+        } else if (call.method.equals("getMetrics")) {
+            // Abrir el diario o la caché de huellas lee y compacta archivos: nunca en el hilo principal
+            runInBackground(result, "METRICS_ERROR", this::collectMetrics);
+        } else if (call.method.equals("getActionCacheStats")) {
+            result.success(ActionCache.getStats());
+        } else if (call.method.equals("getReplayStats")) {
+            result.success(EventReplayBuffer.get(context).getStats());
+        } else if (call.method.equals("getLedgerPayments")) {
+            // Página de pagos del historial local (cursor = postedAt + id del último de la página anterior)
+            Number from = call.argument("from");
+            Number to = call.argument("to");
+            Number idBilletera = call.argument("idBilletera");
+            Number beforePostedAt = call.argument("beforePostedAt");
+            Number beforeId = call.argument("beforeId");
+            Number limit = call.argument("limit");
+            runInBackground(result, "LEDGER_ERROR", () -> PaymentLedger.get(context).queryPayments(
+                    from != null ? from.longValue() : null,
+                    to != null ? to.longValue() : null,
+                    idBilletera != null ? idBilletera.intValue() : null,
+                    beforePostedAt != null ? beforePostedAt.longValue() : null,
+                    beforeId != null ? beforeId.longValue() : null,
+                    limit != null ? limit.intValue() : PaymentLedger.DEFAULT_PAGE));
+        } else if (call.method.equals("getLedgerDailyTotals")) {
+            // Totales por día (yyyy-MM-dd, hora de Perú) y billetera
+            String fromDay = call.argument("fromDay");
+            String toDay = call.argument("toDay");
+            Number idBilletera = call.argument("idBilletera");
+            if (fromDay == null || toDay == null) {
+                result.error("LEDGER_ARGS", "fromDay y toDay son obligatorios", null);
+                return;
+            }
+            runInBackground(result, "LEDGER_ERROR", () -> PaymentLedger.get(context).dailyTotals(fromDay, toDay,
+                    idBilletera != null ? idBilletera.intValue() : null));
         } else if (call.method.equals("isServiceConnected")) {
             // Verificar si el listener está conectado
             result.success(NotificationListener.isConnected);
@@ -90,39 +155,80 @@ public class NotificationListenerServicePlugin implements FlutterPlugin, Activit
             status.put("lastDisconnectedTime", NotificationListener.lastDisconnectedTime);
             result.success(status);
         } else if (call.method.equals("reconnectService")) {
-            // Forzar reconexión del servicio (Toggle del Componente)
-            try {
-                Log.i("NotificationPlugin", "🔄 Solicitando reconexión desde Flutter...");
-                NotificationListener.reconnectService(context);
-                
-                // Esperar un poco y devolver el nuevo estado
-                new Handler(Looper.getMainLooper()).postDelayed(() -> {
-                    result.success(true);
-                }, 500);
-            } catch (Exception e) {
-                Log.e("NotificationPlugin", "Error en reconnectService: " + e.getMessage());
-                result.error("RECONNECT_ERROR", e.getMessage(), null);
-            }
+            // Pedido al coordinador: responde de inmediato, el avance llega como evento "reconnect"
+            String trigger = call.argument("trigger");
+            Log.i("NotificationPlugin", "🔄 Solicitando reconexión desde Flutter (" + trigger + ")...");
+            ReconnectCoordinator.get(context).request(parseTrigger(trigger), "flutter");
+            result.success(true);
         } else if (call.method.equals("forceRequestRebind")) {
-            // Solicitar rebind usando la API oficial de Android (API 24+)
+            // Mismo coordinador: empieza siempre por requestRebind (API 24+)
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
-                try {
-                    ComponentName componentName = new ComponentName(context, NotificationListener.class);
-                    NotificationListenerService.requestRebind(componentName);
-                    Log.i("NotificationPlugin", "🔄 requestRebind ejecutado correctamente");
-                    result.success(true);
-                } catch (Exception e) {
-                    Log.e("NotificationPlugin", "Error en forceRequestRebind: " + e.getMessage());
-                    result.error("REBIND_ERROR", e.getMessage(), null);
-                }
+                ReconnectCoordinator.get(context).request(ReconnectPolicy.Trigger.SUSPECT, "flutter rebind");
+                result.success(true);
             } else {
                 result.error("API_LEVEL", "requestRebind requiere API 24+", null);
             }
+        } else if (call.method.equals("getReconnectStatus")) {
+            result.success(ReconnectCoordinator.get(context).snapshot());
+        } else if (call.method.equals("getHealthStatus")) {
+            // Último estado del monitor de salud (los cambios llegan como evento "health")
+            result.success(HealthMonitor.get(context).snapshot());
         } else {
             result.notImplemented();
         }
     }
 
+    /** "auto", "suspect" o "manual"; sin valor se asume sospecha (como el toggle de antes) */
+    private static ReconnectPolicy.Trigger parseTrigger(String trigger) {
+        if ("auto".equals(trigger)) {
+            return ReconnectPolicy.Trigger.AUTO;
+        }
+        if ("manual".equals(trigger)) {
+            return ReconnectPolicy.Trigger.MANUAL;
+        }
+        return ReconnectPolicy.Trigger.SUSPECT;
+    }
+
+    /**
+     * Corre una lectura (historial, métricas) fuera del hilo principal y responde en él.
+     */
+    private static void runInBackground(Result result, String errorCode, Callable<Object> query) {
+        Handler main = new Handler(Looper.getMainLooper());
+        queryExecutor.execute(() -> {
+            try {
+                Object value = query.call();
+                main.post(() -> result.success(value));
+            } catch (Exception e) {
+                Log.e("NotificationPlugin", "Error en consulta " + errorCode + ": " + e.getMessage());
+                main.post(() -> result.error(errorCode, e.getMessage(), null));
+            }
+        });
+    }
+
+    /**
+     * Contadores del pipeline más el estado actual de cada pieza (backlog, política de envío,
+     * colas). Lo que no se pueda leer (p.ej. diario sin abrir) simplemente no aparece.
+     * Puede abrir el diario y la caché de huellas: se llama desde {@link #queryExecutor}.
+     */
+    private HashMap<String, Object> collectMetrics() {
+        HashMap<String, Object> metrics = PipelineMetrics.get().snapshot();
+        try {
+            metrics.put("retryBacklog", RetryJournalStore.get(context).size());
+        } catch (Exception e) {
+            Log.w("NotificationPlugin", "Diario de reintentos no disponible: " + e.getMessage());
+        }
+        SendPolicy policy = PaymentUploader.get(context).getPolicy();
+        metrics.put("sendState", policy.getState().name());
+        metrics.put("consecutiveFailures", policy.getConsecutiveFailures());
+        metrics.put("nextAttemptAt", policy.getNextAttemptAt());
+        metrics.put("dispatcherQueued", EventDispatcher.get().getQueued());
+        DedupCache dedup = PaymentDedup.get(context);
+        metrics.put("dedupEntries", dedup != null ? dedup.size() : 0);
+        metrics.put("replay", EventReplayBuffer.get(context).getStats());
+        metrics.put("actionCache", ActionCache.getStats());
+        return metrics;
+    }
+
     @Override
     public void onDetachedFromEngine(@NonNull FlutterPluginBinding binding) {
         channel.setMethodCallHandler(null);
@@ -155,6 +261,13 @@ public class NotificationListenerServicePlugin implements FlutterPlugin, Activit
         IntentFilter intentFilter = new IntentFilter();
         intentFilter.addAction(NotificationConstants.INTENT);
         notificationReceiver = new NotificationReceiver(events);
+        // Lo que Flutter pidió (paquetes, campos, tamaño de imagen); sin argumentos = todo
+        SubscriptionSpec spec = SubscriptionSpec.fromArguments(arguments);
+        NotificationListener.setSubscription(spec);
+        // Mismo proceso que el servicio: los eventos llegan directo, sin broadcast
+        EventDispatcher.get().attach(events);
+        // Lo que llegó mientras nadie escuchaba
+        NotificationListener.replayBufferedEvents(context);
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
             context.registerReceiver(notificationReceiver, intentFilter, Context.RECEIVER_EXPORTED);
         }else{
@@ -165,6 +278,8 @@ public class NotificationListenerServicePlugin implements FlutterPlugin, Activit
         try {
             Intent readyIntent = new Intent(context, NotificationListener.class);
             readyIntent.setAction("RECEIVER_READY");
+            // Si el servicio corre en otro proceso, así también recibe la suscripción
+            readyIntent.putExtra(NotificationListener.EXTRA_SUBSCRIPTION, spec.toArguments());
             context.startService(readyIntent);
             Log.i("NotificationPlugin", "Receiver marcado como listo");
         } catch (Exception e) {
@@ -176,6 +291,8 @@ public class NotificationListenerServicePlugin implements FlutterPlugin, Activit
 
     @Override
     public void onCancel(Object arguments) {
+        NotificationListener.setSubscription(null);
+        EventDispatcher.get().detach();
         context.unregisterReceiver(notificationReceiver);
         notificationReceiver = null;
     }
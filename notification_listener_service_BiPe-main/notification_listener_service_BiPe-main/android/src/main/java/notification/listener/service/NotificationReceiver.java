@@ -1,7 +1,5 @@
 package notification.listener.service;
 
-import static notification.listener.service.NotificationConstants.*;
-
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
@@ -10,9 +8,12 @@ import android.os.Build.VERSION_CODES;
 import androidx.annotation.RequiresApi;
 
 import io.flutter.plugin.common.EventChannel.EventSink;
+import notification.listener.service.models.NotificationEvent;
 
-import java.util.HashMap;
-
+/**
+ * Camino de respaldo entre procesos: convierte el broadcast del listener en un evento para
+ * Flutter. En el mismo proceso los eventos llegan por {@link EventDispatcher}.
+ */
 public class NotificationReceiver extends BroadcastReceiver {
 
     private EventSink eventSink;
@@ -24,30 +25,6 @@ public class NotificationReceiver extends BroadcastReceiver {
     @RequiresApi(api = VERSION_CODES.JELLY_BEAN_MR2)
     @Override
     public void onReceive(Context context, Intent intent) {
-        String packageName = intent.getStringExtra(PACKAGE_NAME);
-        String title = intent.getStringExtra(NOTIFICATION_TITLE);
-        String content = intent.getStringExtra(NOTIFICATION_CONTENT);
-        byte[] notificationIcon = intent.getByteArrayExtra(NOTIFICATIONS_ICON);
-        byte[] notificationExtrasPicture = intent.getByteArrayExtra(EXTRAS_PICTURE);
-        byte[] largeIcon = intent.getByteArrayExtra(NOTIFICATIONS_LARGE_ICON);
-        boolean haveExtraPicture = intent.getBooleanExtra(HAVE_EXTRA_PICTURE, false);
-        boolean hasRemoved = intent.getBooleanExtra(IS_REMOVED, false);
-        boolean canReply = intent.getBooleanExtra(CAN_REPLY, false);
-        int id = intent.getIntExtra(ID, -1);
-
-
-        HashMap<String, Object> data = new HashMap<>();
-        data.put("id", id);
-        data.put("packageName", packageName);
-        data.put("title", title);
-        data.put("content", content);
-        data.put("notificationIcon", notificationIcon);
-        data.put("notificationExtrasPicture", notificationExtrasPicture);
-        data.put("haveExtraPicture", haveExtraPicture);
-        data.put("largeIcon", largeIcon);
-        data.put("hasRemoved", hasRemoved);
-        data.put("canReply", canReply);
-
-        eventSink.success(data);
+        eventSink.success(NotificationEvent.fromIntent(intent).toMap());
     }
 }
@@ -0,0 +1,53 @@
+package notification.listener.service;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import notification.listener.service.core.BipeRuleSet;
+
+/**
+ * Filtro temprano de paquetes: decide en O(1), en el hilo binder de onNotificationPosted /
+ * onNotificationRemoved, si a alguien le importa la notificación antes de encolar trabajo.
+ *
+ * Un paquete interesa si tiene reglas de bipe (o hay reglas comodín) o si la suscripción de
+ * Flutter lo pide. El conjunto se precalcula y se reutiliza mientras no cambien ni las reglas
+ * ni la suscripción (se compara por identidad, ambas son inmutables).
+ */
+final class PackageGate {
+
+    /** Foto inmutable del conjunto de paquetes interesantes */
+    private static final class Snapshot {
+        final BipeRuleSet rules;
+        final SubscriptionSpec spec;
+        final boolean all;
+        final Set<String> packages;
+
+        Snapshot(BipeRuleSet rules, SubscriptionSpec spec) {
+            this.rules = rules;
+            this.spec = spec;
+            this.all = rules.hasWildcardRules() || (spec != null && spec.getPackages() == null);
+            Set<String> set = new HashSet<>(rules.getPackages());
+            if (spec != null && spec.getPackages() != null) {
+                set.addAll(spec.getPackages());
+            }
+            this.packages = set;
+        }
+    }
+
+    private static volatile Snapshot snapshot;
+
+    private PackageGate() {
+    }
+
+    /**
+     * @param spec suscripción de Flutter vigente o la última conocida (null = ninguna aún)
+     */
+    static boolean isInteresting(String packageName, BipeRuleSet rules, SubscriptionSpec spec) {
+        Snapshot s = snapshot;
+        if (s == null || s.rules != rules || s.spec != spec) {
+            s = new Snapshot(rules, spec);
+            snapshot = s;
+        }
+        return s.all || s.packages.contains(packageName);
+    }
+}
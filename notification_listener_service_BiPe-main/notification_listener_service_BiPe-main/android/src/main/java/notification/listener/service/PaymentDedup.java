@@ -0,0 +1,60 @@
+package notification.listener.service;
+
+import android.content.Context;
+import android.os.Build;
+import android.service.notification.StatusBarNotification;
+import android.util.Log;
+
+import java.io.File;
+
+import notification.listener.service.core.DedupCache;
+import notification.listener.service.core.PaymentDetector;
+
+/**
+ * Deduplicación de pagos detectados por el envío nativo.
+ *
+ * Las huellas ("vista" y "pago") las arma {@link PaymentDetector} con la clave del
+ * StatusBarNotification que da {@link #notificationKey(StatusBarNotification)}.
+ *
+ * La caché vive en filesDir y sobrevive a que el sistema mate el proceso.
+ */
+public final class PaymentDedup {
+
+    private static final String TAG = "PaymentDedup";
+    private static final String FILE_NAME = "bipe_dedup.bin";
+    static final int CAPACITY = 512;
+    static final long WINDOW_MS = 30 * 60 * 1000;
+
+    private static volatile DedupCache cache;
+
+    private PaymentDedup() {
+    }
+
+    /** @return la caché, o null si no se pudo abrir (se procesa sin deduplicar) */
+    static DedupCache get(Context context) {
+        DedupCache c = cache;
+        if (c == null) {
+            synchronized (PaymentDedup.class) {
+                c = cache;
+                if (c == null) {
+                    try {
+                        c = DedupCache.open(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                                CAPACITY, WINDOW_MS);
+                        cache = c;
+                    } catch (Exception e) {
+                        Log.e(TAG, "No se pudo abrir la caché de duplicados: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return c;
+    }
+
+    /** Clave estable de la notificación (getKey() desde API 20; antes paquete|id|tag) */
+    static String notificationKey(StatusBarNotification sbn) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT_WATCH) {
+            return sbn.getKey();
+        }
+        return sbn.getPackageName() + "|" + sbn.getId() + "|" + sbn.getTag();
+    }
+}
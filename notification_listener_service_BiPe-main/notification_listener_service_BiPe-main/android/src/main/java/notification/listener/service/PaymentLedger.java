@@ -0,0 +1,233 @@
+package notification.listener.service;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import notification.listener.service.core.LedgerSql;
+import notification.listener.service.core.PaymentMatch;
+
+/**
+ * Historial local de pagos detectados (SQLite en modo WAL).
+ *
+ * - Cada pago se guarda una vez (huella única: clave + hora de post + monto + cliente).
+ * - En la misma transacción se actualiza daily_totals (día en hora de Perú x IdBilletera), así
+ *   leer el total de un día es una búsqueda por clave primaria sin importar cuántos pagos haya.
+ * - Las consultas de pagos son paginadas por cursor (posted_at, _id) sobre índices, nunca OFFSET.
+ * - Montos en céntimos (INTEGER): las sumas no acumulan error de punto flotante.
+ *
+ * WAL permite que el plugin lea mientras el listener escribe sin bloquearse. Las escrituras
+ * corren en el hilo "BipeLedger" ({@link #recordAsync}), nunca en el carril de pagos. La lógica
+ * sin SQLite (huella, totales, cursor) vive en {@link LedgerSql}.
+ */
+public final class PaymentLedger extends SQLiteOpenHelper {
+
+    private static final String TAG = "PaymentLedger";
+    private static final String DB_NAME = "bipe_ledger.db";
+    private static final int DB_VERSION = 1;
+    static final int DEFAULT_PAGE = LedgerSql.DEFAULT_PAGE;
+
+    private static volatile PaymentLedger instance;
+
+    // Escrituras fuera del carril de pagos
+    private final Handler writer;
+
+    private PaymentLedger(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+        HandlerThread thread = new HandlerThread("BipeLedger");
+        thread.start();
+        writer = new Handler(thread.getLooper());
+    }
+
+    public static PaymentLedger get(Context context) {
+        PaymentLedger l = instance;
+        if (l == null) {
+            synchronized (PaymentLedger.class) {
+                l = instance;
+                if (l == null) {
+                    l = new PaymentLedger(context.getApplicationContext());
+                    instance = l;
+                }
+            }
+        }
+        return l;
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE payments ("
+                + "_id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "fingerprint TEXT NOT NULL UNIQUE, "
+                + "notification_key TEXT, "
+                + "package_name TEXT NOT NULL, "
+                + "id_billetera INTEGER NOT NULL, "
+                + "nombre_cliente TEXT, "
+                + "monto_cents INTEGER NOT NULL, "
+                + "day TEXT NOT NULL, "
+                + "posted_at INTEGER NOT NULL)");
+        // Listado general y por billetera, ambos en orden (posted_at, _id) para el cursor
+        db.execSQL("CREATE INDEX payments_posted ON payments (posted_at, _id)");
+        db.execSQL("CREATE INDEX payments_billetera_posted ON payments (id_billetera, posted_at, _id)");
+        db.execSQL("CREATE TABLE daily_totals ("
+                + "day TEXT NOT NULL, "
+                + "id_billetera INTEGER NOT NULL, "
+                + "count INTEGER NOT NULL, "
+                + "total_cents INTEGER NOT NULL, "
+                + "PRIMARY KEY (day, id_billetera))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Primera versión del esquema
+    }
+
+    /**
+     * Guarda un pago detectado y suma su monto al total del día, en una transacción.
+     *
+     * @return false si ya estaba registrado (no se vuelve a sumar)
+     */
+    public boolean record(String key, String packageName, PaymentMatch match, long postTime) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            if (!LedgerSql.record(new DbWriter(db), key, packageName, match, postTime)) {
+                return false;
+            }
+            db.setTransactionSuccessful();
+            return true;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Una página de pagos, del más reciente al más antiguo (ver
+     * {@link LedgerSql#paymentsPage(Long, Long, Integer, Long, Long, int)}).
+     *
+     * @return {"items": [...], "nextCursor": {"postedAt", "id"} o null si no hay más}
+     */
+    public HashMap<String, Object> queryPayments(Long from, Long to, Integer idBilletera,
+                                                 Long beforePostedAt, Long beforeId, int limit) {
+        LedgerSql.Query query = LedgerSql.paymentsPage(from, to, idBilletera, beforePostedAt, beforeId, limit);
+        List<HashMap<String, Object>> rows = new ArrayList<>();
+        Cursor c = getReadableDatabase().query("payments",
+                new String[]{"_id", "notification_key", "package_name", "id_billetera", "nombre_cliente",
+                        "monto_cents", "day", "posted_at"},
+                query.where, query.args, null, null, LedgerSql.PAYMENTS_ORDER, query.limit());
+        try {
+            while (c.moveToNext()) {
+                HashMap<String, Object> item = new HashMap<>();
+                item.put("id", c.getLong(0));
+                item.put("key", c.getString(1));
+                item.put("packageName", c.getString(2));
+                item.put("idBilletera", c.getInt(3));
+                item.put("nombreCliente", c.getString(4));
+                item.put("monto", c.getLong(5) / 100.0);
+                item.put("day", c.getString(6));
+                item.put("postedAt", c.getLong(7));
+                rows.add(item);
+            }
+        } finally {
+            c.close();
+        }
+        return LedgerSql.page(rows, query.pageSize);
+    }
+
+    /**
+     * Totales por día y billetera en un rango de días (yyyy-MM-dd, inclusive), leídos de
+     * daily_totals: el costo depende de la cantidad de días, no de pagos.
+     */
+    public List<HashMap<String, Object>> dailyTotals(String fromDay, String toDay, Integer idBilletera) {
+        LedgerSql.Query query = LedgerSql.dailyTotals(fromDay, toDay, idBilletera);
+        List<HashMap<String, Object>> totals = new ArrayList<>();
+        Cursor c = getReadableDatabase().query("daily_totals",
+                new String[]{"day", "id_billetera", "count", "total_cents"},
+                query.where, query.args, null, null, LedgerSql.TOTALS_ORDER);
+        try {
+            while (c.moveToNext()) {
+                HashMap<String, Object> total = new HashMap<>();
+                total.put("day", c.getString(0));
+                total.put("idBilletera", c.getInt(1));
+                total.put("count", c.getLong(2));
+                total.put("total", c.getLong(3) / 100.0);
+                totals.add(total);
+            }
+        } finally {
+            c.close();
+        }
+        return totals;
+    }
+
+    /**
+     * Registra un pago en el hilo del historial: el commit de SQLite nunca demora el envío y un
+     * error de disco no lo afecta.
+     */
+    static void recordAsync(Context context, String key, String packageName, PaymentMatch match, long postTime) {
+        PaymentLedger ledger = get(context);
+        ledger.writer.post(() -> {
+            try {
+                ledger.record(key, packageName, match, postTime);
+            } catch (Exception e) {
+                Log.e(TAG, "No se pudo registrar el pago en el historial: " + e.getMessage());
+            }
+        });
+    }
+
+    /** {@link LedgerSql.Writer} sobre la transacción abierta en {@link #record} */
+    private static final class DbWriter implements LedgerSql.Writer {
+        private final SQLiteDatabase db;
+
+        DbWriter(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        @Override
+        public boolean insertPayment(LedgerSql.Payment payment) {
+            ContentValues row = new ContentValues();
+            row.put("fingerprint", payment.fingerprint);
+            row.put("notification_key", payment.key);
+            row.put("package_name", payment.packageName);
+            row.put("id_billetera", payment.idBilletera);
+            row.put("nombre_cliente", payment.nombreCliente);
+            row.put("monto_cents", payment.cents);
+            row.put("day", payment.day);
+            row.put("posted_at", payment.postedAt);
+            return db.insertWithOnConflict("payments", null, row, SQLiteDatabase.CONFLICT_IGNORE) != -1;
+        }
+
+        @Override
+        public int addToDailyTotal(String day, int idBilletera, long cents) {
+            SQLiteStatement update = db.compileStatement("UPDATE daily_totals "
+                    + "SET count = count + 1, total_cents = total_cents + ? WHERE day = ? AND id_billetera = ?");
+            try {
+                update.bindLong(1, cents);
+                update.bindString(2, day);
+                update.bindLong(3, idBilletera);
+                return update.executeUpdateDelete();
+            } finally {
+                update.close();
+            }
+        }
+
+        @Override
+        public void insertDailyTotal(String day, int idBilletera, long cents) {
+            ContentValues total = new ContentValues();
+            total.put("day", day);
+            total.put("id_billetera", idBilletera);
+            total.put("count", 1);
+            total.put("total_cents", cents);
+            db.insertOrThrow("daily_totals", null, total);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package notification.listener.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.List;
+
+import notification.listener.service.core.Clock;
+import notification.listener.service.core.PaymentSender;
+import notification.listener.service.core.PaymentStore;
+import notification.listener.service.core.PipelineMetrics;
+import notification.listener.service.core.RetryJournal;
+import notification.listener.service.core.SendPolicy;
+import notification.listener.service.core.UploadWorker;
+import notification.listener.service.core.YapeHttpClient;
+
+/**
+ * Etapa de subida separada del procesamiento de notificaciones.
+ *
+ * Los pagos detectados entran a una cola en memoria acotada ({@link #submit(String, long, UploadWorker.Durability)} no
+ * bloquea) y un único hilo "BipeUploader" los envía a /yape. Si un envío falla el payload pasa al
+ * {@link RetryJournal}, que este mismo hilo vacía periódicamente. Así un hilo de
+ * NotificationProcessor nunca queda esperando a la red.
+ *
+ * La cola, el hilo ({@link UploadWorker}) y la lógica de envío y reintentos (lotes de hasta
+ * {@value #BACKLOG_BATCH}, {@link SendPolicy}, {@link PaymentSender}) viven en el módulo core;
+ * aquí quedan el token, el diario en filesDir y los logs.
+ */
+public final class PaymentUploader {
+
+    private static final String TAG = "PaymentUploader";
+    static final String KEY_TOKEN = "flutter.jwt_token";
+
+    private static final int QUEUE_CAPACITY = 256;
+    // Máximo de payloads por request en modo lote
+    private static final int BACKLOG_BATCH = 20;
+    private static final long BACKLOG_INTERVAL_MS = 60_000;
+
+    private static volatile PaymentUploader instance;
+
+    private final Context context;
+    private final PaymentSender sender;
+    private final UploadWorker worker;
+
+    /** El diario se abre recién al usarlo: un disco con problemas no impide los envíos en vivo */
+    private static final class LazyJournal implements PaymentStore {
+        private final Context context;
+
+        LazyJournal(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public long append(String payload) throws IOException {
+            return RetryJournalStore.get(context).append(payload);
+        }
+
+        @Override
+        public List<Entry> claim(int max) throws IOException {
+            return RetryJournalStore.get(context).claim(max);
+        }
+
+        @Override
+        public void acknowledge(long seq) throws IOException {
+            RetryJournalStore.get(context).acknowledge(seq);
+        }
+
+        @Override
+        public void release(long seq) throws IOException {
+            RetryJournalStore.get(context).release(seq);
+        }
+
+        @Override
+        public int size() throws IOException {
+            return RetryJournalStore.get(context).size();
+        }
+    }
+
+    private PaymentUploader(Context context) {
+        this.context = context;
+        this.sender = new PaymentSender(YapeHttpClient.shared(), new LazyJournal(context), new SendPolicy(),
+                Clock.SYSTEM, PipelineMetrics.get());
+        // Sin el payload: lleva nombre del cliente y monto
+        sender.setListener((payload, code) ->
+                Log.e(TAG, "❌ Payload rechazado por inválido (Code " + code + "), se descarta"));
+        this.worker = new UploadWorker(sender, this::readToken, QUEUE_CAPACITY, BACKLOG_BATCH, BACKLOG_INTERVAL_MS);
+        worker.setListener(new UploadWorker.Listener() {
+            @Override
+            public void onLiveResult(int code) {
+                logLiveResult(code);
+            }
+
+            @Override
+            public void onError(String message, Exception e) {
+                Log.e(TAG, message + ": " + e.getMessage());
+            }
+        });
+        worker.start("BipeUploader");
+    }
+
+    public static PaymentUploader get(Context context) {
+        PaymentUploader u = instance;
+        if (u == null) {
+            synchronized (PaymentUploader.class) {
+                u = instance;
+                if (u == null) {
+                    u = new PaymentUploader(context.getApplicationContext());
+                    instance = u;
+                }
+            }
+        }
+        return u;
+    }
+
+    /**
+     * Encola un payload para envío. Nunca espera a la red; si la cola en memoria está llena
+     * el payload se guarda directamente en el diario durable.
+     *
+     * @param postTime StatusBarNotification.getPostTime() de la notificación que lo originó
+     * @param durability se llama cuando el payload ya fue enviado o está en el diario (true), o si
+     *                   no se pudo ninguna de las dos cosas (false); hasta entonces solo vive en
+     *                   memoria (ver {@link UploadWorker})
+     * @return false si se guardó en el diario por tener la cola llena
+     */
+    public boolean submit(String payload, long postTime, UploadWorker.Durability durability) {
+        if (!worker.submit(payload, postTime, durability)) {
+            Log.w(TAG, "⚠️ Cola de subida llena, guardado en diario");
+            return false;
+        }
+        return true;
+    }
+
+    /** Pide al hilo de subida que intente vaciar el backlog cuanto antes */
+    public void requestDrain() {
+        worker.requestDrain();
+    }
+
+    /**
+     * Mueve al diario lo que quede en memoria (p.ej. cuando el servicio se destruye),
+     * para no perder pagos si el proceso muere.
+     */
+    public void persistPending() {
+        int moved = worker.persistPending();
+        if (moved > 0) {
+            Log.i(TAG, "💾 " + moved + " payloads en memoria movidos al diario");
+        }
+    }
+
+    /**
+     * Envía el backlog del diario en el hilo que llama (usado por el hilo de subida y por
+     * BipeHealthWorker). Los leases del diario evitan envíos duplicados entre ambos.
+     *
+     * @return cantidad de payloads enviados con éxito
+     */
+    public int drainBacklog() {
+        return worker.drainBacklog();
+    }
+
+    public SendPolicy getPolicy() {
+        return sender.getPolicy();
+    }
+
+    private void logLiveResult(int code) {
+        if (code == PaymentSender.NOT_ATTEMPTED) {
+            Log.w(TAG, "Native: Envío en pausa (" + sender.getPolicy().getState() + "), agregando a cola.");
+            return;
+        }
+        switch (SendPolicy.classify(code)) {
+            case SUCCESS:
+                Log.i(TAG, "Native: Envio exitoso (" + code + ")");
+                break;
+            case FATAL:
+                // Ya logueado por el listener del sender
+                break;
+            case AUTH:
+                Log.w(TAG, "🔒 Native: Token rechazado (Code " + code + "), envíos en pausa hasta nuevo token.");
+                break;
+            default:
+                Log.w(TAG, "Native: Fallo envio (Code " + code + "), agregando a cola.");
+                break;
+        }
+    }
+
+    private String readToken() {
+        SharedPreferences prefs = context.getSharedPreferences(BipeRuleStore.PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getString(KEY_TOKEN, null);
+    }
+}
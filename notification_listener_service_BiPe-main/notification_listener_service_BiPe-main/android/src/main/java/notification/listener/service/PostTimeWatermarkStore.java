@@ -0,0 +1,69 @@
+package notification.listener.service;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+
+import notification.listener.service.core.PostTimeWatermark;
+
+/**
+ * Punto de acceso único a la marca de agua del catch-up ({@link PostTimeWatermark}), en filesDir.
+ * Los errores de disco solo se registran: en el peor caso el catch-up revisa de más.
+ */
+public final class PostTimeWatermarkStore {
+
+    private static final String TAG = "PostTimeWatermark";
+    private static final String FILE_NAME = "bipe_post_watermark.bin";
+    // Margen por carriles que terminan fuera de orden
+    static final long SLACK_MS = 60_000;
+    static final long FLUSH_INTERVAL_MS = 5_000;
+
+    private static volatile PostTimeWatermark watermark;
+
+    private PostTimeWatermarkStore() {
+    }
+
+    static PostTimeWatermark get(Context context) {
+        PostTimeWatermark w = watermark;
+        if (w == null) {
+            synchronized (PostTimeWatermarkStore.class) {
+                w = watermark;
+                if (w == null) {
+                    w = PostTimeWatermark.open(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                            SLACK_MS, FLUSH_INTERVAL_MS);
+                    watermark = w;
+                }
+            }
+        }
+        return w;
+    }
+
+    static void advance(Context context, long postTime) {
+        try {
+            get(context).advance(postTime, System.currentTimeMillis());
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo guardar la marca de agua: " + e.getMessage());
+        }
+    }
+
+    static void hold(Context context, long postTime) {
+        get(context).hold(postTime);
+    }
+
+    static void release(Context context, long postTime) {
+        try {
+            get(context).release(postTime, System.currentTimeMillis());
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo guardar la marca de agua: " + e.getMessage());
+        }
+    }
+
+    static void flush(Context context) {
+        try {
+            get(context).flush(System.currentTimeMillis());
+        } catch (Exception e) {
+            Log.w(TAG, "No se pudo guardar la marca de agua: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package notification.listener.service;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.service.notification.NotificationListenerService;
+import android.util.Log;
+
+import java.util.HashMap;
+
+import notification.listener.service.core.ReconnectPolicy;
+import notification.listener.service.models.NotificationEvent;
+
+/**
+ * Único punto de reconexión del listener (plugin, BootReceiver, BipeHealthWorker,
+ * onListenerDisconnected). Las decisiones las toma {@link ReconnectPolicy}; aquí solo se ejecutan
+ * en un HandlerThread propio, así ningún llamador bloquea el hilo principal.
+ *
+ * El toggle del componente deja un hueco entre deshabilitar y habilitar: se programa con
+ * postDelayed en vez de dormir el hilo. Cada cambio de estado se envía a Flutter como evento
+ * "reconnect" (ver {@link NotificationEvent#status(String, HashMap)}).
+ */
+public final class ReconnectCoordinator {
+
+    private static final String TAG = "ReconnectCoordinator";
+    static final String STATUS_TYPE = "reconnect";
+    // Tiempo entre deshabilitar y habilitar el componente
+    static final long TOGGLE_GAP_MS = 250;
+
+    private static volatile ReconnectCoordinator instance;
+
+    private final Context context;
+    private final ComponentName component;
+    private final ReconnectPolicy policy = new ReconnectPolicy();
+    private final Handler handler;
+    private final Runnable deadlineCheck = this::checkDeadline;
+
+    private ReconnectCoordinator(Context context) {
+        this.context = context;
+        this.component = new ComponentName(context, NotificationListener.class);
+        HandlerThread thread = new HandlerThread("BipeReconnect");
+        thread.start();
+        this.handler = new Handler(thread.getLooper());
+    }
+
+    public static ReconnectCoordinator get(Context context) {
+        ReconnectCoordinator c = instance;
+        if (c == null) {
+            synchronized (ReconnectCoordinator.class) {
+                c = instance;
+                if (c == null) {
+                    c = new ReconnectCoordinator(context.getApplicationContext());
+                    instance = c;
+                }
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Pide una reconexión. Nunca bloquea: la decisión y las llamadas al sistema corren en el
+     * hilo del coordinador. Si ya hay un intento en curso, este pedido se suma a él.
+     */
+    public void request(ReconnectPolicy.Trigger trigger, String reason) {
+        handler.post(() -> {
+            ReconnectPolicy.State before = policy.getState();
+            ReconnectPolicy.Step step = policy.request(System.currentTimeMillis(), trigger, reason,
+                    NotificationListener.isConnected, Build.VERSION.SDK_INT >= Build.VERSION_CODES.N);
+            if (step == ReconnectPolicy.Step.NONE) {
+                Log.d(TAG, "Pedido de reconexión (" + reason + ") sin acción, estado " + policy.getState());
+                return;
+            }
+            execute(step);
+            report(before);
+        });
+    }
+
+    /** onListenerConnected: cierra el intento en curso */
+    void onConnected() {
+        handler.post(() -> {
+            ReconnectPolicy.State before = policy.getState();
+            policy.onConnected(System.currentTimeMillis());
+            handler.removeCallbacks(deadlineCheck);
+            if (before != policy.getState()) {
+                Log.i(TAG, "✅ Reconexión completada (" + policy.getReason() + ")");
+                report(before);
+            }
+        });
+    }
+
+    /** Estado actual para getReconnectStatus (lectura segura desde cualquier hilo) */
+    public HashMap<String, Object> snapshot() {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("state", policy.getState().name());
+        data.put("reason", policy.getReason());
+        data.put("deadline", policy.getDeadline());
+        data.put("cooldownUntil", policy.getCooldownUntil());
+        data.put("consecutiveFailures", policy.getConsecutiveFailures());
+        data.put("requests", policy.getRequests());
+        data.put("coalesced", policy.getCoalesced());
+        data.put("rebinds", policy.getRebinds());
+        data.put("toggles", policy.getToggles());
+        data.put("recovered", policy.getRecovered());
+        return data;
+    }
+
+    private void execute(ReconnectPolicy.Step step) {
+        if (step == ReconnectPolicy.Step.REBIND && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            try {
+                Log.i(TAG, "🔄 requestRebind (" + policy.getReason() + ")");
+                NotificationListenerService.requestRebind(component);
+            } catch (Exception e) {
+                Log.w(TAG, "requestRebind falló, se escala al toggle: " + e.getMessage());
+                step = policy.onRebindFailed(System.currentTimeMillis());
+            }
+        }
+        if (step == ReconnectPolicy.Step.TOGGLE) {
+            toggleComponent();
+        }
+        scheduleDeadline();
+    }
+
+    private void toggleComponent() {
+        Log.i(TAG, "🔄 Toggle del componente (" + policy.getReason() + ")");
+        PackageManager pm = context.getPackageManager();
+        try {
+            pm.setComponentEnabledSetting(component, PackageManager.COMPONENT_ENABLED_STATE_DISABLED,
+                    PackageManager.DONT_KILL_APP);
+        } catch (Exception e) {
+            Log.e(TAG, "❌ No se pudo deshabilitar el componente: " + e.getMessage());
+        }
+        // Habilitar siempre, aunque haya fallado lo anterior: nunca dejar el listener deshabilitado
+        handler.postDelayed(() -> {
+            try {
+                pm.setComponentEnabledSetting(component, PackageManager.COMPONENT_ENABLED_STATE_ENABLED,
+                        PackageManager.DONT_KILL_APP);
+            } catch (Exception e) {
+                Log.e(TAG, "❌ No se pudo habilitar el componente: " + e.getMessage());
+            }
+        }, TOGGLE_GAP_MS);
+    }
+
+    private void scheduleDeadline() {
+        handler.removeCallbacks(deadlineCheck);
+        long deadline = policy.getDeadline();
+        if (deadline > 0) {
+            handler.postDelayed(deadlineCheck, Math.max(0, deadline - System.currentTimeMillis()));
+        }
+    }
+
+    private void checkDeadline() {
+        ReconnectPolicy.State before = policy.getState();
+        ReconnectPolicy.Step step = policy.onDeadline(System.currentTimeMillis(), NotificationListener.isConnected);
+        if (step != ReconnectPolicy.Step.NONE) {
+            Log.w(TAG, "⚠️ requestRebind no reconectó a tiempo, se escala");
+            execute(step);
+        } else if (policy.getState() == ReconnectPolicy.State.COOLDOWN) {
+            Log.e(TAG, "❌ La reconexión no funcionó; próximo intento permitido en "
+                    + (policy.getCooldownUntil() - System.currentTimeMillis()) / 1000 + " s");
+        } else {
+            // Aún no venció (p.ej. se reprogramó): volver a esperar
+            scheduleDeadline();
+        }
+        report(before);
+    }
+
+    private void report(ReconnectPolicy.State before) {
+        if (before == policy.getState()) {
+            return;
+        }
+        HashMap<String, Object> status = snapshot();
+        status.put("previous", before.name());
+        NotificationListener.deliverToFlutter(context, NotificationEvent.status(STATUS_TYPE, status));
+    }
+}
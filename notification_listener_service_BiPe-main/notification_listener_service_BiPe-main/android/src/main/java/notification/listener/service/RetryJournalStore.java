@@ -0,0 +1,106 @@
+package notification.listener.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import notification.listener.service.core.PaymentStore;
+import notification.listener.service.core.RetryJournal;
+
+/**
+ * Punto de acceso único a la cola de reintentos nativa ({@link RetryJournal}).
+ * Lo usan NotificationListener y BipeHealthWorker; la primera vez migra la cola antigua
+ * guardada como JSON en "flutter.native_retry_queue".
+ */
+public final class RetryJournalStore {
+
+    private static final String TAG = "RetryJournalStore";
+    private static final String JOURNAL_DIR = "bipe_retry_journal";
+    static final String KEY_LEGACY_QUEUE = "flutter.native_retry_queue";
+    // Payloads de la cola antigua ya copiados al diario (solo mientras dura la migración)
+    static final String KEY_LEGACY_MIGRATED = "flutter.native_retry_queue_migrated";
+
+    private static volatile RetryJournal journal;
+
+    private RetryJournalStore() {
+    }
+
+    public static RetryJournal get(Context context) throws IOException {
+        RetryJournal j = journal;
+        if (j == null) {
+            j = init(context.getApplicationContext());
+        }
+        return j;
+    }
+
+    private static synchronized RetryJournal init(Context context) throws IOException {
+        if (journal != null) {
+            return journal;
+        }
+        RetryJournal j = RetryJournal.open(new File(context.getFilesDir(), JOURNAL_DIR));
+        migrateLegacyQueue(context, j);
+        journal = j;
+        return j;
+    }
+
+    /**
+     * Copia la cola antigua al diario sin duplicar nada si se corta a mitad: tras cada append se
+     * guarda (commit síncrono) cuántos payloads ya se copiaron, y la cola vieja se borra recién al
+     * final. Si el proceso murió entre un append y su marca, ese payload ya está en el diario y
+     * no se vuelve a copiar.
+     */
+    private static void migrateLegacyQueue(Context context, RetryJournal j) {
+        SharedPreferences prefs = context.getSharedPreferences(BipeRuleStore.PREFS_NAME, Context.MODE_PRIVATE);
+        String legacy = prefs.getString(KEY_LEGACY_QUEUE, null);
+        if (legacy == null) {
+            return;
+        }
+        try {
+            JSONArray arr = new JSONArray(legacy);
+            int start = prefs.getInt(KEY_LEGACY_MIGRATED, 0);
+            int migrated = 0;
+            for (int i = start; i < arr.length(); i++) {
+                JSONObject payload = arr.optJSONObject(i);
+                if (payload != null && !(i == start && contains(j, payload.toString()))) {
+                    j.append(payload.toString());
+                    migrated++;
+                }
+                if (!prefs.edit().putInt(KEY_LEGACY_MIGRATED, i + 1).commit()) {
+                    throw new IOException("No se pudo guardar el avance de la migración");
+                }
+            }
+            // Recién con todo en el diario se borra la cola vieja (y con ella la marca)
+            if (!prefs.edit().remove(KEY_LEGACY_QUEUE).remove(KEY_LEGACY_MIGRATED).commit()) {
+                throw new IOException("No se pudo borrar la cola antigua");
+            }
+            Log.i(TAG, "📦 Cola antigua migrada al diario: " + migrated + " payloads");
+        } catch (Exception e) {
+            // Se retoma en el próximo inicio desde la última marca guardada
+            Log.e(TAG, "Error migrando cola nativa: " + e.getMessage());
+        }
+    }
+
+    /** true si el payload ya está pendiente en el diario (solo durante la migración, nadie más lo usa) */
+    private static boolean contains(RetryJournal j, String payload) {
+        List<PaymentStore.Entry> entries = j.claim(Integer.MAX_VALUE);
+        try {
+            for (PaymentStore.Entry entry : entries) {
+                if (payload.equals(entry.getPayload())) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            for (PaymentStore.Entry entry : entries) {
+                j.release(entry.getSeq());
+            }
+        }
+    }
+}
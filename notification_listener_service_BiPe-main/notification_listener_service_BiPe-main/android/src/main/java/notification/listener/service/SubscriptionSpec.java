@@ -0,0 +1,143 @@
+package notification.listener.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Qué quiere recibir Flutter por el EventChannel, enviado como argumento de listen().
+ *
+ * Ejemplo de argumentos: {"packages": ["com.bcp.innovacxion.yapeapp"],
+ * "fields": ["appIcon"], "maxImageSize": 128}
+ *
+ * - packages: solo notificaciones de estos paquetes (null o vacío = todos).
+ * - fields: campos pesados a incluir: "appIcon", "largeIcon", "extrasPicture".
+ *   Sin "fields" se envían todos (comportamiento anterior). Título y contenido siempre van.
+ * - maxImageSize: lado máximo en px de largeIcon y extrasPicture.
+ *
+ * Lo que no se pide no se decodifica, ni se escala, ni se comprime.
+ */
+public final class SubscriptionSpec {
+
+    public static final String FIELD_APP_ICON = "appIcon";
+    public static final String FIELD_LARGE_ICON = "largeIcon";
+    public static final String FIELD_EXTRAS_PICTURE = "extrasPicture";
+
+    static final int DEFAULT_MAX_IMAGE_SIZE = 300;
+
+    /** Suscripción sin argumentos: todos los paquetes y todos los campos */
+    public static final SubscriptionSpec ALL = new SubscriptionSpec(null, true, true, true, DEFAULT_MAX_IMAGE_SIZE);
+
+    private final Set<String> packages;
+    private final boolean appIcon;
+    private final boolean largeIcon;
+    private final boolean extrasPicture;
+    private final int maxImageSize;
+
+    private SubscriptionSpec(Set<String> packages, boolean appIcon, boolean largeIcon, boolean extrasPicture,
+                             int maxImageSize) {
+        this.packages = packages;
+        this.appIcon = appIcon;
+        this.largeIcon = largeIcon;
+        this.extrasPicture = extrasPicture;
+        this.maxImageSize = maxImageSize;
+    }
+
+    /** Interpreta los argumentos de onListen; cualquier cosa que no sea un Map equivale a {@link #ALL} */
+    public static SubscriptionSpec fromArguments(Object arguments) {
+        if (!(arguments instanceof Map)) {
+            return ALL;
+        }
+        Map<?, ?> map = (Map<?, ?>) arguments;
+
+        Set<String> packages = null;
+        Object pkgs = map.get("packages");
+        if (pkgs instanceof Collection && !((Collection<?>) pkgs).isEmpty()) {
+            packages = new HashSet<>();
+            for (Object pkg : (Collection<?>) pkgs) {
+                if (pkg != null) {
+                    packages.add(pkg.toString());
+                }
+            }
+            packages = Collections.unmodifiableSet(packages);
+        }
+
+        boolean appIcon = true;
+        boolean largeIcon = true;
+        boolean extrasPicture = true;
+        Object fields = map.get("fields");
+        if (fields instanceof Collection) {
+            Collection<?> wanted = (Collection<?>) fields;
+            appIcon = wanted.contains(FIELD_APP_ICON);
+            largeIcon = wanted.contains(FIELD_LARGE_ICON);
+            extrasPicture = wanted.contains(FIELD_EXTRAS_PICTURE);
+        }
+
+        int maxImageSize = DEFAULT_MAX_IMAGE_SIZE;
+        Object size = map.get("maxImageSize");
+        if (size instanceof Number && ((Number) size).intValue() > 0) {
+            maxImageSize = ((Number) size).intValue();
+        }
+        return new SubscriptionSpec(packages, appIcon, largeIcon, extrasPicture, maxImageSize);
+    }
+
+    /**
+     * Inverso de {@link #fromArguments(Object)}. Es un HashMap serializable, así puede viajar
+     * como extra de un Intent cuando el servicio corre en otro proceso.
+     */
+    public HashMap<String, Object> toArguments() {
+        HashMap<String, Object> map = new HashMap<>();
+        if (packages != null) {
+            map.put("packages", new ArrayList<>(packages));
+        }
+        ArrayList<String> fields = new ArrayList<>();
+        if (appIcon) {
+            fields.add(FIELD_APP_ICON);
+        }
+        if (largeIcon) {
+            fields.add(FIELD_LARGE_ICON);
+        }
+        if (extrasPicture) {
+            fields.add(FIELD_EXTRAS_PICTURE);
+        }
+        map.put("fields", fields);
+        map.put("maxImageSize", maxImageSize);
+        return map;
+    }
+
+    /** Paquetes pedidos, o null si son todos */
+    public Set<String> getPackages() {
+        return packages;
+    }
+
+    public boolean wantsPackage(String packageName) {
+        return packages == null || packages.contains(packageName);
+    }
+
+    public boolean wantsAppIcon() {
+        return appIcon;
+    }
+
+    public boolean wantsLargeIcon() {
+        return largeIcon;
+    }
+
+    public boolean wantsExtrasPicture() {
+        return extrasPicture;
+    }
+
+    public int getMaxImageSize() {
+        return maxImageSize;
+    }
+
+    @Override
+    public String toString() {
+        return "SubscriptionSpec{packages=" + (packages == null ? "*" : packages)
+                + ", appIcon=" + appIcon + ", largeIcon=" + largeIcon
+                + ", extrasPicture=" + extrasPicture + ", maxImageSize=" + maxImageSize + "}";
+    }
+}
@@ -1,7 +1,113 @@
 package notification.listener.service.models;
 
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-abstract public class ActionCache {
-    public static HashMap<Integer, Action> cachedNotifications = new HashMap<>();
+/**
+ * Acciones de respuesta rápida de las notificaciones mostradas, para {@code sendReply}.
+ *
+ * - Clave: StatusBarNotification.getKey() (el id solo no es único entre apps).
+ * - Acotada por cantidad (LRU) y por antigüedad; se borra la entrada al quitarse la notificación.
+ * - Segura entre hilos: escriben los carriles del listener y lee el hilo de la plataforma.
+ */
+public final class ActionCache {
+
+    static final int MAX_ENTRIES = 100;
+    static final long MAX_AGE_MS = 30 * 60 * 1000L;
+
+    private static final class Entry {
+        final Action action;
+        final int id;
+        final long storedAt;
+
+        Entry(Action action, int id, long storedAt) {
+            this.action = action;
+            this.id = id;
+            this.storedAt = storedAt;
+        }
+    }
+
+    // Orden de acceso: el primero es el menos usado
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long hits = 0;
+    private static long misses = 0;
+    private static long evictions = 0;
+
+    private ActionCache() {
+    }
+
+    public static synchronized void put(String key, int id, Action action) {
+        if (key == null || action == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.put(key, new Entry(action, id, now));
+        // Desalojar por cantidad y, de paso, las más viejas que ya vencieron
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry eldest = it.next();
+            if (entries.size() <= MAX_ENTRIES && now - eldest.storedAt <= MAX_AGE_MS) {
+                break;
+            }
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /** Acción de la notificación, o null si no está o ya venció */
+    public static synchronized Action get(String key) {
+        Entry entry = key != null ? entries.get(key) : null;
+        return resolve(key, entry);
+    }
+
+    /**
+     * Búsqueda por id para clientes viejos que no mandan la clave.
+     * Recorre la caché (acotada); si hay varias, la más reciente.
+     */
+    public static synchronized Action findById(int id) {
+        String found = null;
+        Entry match = null;
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (e.getValue().id == id && (match == null || e.getValue().storedAt >= match.storedAt)) {
+                found = e.getKey();
+                match = e.getValue();
+            }
+        }
+        // get() para que cuente en las estadísticas y actualice el orden de acceso
+        return found != null ? get(found) : resolve(null, null);
+    }
+
+    /** La notificación se quitó: su acción ya no sirve */
+    public static synchronized void remove(String key) {
+        if (key != null && entries.remove(key) != null) {
+            evictions++;
+        }
+    }
+
+    public static synchronized HashMap<String, Object> getStats() {
+        HashMap<String, Object> stats = new HashMap<>();
+        stats.put("size", entries.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+    private static Action resolve(String key, Entry entry) {
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() - entry.storedAt > MAX_AGE_MS) {
+            entries.remove(key);
+            evictions++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.action;
+    }
 }
@@ -0,0 +1,304 @@
+package notification.listener.service.models;
+
+import android.content.Intent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import notification.listener.service.NotificationConstants;
+
+/**
+ * Evento para Flutter ya tipado: una notificación publicada/quitada, un cambio de conexión o un
+ * cambio de estado interno (p.ej. la reconexión, ver {@link #status(String, HashMap)}).
+ *
+ * En el mismo proceso viaja tal cual hasta el EventSink (sin Intent ni binder). Solo cuando
+ * hay que cruzar procesos se convierte con {@link #toIntent()}, que aplica los recortes de
+ * tamaño necesarios para no provocar TransactionTooLargeException.
+ */
+public final class NotificationEvent {
+
+    // Límites solo para el camino por broadcast (binder)
+    private static final int INTENT_MAX_TITLE = 100;
+    private static final int INTENT_MAX_CONTENT = 500;
+    private static final int INTENT_MAX_PICTURE_BYTES = 200000;
+
+    private final boolean connectionEvent;
+    private final int id;
+    // StatusBarNotification.getKey(): identifica la notificación para sendReply
+    private final String key;
+    private final String packageName;
+    private final String title;
+    private final String content;
+    private final byte[] appIcon;
+    private final byte[] largeIcon;
+    private final byte[] extrasPicture;
+    private final boolean haveExtraPicture;
+    private final boolean removed;
+    private final boolean canReply;
+    private final boolean connected;
+    private final long timestamp;
+    // true si sale del buffer de repetición (no es un evento en vivo)
+    private final boolean replayed;
+    // Decisión del pipeline nativo (null si no se evaluó, p.ej. al quitarse la notificación)
+    private final PaymentResult payment;
+    // Eventos de estado: tipo ("reconnect") y sus datos; null en los demás eventos
+    private final String statusType;
+    private final HashMap<String, Object> status;
+
+    private NotificationEvent(boolean connectionEvent, int id, String key, String packageName, String title, String content,
+                              byte[] appIcon, byte[] largeIcon, byte[] extrasPicture, boolean haveExtraPicture,
+                              boolean removed, boolean canReply, boolean connected, long timestamp,
+                              boolean replayed, PaymentResult payment, String statusType,
+                              HashMap<String, Object> status) {
+        this.connectionEvent = connectionEvent;
+        this.id = id;
+        this.key = key;
+        this.packageName = packageName;
+        this.title = title;
+        this.content = content;
+        this.appIcon = appIcon;
+        this.largeIcon = largeIcon;
+        this.extrasPicture = extrasPicture;
+        this.haveExtraPicture = haveExtraPicture;
+        this.removed = removed;
+        this.canReply = canReply;
+        this.connected = connected;
+        this.timestamp = timestamp;
+        this.replayed = replayed;
+        this.payment = payment;
+        this.statusType = statusType;
+        this.status = status;
+    }
+
+    public static NotificationEvent notification(int id, String key, String packageName, String title, String content,
+                                                 byte[] appIcon, byte[] largeIcon, byte[] extrasPicture,
+                                                 boolean haveExtraPicture, boolean removed, boolean canReply) {
+        return new NotificationEvent(false, id, key, packageName, title, content, appIcon, largeIcon, extrasPicture,
+                haveExtraPicture, removed, canReply, false, 0, false, null, null, null);
+    }
+
+    public static NotificationEvent connection(boolean connected, long timestamp) {
+        return new NotificationEvent(true, -1, null, null, null, null, null, null, null,
+                false, false, false, connected, timestamp, false, null, null, null);
+    }
+
+    /**
+     * Cambio de estado interno para Flutter (no es una notificación ni se guarda para repetir).
+     *
+     * @param type p.ej. "reconnect"
+     * @param status datos del estado; solo tipos que acepta el canal y Serializable (String, números, bool)
+     */
+    public static NotificationEvent status(String type, HashMap<String, Object> status) {
+        return new NotificationEvent(false, -1, null, null, null, null, null, null, null,
+                false, false, false, false, System.currentTimeMillis(), false, null, type, status);
+    }
+
+    /** Copia marcada como repetida (sale del buffer, no es en vivo) */
+    public NotificationEvent asReplay() {
+        return new NotificationEvent(connectionEvent, id, key, packageName, title, content, appIcon, largeIcon,
+                extrasPicture, haveExtraPicture, removed, canReply, connected, timestamp, true, payment,
+                statusType, status);
+    }
+
+    /** Copia con el resultado del pipeline nativo adjunto */
+    public NotificationEvent withPayment(PaymentResult payment) {
+        return new NotificationEvent(connectionEvent, id, key, packageName, title, content, appIcon, largeIcon,
+                extrasPicture, haveExtraPicture, removed, canReply, connected, timestamp, replayed, payment,
+                statusType, status);
+    }
+
+    /** Reconstruye el evento recibido por broadcast (camino entre procesos) */
+    @SuppressWarnings("unchecked")
+    public static NotificationEvent fromIntent(Intent intent) {
+        String statusType = intent.getStringExtra("status_event");
+        if (statusType != null) {
+            return status(statusType, (HashMap<String, Object>) intent.getSerializableExtra("status"));
+        }
+        if (intent.getBooleanExtra("connection_event", false)) {
+            return connection(intent.getBooleanExtra("is_connected", false),
+                    intent.getLongExtra("timestamp", 0));
+        }
+        NotificationEvent event = notification(
+                intent.getIntExtra(NotificationConstants.ID, -1),
+                intent.getStringExtra(NotificationConstants.KEY),
+                intent.getStringExtra(NotificationConstants.PACKAGE_NAME),
+                intent.getStringExtra(NotificationConstants.NOTIFICATION_TITLE),
+                intent.getStringExtra(NotificationConstants.NOTIFICATION_CONTENT),
+                intent.getByteArrayExtra(NotificationConstants.NOTIFICATIONS_ICON),
+                intent.getByteArrayExtra(NotificationConstants.NOTIFICATIONS_LARGE_ICON),
+                intent.getByteArrayExtra(NotificationConstants.EXTRAS_PICTURE),
+                intent.getBooleanExtra(NotificationConstants.HAVE_EXTRA_PICTURE, false),
+                intent.getBooleanExtra(NotificationConstants.IS_REMOVED, false),
+                intent.getBooleanExtra(NotificationConstants.CAN_REPLY, false))
+                .withPayment(PaymentResult.fromExtras(
+                        intent.getStringExtra(NotificationConstants.PAYMENT_STATUS),
+                        intent.getIntExtra(NotificationConstants.PAYMENT_ID_BILLETERA, -1),
+                        intent.getStringExtra(NotificationConstants.PAYMENT_RULE),
+                        intent.getStringExtra(NotificationConstants.PAYMENT_CLIENTE),
+                        intent.getDoubleExtra(NotificationConstants.PAYMENT_MONTO, 0.0)));
+        return intent.getBooleanExtra("replayed", false) ? event.asReplay() : event;
+    }
+
+    /** Intent para el camino entre procesos, con textos e imagen recortados */
+    public Intent toIntent() {
+        Intent intent = new Intent(NotificationConstants.INTENT);
+        if (connectionEvent) {
+            intent.putExtra("connection_event", true);
+            intent.putExtra("is_connected", connected);
+            intent.putExtra("timestamp", timestamp);
+            return intent;
+        }
+        if (statusType != null) {
+            intent.putExtra("status_event", statusType);
+            intent.putExtra("status", status);
+            return intent;
+        }
+        intent.putExtra("replayed", replayed);
+        intent.putExtra(NotificationConstants.PACKAGE_NAME, packageName);
+        intent.putExtra(NotificationConstants.ID, id);
+        intent.putExtra(NotificationConstants.KEY, key);
+        intent.putExtra(NotificationConstants.CAN_REPLY, canReply);
+        intent.putExtra(NotificationConstants.IS_REMOVED, removed);
+        intent.putExtra(NotificationConstants.NOTIFICATIONS_ICON, appIcon);
+        intent.putExtra(NotificationConstants.NOTIFICATIONS_LARGE_ICON, largeIcon);
+        intent.putExtra(NotificationConstants.NOTIFICATION_TITLE, truncate(title, INTENT_MAX_TITLE));
+        intent.putExtra(NotificationConstants.NOTIFICATION_CONTENT, truncate(content, INTENT_MAX_CONTENT));
+        intent.putExtra(NotificationConstants.HAVE_EXTRA_PICTURE, haveExtraPicture);
+        if (extrasPicture != null && extrasPicture.length < INTENT_MAX_PICTURE_BYTES) {
+            intent.putExtra(NotificationConstants.EXTRAS_PICTURE, extrasPicture);
+        }
+        if (payment != null) {
+            intent.putExtra(NotificationConstants.PAYMENT_STATUS, payment.getStatus().name());
+            if (payment.hasMatch()) {
+                intent.putExtra(NotificationConstants.PAYMENT_ID_BILLETERA, payment.getIdBilletera());
+                intent.putExtra(NotificationConstants.PAYMENT_RULE, payment.getRule());
+                intent.putExtra(NotificationConstants.PAYMENT_CLIENTE, payment.getNombreCliente());
+                intent.putExtra(NotificationConstants.PAYMENT_MONTO, payment.getMonto());
+            }
+        }
+        return intent;
+    }
+
+    /**
+     * Versión compacta para el respaldo en disco del buffer de repetición: solo texto y flags,
+     * sin imágenes (los íconos se pueden volver a pedir, el texto no).
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeBoolean(connectionEvent);
+        out.writeInt(id);
+        writeNullable(out, packageName);
+        writeNullable(out, title);
+        writeNullable(out, content);
+        out.writeBoolean(haveExtraPicture);
+        out.writeBoolean(removed);
+        out.writeBoolean(canReply);
+        out.writeBoolean(connected);
+        out.writeLong(timestamp);
+        out.writeBoolean(payment != null);
+        if (payment != null) {
+            payment.writeTo(out);
+        }
+    }
+
+    public static NotificationEvent readFrom(DataInputStream in) throws IOException {
+        boolean connectionEvent = in.readBoolean();
+        int id = in.readInt();
+        String packageName = readNullable(in);
+        String title = readNullable(in);
+        String content = readNullable(in);
+        boolean haveExtraPicture = in.readBoolean();
+        boolean removed = in.readBoolean();
+        // Se sigue escribiendo por compatibilidad del formato, pero se ignora (ver abajo)
+        in.readBoolean();
+        boolean connected = in.readBoolean();
+        long timestamp = in.readLong();
+        PaymentResult payment = in.readBoolean() ? PaymentResult.readFrom(in) : null;
+        // La clave no se respalda: sin ella sendReply no encuentra la notificación, no ofrecer respuesta
+        return new NotificationEvent(connectionEvent, id, null, packageName, title, content, null, null, null,
+                haveExtraPicture, removed, false, connected, timestamp, false, payment, null, null);
+    }
+
+    /** Mapa para el EventSink (mismas claves que lee ServiceNotificationEvent.fromMap) */
+    public HashMap<String, Object> toMap() {
+        HashMap<String, Object> data = new HashMap<>();
+        if (connectionEvent) {
+            data.put("connection_event", true);
+            data.put("is_connected", connected);
+            data.put("timestamp", timestamp);
+            return data;
+        }
+        if (statusType != null) {
+            data.put("status_event", statusType);
+            data.put("status", status);
+            data.put("timestamp", timestamp);
+            return data;
+        }
+        data.put("id", id);
+        data.put("key", key);
+        data.put("packageName", packageName);
+        data.put("title", title);
+        data.put("content", content);
+        data.put("notificationIcon", appIcon);
+        data.put("notificationExtrasPicture", extrasPicture);
+        data.put("haveExtraPicture", haveExtraPicture);
+        data.put("largeIcon", largeIcon);
+        data.put("hasRemoved", removed);
+        data.put("canReply", canReply);
+        data.put("replayed", replayed);
+        data.put("payment", payment != null ? payment.toMap() : null);
+        return data;
+    }
+
+    public boolean isConnectionEvent() {
+        return connectionEvent;
+    }
+
+    public boolean isStatusEvent() {
+        return statusType != null;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public PaymentResult getPayment() {
+        return payment;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            // writeUTF admite hasta 64 KB; un texto de notificación nunca debería acercarse
+            out.writeUTF(value.length() > 8000 ? value.substring(0, 8000) : value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static String truncate(String text, int max) {
+        if (text == null || text.length() <= max) {
+            return text;
+        }
+        return text.substring(0, max) + "...";
+    }
+}
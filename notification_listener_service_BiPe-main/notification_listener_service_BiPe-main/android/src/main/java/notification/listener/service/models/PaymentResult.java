@@ -0,0 +1,129 @@
+package notification.listener.service.models;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+
+import notification.listener.service.core.PaymentMatch;
+
+/**
+ * Lo que decidió el pipeline nativo sobre una notificación, adjunto al evento para Flutter.
+ *
+ * Flutter solo lo muestra: no vuelve a cargar los bipes ni a aplicar las regex, así la UI y
+ * el envío al API nunca discrepan (mismo parseo de monto, misma regla).
+ */
+public final class PaymentResult {
+
+    public enum Status {
+        /** Pago detectado y encolado para el envío */
+        QUEUED,
+        /** Pago detectado; la cola estaba llena y se guardó directo en el diario */
+        JOURNALED,
+        /** Mismo pago que una versión anterior de la notificación: no se reenvía */
+        DUPLICATE,
+        /** Post repetido idéntico: ya se procesó */
+        SEEN,
+        /** Ninguna regla aplica */
+        NO_MATCH,
+        /** Sin sesión o sin reglas: no se evaluó */
+        SKIPPED
+    }
+
+    private final Status status;
+    // Solo con match (QUEUED, JOURNALED, DUPLICATE)
+    private final int idBilletera;
+    private final String rule;
+    private final String nombreCliente;
+    private final double monto;
+
+    private PaymentResult(Status status, int idBilletera, String rule, String nombreCliente, double monto) {
+        this.status = status;
+        this.idBilletera = idBilletera;
+        this.rule = rule;
+        this.nombreCliente = nombreCliente;
+        this.monto = monto;
+    }
+
+    public static PaymentResult of(Status status) {
+        return new PaymentResult(status, -1, null, null, 0.0);
+    }
+
+    public static PaymentResult matched(Status status, PaymentMatch match) {
+        return new PaymentResult(status, match.getRule().getIdBilletera(), match.getRule().getContain(),
+                match.getNombreCliente(), match.getMonto());
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean hasMatch() {
+        return rule != null;
+    }
+
+    /** Mapa para el EventSink (lo lee NativePaymentResult.fromMap) */
+    public HashMap<String, Object> toMap() {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("status", status.name());
+        if (hasMatch()) {
+            data.put("idBilletera", idBilletera);
+            data.put("rule", rule);
+            data.put("nombreCliente", nombreCliente);
+            data.put("monto", monto);
+        }
+        return data;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(status.name());
+        out.writeBoolean(hasMatch());
+        if (hasMatch()) {
+            out.writeInt(idBilletera);
+            out.writeUTF(rule);
+            out.writeUTF(nombreCliente != null ? nombreCliente : "");
+            out.writeDouble(monto);
+        }
+    }
+
+    public static PaymentResult readFrom(DataInputStream in) throws IOException {
+        Status status = parseStatus(in.readUTF());
+        if (!in.readBoolean()) {
+            return of(status);
+        }
+        return new PaymentResult(status, in.readInt(), in.readUTF(), in.readUTF(), in.readDouble());
+    }
+
+    /** Para el camino por broadcast: los campos viajan como extras sueltos */
+    public static PaymentResult fromExtras(String status, int idBilletera, String rule, String nombreCliente,
+                                           double monto) {
+        if (status == null) {
+            return null;
+        }
+        return new PaymentResult(parseStatus(status), idBilletera, rule, nombreCliente, monto);
+    }
+
+    public int getIdBilletera() {
+        return idBilletera;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    public double getMonto() {
+        return monto;
+    }
+
+    private static Status parseStatus(String name) {
+        try {
+            return Status.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return Status.SKIPPED;
+        }
+    }
+}
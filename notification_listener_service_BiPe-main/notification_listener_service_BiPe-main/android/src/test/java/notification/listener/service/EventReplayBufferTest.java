@@ -0,0 +1,120 @@
+package notification.listener.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import notification.listener.service.core.BipeRuleSet;
+import notification.listener.service.core.PaymentMatch;
+import notification.listener.service.models.NotificationEvent;
+import notification.listener.service.models.PaymentResult;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class EventReplayBufferTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static NotificationEvent event(int id) {
+        return NotificationEvent.notification(id, null, "com.bcp.innovacxion.yapeapp", "Yape",
+                "Pago " + id, null, null, null, false, false, false);
+    }
+
+    @Test
+    public void dropOldestKeepsNewestInOrder() {
+        EventReplayBuffer buffer = new EventReplayBuffer(new File(folder.getRoot(), "spill.bin"));
+        buffer.configure(3, EventReplayBuffer.DropPolicy.DROP_OLDEST, false);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(event(i));
+        }
+        List<NotificationEvent> events = buffer.drain();
+        assertEquals(3, events.size());
+        assertEquals(3, events.get(0).getId());
+        assertEquals(5, events.get(2).getId());
+        assertEquals(2L, buffer.getStats().get("dropped"));
+        assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    public void dropNewestKeepsFirst() {
+        EventReplayBuffer buffer = new EventReplayBuffer(new File(folder.getRoot(), "spill.bin"));
+        buffer.configure(2, EventReplayBuffer.DropPolicy.DROP_NEWEST, false);
+        for (int i = 1; i <= 4; i++) {
+            buffer.add(event(i));
+        }
+        List<NotificationEvent> events = buffer.drain();
+        assertEquals(1, events.get(0).getId());
+        assertEquals(2, events.get(1).getId());
+        assertEquals(2L, buffer.getStats().get("dropped"));
+    }
+
+    @Test
+    public void spilledEventsReplayFirstAndSurvivePersist() {
+        File spill = new File(folder.getRoot(), "spill.bin");
+        EventReplayBuffer buffer = new EventReplayBuffer(spill);
+        buffer.configure(2, EventReplayBuffer.DropPolicy.DROP_OLDEST, true);
+        for (int i = 1; i <= 4; i++) {
+            buffer.add(event(i));
+        }
+        buffer.persist();
+
+        // Nueva instancia = proceso reiniciado
+        List<NotificationEvent> events = new EventReplayBuffer(spill).drain();
+        assertEquals(4, events.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i + 1, events.get(i).getId());
+            assertEquals("Pago " + (i + 1), events.get(i).getContent());
+        }
+        assertEquals(0L, buffer.getStats().get("dropped"));
+    }
+
+    @Test
+    public void spilledEventsDoNotOfferReply() {
+        File spill = new File(folder.getRoot(), "spill.bin");
+        EventReplayBuffer buffer = new EventReplayBuffer(spill);
+        buffer.configure(1, EventReplayBuffer.DropPolicy.DROP_OLDEST, true);
+        buffer.add(NotificationEvent.notification(1, "0|com.whatsapp|1|null|10", "com.whatsapp", "Ana", "Hola",
+                null, null, null, false, false, true));
+        buffer.add(event(2));
+        buffer.persist();
+
+        NotificationEvent restored = new EventReplayBuffer(spill).drain().get(0);
+        assertEquals(1, restored.getId());
+        assertNull(restored.toMap().get("key"));
+        assertEquals(false, restored.toMap().get("canReply"));
+    }
+
+    @Test
+    public void spilledEventsKeepNativePaymentResult() throws Exception {
+        String yape = "com.bcp.innovacxion.yapeapp";
+        BipeRuleSet rules = BipeRuleSet.compile("[{\"contain\":\"te envió un pago\",\"packageName\":\"" + yape
+                + "\",\"regex\":\"Yape! (.+) te envió un pago por S/ ([\\\\d,.]+)\",\"hasMonto\":true,"
+                + "\"idBilletera\":3}]");
+        String text = "Yape! Ana Pérez te envió un pago por S/ 1,250.50";
+        PaymentMatch match = PaymentMatch.find(rules, yape, text);
+
+        File spill = new File(folder.getRoot(), "spill.bin");
+        EventReplayBuffer buffer = new EventReplayBuffer(spill);
+        buffer.configure(1, EventReplayBuffer.DropPolicy.DROP_OLDEST, true);
+        buffer.add(NotificationEvent.notification(1, null, yape, "Yape", text, null, null, null, false, false, false)
+                .withPayment(PaymentResult.matched(PaymentResult.Status.QUEUED, match)));
+        buffer.add(event(2).withPayment(PaymentResult.of(PaymentResult.Status.NO_MATCH)));
+        buffer.persist();
+
+        List<NotificationEvent> events = new EventReplayBuffer(spill).drain();
+        PaymentResult payment = events.get(0).getPayment();
+        assertEquals(PaymentResult.Status.QUEUED, payment.getStatus());
+        assertEquals(3, payment.getIdBilletera());
+        assertEquals("te envió un pago", payment.getRule());
+        assertEquals("Ana Pérez", payment.getNombreCliente());
+        assertEquals(1250.50, payment.getMonto(), 0.001);
+        assertEquals(PaymentResult.Status.NO_MATCH, events.get(1).getPayment().getStatus());
+        assertNull(events.get(1).getPayment().getRule());
+    }
+}
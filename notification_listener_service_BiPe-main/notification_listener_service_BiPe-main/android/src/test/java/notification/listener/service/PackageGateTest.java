@@ -0,0 +1,51 @@
+package notification.listener.service;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import notification.listener.service.core.BipeRuleSet;
+
+public class PackageGateTest {
+
+    private static final String YAPE = "com.bcp.innovacxion.yapeapp";
+
+    private static BipeRuleSet rules(String pkg) throws Exception {
+        return BipeRuleSet.compile("[{\"contain\":\"Yape\",\"packageName\":\"" + pkg
+                + "\",\"regex\":\"S/ (\\\\d+)\",\"hasMonto\":true,\"idBilletera\":1}]");
+    }
+
+    private static SubscriptionSpec spec(String... packages) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("packages", Arrays.asList(packages));
+        return SubscriptionSpec.fromArguments(args);
+    }
+
+    @Test
+    public void rulePackagesPassWithoutSubscription() throws Exception {
+        BipeRuleSet rules = rules(YAPE);
+        assertTrue(PackageGate.isInteresting(YAPE, rules, null));
+        assertFalse(PackageGate.isInteresting("com.whatsapp", rules, null));
+    }
+
+    @Test
+    public void subscriptionAddsItsPackages() throws Exception {
+        BipeRuleSet rules = rules(YAPE);
+        SubscriptionSpec spec = spec("com.whatsapp");
+        assertTrue(PackageGate.isInteresting("com.whatsapp", rules, spec));
+        assertTrue(PackageGate.isInteresting(YAPE, rules, spec));
+        assertFalse(PackageGate.isInteresting("com.spotify.music", rules, spec));
+        assertTrue(PackageGate.isInteresting("com.spotify.music", rules, SubscriptionSpec.ALL));
+    }
+
+    @Test
+    public void wildcardRulesLetEverythingThrough() throws Exception {
+        assertTrue(PackageGate.isInteresting("com.spotify.music", rules("-1"), null));
+        assertFalse(PackageGate.isInteresting("com.spotify.music", BipeRuleSet.EMPTY, null));
+    }
+}
@@ -0,0 +1,170 @@
+package notification.listener.service.core.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Compara un resultado de JMH (JSON) contra el baseline versionado y escribe un reporte Markdown.
+ *
+ * Uso: BenchmarkComparison baseline.json results.json reporte.md [umbral%]
+ *
+ * Sale con código 1 si algún benchmark empeoró más que el umbral (20% por defecto) y además
+ * los intervalos de confianza (score ± scoreError) del baseline y de la corrida no se solapan:
+ * un cambio dentro del error de medición es ruido, no regresión. Los benchmarks nuevos o que ya
+ * no existen se listan pero no cuentan como regresión.
+ */
+public final class BenchmarkComparison {
+
+    static final double DEFAULT_THRESHOLD_PERCENT = 20.0;
+
+    /** Score de un benchmark con sus parámetros */
+    static final class Result {
+        final String mode;
+        final double score;
+        final double error;
+        final String unit;
+
+        Result(String mode, double score, double error, String unit) {
+            this.mode = mode;
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+
+        /** En modo throughput más es mejor; en los de tiempo, menos */
+        boolean higherIsBetter() {
+            return "thrpt".equals(mode);
+        }
+
+        /** true si los intervalos score ± error de ambos resultados se tocan */
+        boolean overlaps(Result other) {
+            return score - error <= other.score + other.error && other.score - other.error <= score + error;
+        }
+    }
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Uso: BenchmarkComparison baseline.json results.json reporte.md [umbral%]");
+            System.exit(2);
+        }
+        double threshold = args.length > 3 ? Double.parseDouble(args[3]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+        List<String> regressions = new ArrayList<>();
+        String report = compare(baseline, current, threshold, regressions);
+
+        File out = new File(args[2]);
+        if (out.getParentFile() != null) {
+            out.getParentFile().mkdirs();
+        }
+        PrintWriter writer = new PrintWriter(out, "UTF-8");
+        try {
+            writer.print(report);
+        } finally {
+            writer.close();
+        }
+        // UTF-8 explícito: la consola de CI no siempre lo es por defecto
+        PrintStream console = new PrintStream(System.out, true, "UTF-8");
+        console.print(report);
+        if (!regressions.isEmpty()) {
+            System.err.println(regressions.size() + " benchmark(s) empeoraron más de " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    static Map<String, Result> read(File file) throws IOException {
+        JSONArray runs = new JSONArray(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        Map<String, Result> results = new TreeMap<>();
+        for (int i = 0; i < runs.length(); i++) {
+            JSONObject run = runs.getJSONObject(i);
+            JSONObject metric = run.getJSONObject("primaryMetric");
+            double error = metric.optDouble("scoreError", 0);
+            results.put(key(run), new Result(run.getString("mode"), metric.getDouble("score"),
+                    Double.isNaN(error) ? 0 : error, metric.getString("scoreUnit")));
+        }
+        return results;
+    }
+
+    /** "Clase.metodo ruleCount=50" (nombre corto, parámetros ordenados) */
+    static String key(JSONObject run) {
+        String name = run.getString("benchmark");
+        int cut = name.lastIndexOf('.', name.lastIndexOf('.') - 1);
+        StringBuilder key = new StringBuilder(name.substring(cut + 1));
+        JSONObject params = run.optJSONObject("params");
+        if (params != null) {
+            Map<String, Object> sorted = new TreeMap<>();
+            Iterator<String> it = params.keys();
+            while (it.hasNext()) {
+                String p = it.next();
+                sorted.put(p, params.get(p));
+            }
+            for (Map.Entry<String, Object> e : sorted.entrySet()) {
+                key.append(' ').append(e.getKey()).append('=').append(e.getValue());
+            }
+        }
+        return key.toString();
+    }
+
+    static String compare(Map<String, Result> baseline, Map<String, Result> current, double threshold,
+                          List<String> regressions) {
+        StringBuilder md = new StringBuilder();
+        md.append("| Benchmark | Baseline | Actual | Cambio | |\n");
+        md.append("|---|---:|---:|---:|---|\n");
+        for (Map.Entry<String, Result> e : current.entrySet()) {
+            Result now = e.getValue();
+            Result before = baseline.get(e.getKey());
+            if (before == null) {
+                md.append(row(e.getKey(), "—", format(now), "—", "nuevo"));
+                continue;
+            }
+            double change = (now.score - before.score) / before.score * 100.0;
+            double worse = now.higherIsBetter() ? -change : change;
+            String verdict;
+            if (Math.abs(worse) > threshold && now.overlaps(before)) {
+                // Más que el umbral, pero dentro del error de alguna de las dos mediciones
+                verdict = "≈ ruido";
+            } else if (worse > threshold) {
+                verdict = "❌ regresión";
+                regressions.add(e.getKey());
+            } else if (worse < -threshold) {
+                verdict = "✅ mejora";
+            } else {
+                verdict = "";
+            }
+            md.append(row(e.getKey(), format(before), format(now),
+                    String.format(Locale.US, "%+.1f%%", change), verdict));
+        }
+        for (String name : baseline.keySet()) {
+            if (!current.containsKey(name)) {
+                md.append(row(name, format(baseline.get(name)), "—", "—", "ya no existe"));
+            }
+        }
+        md.append('\n').append(String.format(Locale.US,
+                "Umbral: %.0f%% con intervalos de confianza sin solapar. %d regresión(es).%n", threshold, regressions.size()));
+        return md.toString();
+    }
+
+    private static String row(String name, String before, String now, String change, String verdict) {
+        return "| " + name + " | " + before + " | " + now + " | " + change + " | " + verdict + " |\n";
+    }
+
+    private static String format(Result r) {
+        return String.format(Locale.US, "%.3f ± %.3f %s", r.score, r.error, r.unit);
+    }
+}
@@ -0,0 +1,59 @@
+package notification.listener.service.core.benchmarks;
+
+import java.util.Random;
+
+import notification.listener.service.core.BipeRuleSet;
+
+/**
+ * Textos y reglas realistas para los benchmarks: las reglas reales de Yape, Plin y BCP más
+ * reglas de relleno (otras billeteras, comodines) hasta llegar a la cantidad pedida.
+ */
+final class BenchmarkData {
+
+    static final String YAPE = "com.bcp.innovacxion.yapeapp";
+    static final String PLIN = "com.interbank.mobilebanking";
+    static final String BCP = "com.bcp.bank.bcp";
+
+    /** Paquete y texto de notificaciones típicas; las últimas no son pagos */
+    static final String[][] NOTIFICATIONS = {
+            {YAPE, "Yape! JUAN CARLOS PEREZ te envió un pago por S/ 25. El cód. de seguridad es: 482"},
+            {YAPE, "Yape! Maria L. Quispe te envió un pago por S/ 1,250.50"},
+            {PLIN, "Recibiste un Plin de ROSA HUAMAN por S/ 40.00"},
+            {BCP, "Recibiste una transferencia de S/ 320.00 de CARLOS RAMOS DIAZ"},
+            {YAPE, "Tu código de verificación Yape es 123456. No lo compartas con nadie."},
+            {"com.whatsapp", "Mamá: ya llegué a la casa, avísame cuando salgas del trabajo"},
+            {BCP, "Se realizó un consumo de S/ 89.90 con tu tarjeta de débito terminada en 4421"},
+    };
+
+    private BenchmarkData() {
+    }
+
+    /** JSON de "flutter.bipes" con las reglas reales y relleno hasta {@code count} reglas */
+    static String rulesJson(int count) {
+        StringBuilder json = new StringBuilder("[");
+        appendRule(json, "te envió un pago", YAPE, "Yape! (.+) te envió un pago por S/ ([\\\\d,.]+)", 1);
+        appendRule(json, "Recibiste un Plin", PLIN, "Recibiste un Plin de (.+) por S/ ([\\\\d,.]+)", 2);
+        appendRule(json, "Recibiste una transferencia", BCP, "transferencia de S/ ([\\\\d,.]+) de (.+)", 3);
+        Random random = new Random(42);
+        String[] packages = {YAPE, PLIN, BCP, "pe.com.scotiabank.blpm.android.client", "pe.bbvacontinental.bbva", "-1"};
+        for (int i = 3; i < count; i++) {
+            String pkg = packages[random.nextInt(packages.length)];
+            appendRule(json, "Abono recibido " + i, pkg, "Abono recibido " + i + " de (.+) por S/ ([\\\\d,.]+)", 10 + i);
+        }
+        return json.append(']').toString();
+    }
+
+    static BipeRuleSet rules(int count) throws Exception {
+        return BipeRuleSet.compile(rulesJson(count));
+    }
+
+    private static void appendRule(StringBuilder json, String contain, String pkg, String regex, int idBilletera) {
+        if (json.length() > 1) {
+            json.append(',');
+        }
+        json.append("{\"contain\":\"").append(contain)
+                .append("\",\"packageName\":\"").append(pkg)
+                .append("\",\"regex\":\"").append(regex)
+                .append("\",\"hasMonto\":true,\"idBilletera\":").append(idBilletera).append('}');
+    }
+}
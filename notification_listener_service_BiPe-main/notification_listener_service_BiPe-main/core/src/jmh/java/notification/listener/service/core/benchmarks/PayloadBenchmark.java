@@ -0,0 +1,55 @@
+package notification.listener.service.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import notification.listener.service.core.PaymentMatch;
+import notification.listener.service.core.PaymentPayload;
+
+/**
+ * Parseo de montos y armado del JSON de /yape. org.json y SimpleDateFormat tardan en
+ * estabilizarse con el JIT: más warmup que el resto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 6, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadBenchmark {
+
+    private static final String[] AMOUNTS = {"25", "1,250.50", "S/ 40.00", "s/ 320.00", "12.5", "abc"};
+
+    private PaymentMatch match;
+    private long now;
+
+    @Setup
+    public void setUp() throws Exception {
+        match = PaymentMatch.find(BenchmarkData.rules(5), BenchmarkData.YAPE, BenchmarkData.NOTIFICATIONS[1][1]);
+        now = System.currentTimeMillis();
+    }
+
+    /** Una operación = los {@link #AMOUNTS} completos */
+    @Benchmark
+    public void parseAmounts(Blackhole bh) {
+        for (String amount : AMOUNTS) {
+            bh.consume(PaymentMatch.parseMonto(amount));
+        }
+    }
+
+    @Benchmark
+    public String buildPayload() throws Exception {
+        return PaymentPayload.build(match, 1001, 2002, 42, BenchmarkData.YAPE, now);
+    }
+}
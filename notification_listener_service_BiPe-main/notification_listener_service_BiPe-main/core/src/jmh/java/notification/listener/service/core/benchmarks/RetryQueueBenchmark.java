@@ -0,0 +1,124 @@
+package notification.listener.service.core.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import notification.listener.service.core.Clock;
+import notification.listener.service.core.PaymentSender;
+import notification.listener.service.core.PaymentStore;
+import notification.listener.service.core.PipelineMetrics;
+import notification.listener.service.core.RetryJournal;
+import notification.listener.service.core.SendPolicy;
+import notification.listener.service.core.Transport;
+
+/**
+ * Diario de reintentos: encolar un backlog completo (fsync por pago) y vaciarlo con
+ * {@link PaymentSender} contra un transporte en memoria que siempre responde 200.
+ * Una operación = el backlog entero, así que se mide con SingleShotTime.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RetryQueueBenchmark {
+
+    private static final String PAYLOAD = "{\"IdUsuarioNegocio\":1001,\"IdNegocio\":2002,"
+            + "\"NombreCliente\":\"JUAN CARLOS PEREZ\",\"Monto\":25.0,\"Estado\":\"ACTIVO\","
+            + "\"FechaHora\":\"2024-01-01T10:00:00.000\",\"IdNotificationApp\":42,\"IdBilletera\":1,"
+            + "\"PackageName\":\"com.bcp.innovacxion.yapeapp\"}";
+
+    /** Siempre 200, sin red: se mide solo el diario y la lógica de envío */
+    private static final Transport OK = new Transport() {
+        @Override
+        public int post(String token, String payload) {
+            return 200;
+        }
+
+        @Override
+        public int[] postBatch(String token, List<String> payloads) {
+            int[] statuses = new int[payloads.size()];
+            Arrays.fill(statuses, 200);
+            return statuses;
+        }
+    };
+
+    @Param({"10", "100", "1000", "10000"})
+    public int backlog;
+
+    private File dir;
+    private RetryJournal journal;
+    private PaymentSender sender;
+
+    @Setup(Level.Trial)
+    public void openJournal() throws IOException {
+        dir = Files.createTempDirectory("bipe-journal-bench").toFile();
+        journal = RetryJournal.open(dir);
+        sender = new PaymentSender(OK, journal, new SendPolicy(), Clock.SYSTEM, new PipelineMetrics());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteJournal() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /** Estado de la medición de drain: el backlog se carga antes de cada invocación */
+    @State(Scope.Benchmark)
+    public static class Filled {
+        @Setup(Level.Invocation)
+        public void fill(RetryQueueBenchmark bench) throws IOException {
+            for (int i = 0; i < bench.backlog; i++) {
+                bench.journal.append(PAYLOAD);
+            }
+        }
+    }
+
+    /** Encolar el backlog; el vaciado para la próxima invocación queda fuera de la medición */
+    @Benchmark
+    public void enqueue() throws IOException {
+        for (int i = 0; i < backlog; i++) {
+            journal.append(PAYLOAD);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void emptyJournal() throws IOException {
+        List<PaymentStore.Entry> entries;
+        while (!(entries = journal.claim(500)).isEmpty()) {
+            for (PaymentStore.Entry entry : entries) {
+                journal.acknowledge(entry.getSeq());
+            }
+        }
+    }
+
+    /** Vaciar el backlog en lotes de 20, como el hilo de subida */
+    @Benchmark
+    public int drain(Filled filled) throws IOException {
+        return sender.drain("token", 20, null);
+    }
+}
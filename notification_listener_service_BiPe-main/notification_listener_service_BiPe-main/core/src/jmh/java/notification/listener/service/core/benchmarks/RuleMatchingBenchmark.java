@@ -0,0 +1,55 @@
+package notification.listener.service.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import notification.listener.service.core.BipeRuleSet;
+import notification.listener.service.core.PaymentMatch;
+
+/**
+ * Matching de reglas sobre textos reales (pagos y ruido), lo que hace tryNativeSend por cada
+ * notificación. Una operación = las {@link BenchmarkData#NOTIFICATIONS} completas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleMatchingBenchmark {
+
+    @Param({"5", "50", "200"})
+    public int ruleCount;
+
+    private BipeRuleSet rules;
+
+    @Setup
+    public void setUp() throws Exception {
+        rules = BenchmarkData.rules(ruleCount);
+    }
+
+    @Benchmark
+    public void matchNotifications(Blackhole bh) {
+        for (String[] n : BenchmarkData.NOTIFICATIONS) {
+            bh.consume(PaymentMatch.find(rules, n[0], n[1]));
+        }
+    }
+
+    /** Costo de recompilar las reglas (cada vez que cambia "flutter.bipes") */
+    @Benchmark
+    public BipeRuleSet compileRules() throws Exception {
+        return BipeRuleSet.compile(BenchmarkData.rulesJson(ruleCount));
+    }
+}
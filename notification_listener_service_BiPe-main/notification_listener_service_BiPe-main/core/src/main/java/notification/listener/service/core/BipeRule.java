@@ -0,0 +1,69 @@
+package notification.listener.service.core;
+
+import java.util.regex.Pattern;
+
+/**
+ * Regla de bipe ya compilada (inmutable).
+ * Se construye una sola vez a partir de "flutter.bipes" y guarda el Pattern precompilado.
+ */
+public final class BipeRule {
+
+    /** packageName comodín: la regla aplica a cualquier app */
+    public static final String ANY_PACKAGE = "-1";
+
+    private final int index;
+    private final String contain;
+    private final String packageName;
+    private final String regex;
+    private final Pattern pattern;
+    private final boolean hasMonto;
+    private final int idBilletera;
+
+    public BipeRule(int index, String contain, String packageName, String regex, Pattern pattern,
+                    boolean hasMonto, int idBilletera) {
+        this.index = index;
+        this.contain = contain;
+        this.packageName = packageName;
+        this.regex = regex;
+        this.pattern = pattern;
+        this.hasMonto = hasMonto;
+        this.idBilletera = idBilletera;
+    }
+
+    public boolean appliesTo(String pkg) {
+        return packageName.equals(pkg) || isWildcard();
+    }
+
+    public boolean isWildcard() {
+        return ANY_PACKAGE.equals(packageName);
+    }
+
+    /** Posición de la regla dentro del JSON original (define la prioridad) */
+    public int getIndex() {
+        return index;
+    }
+
+    public String getContain() {
+        return contain;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    public boolean hasMonto() {
+        return hasMonto;
+    }
+
+    public int getIdBilletera() {
+        return idBilletera;
+    }
+}
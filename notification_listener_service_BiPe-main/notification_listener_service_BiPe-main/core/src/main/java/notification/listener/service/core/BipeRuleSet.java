@@ -0,0 +1,229 @@
+package notification.listener.service.core;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+/**
+ * Conjunto inmutable de reglas de bipes ya parseadas y con sus regex precompiladas.
+ * Se construye una vez por cada cambio de "flutter.bipes" y se comparte entre hilos sin locks.
+ *
+ * Incluye un índice por packageName (con las reglas comodín "-1" ya mezcladas) y, por paquete,
+ * un {@link ContainMatcher} sobre todas sus palabras "contain": una sola pasada por el texto
+ * devuelve las reglas candidatas.
+ */
+public final class BipeRuleSet {
+
+    public static final BipeRuleSet EMPTY = new BipeRuleSet(null, Collections.<BipeRule>emptyList(), 0);
+
+    private final String source;
+    private final List<BipeRule> rules;
+    private final int invalidCount;
+    private final Map<String, PackageRules> byPackage;
+    // Para paquetes sin reglas propias: solo las reglas comodín
+    private final PackageRules wildcardRules;
+
+    private BipeRuleSet(String source, List<BipeRule> rules, int invalidCount) {
+        this.source = source;
+        this.rules = rules;
+        this.invalidCount = invalidCount;
+
+        List<BipeRule> wildcards = new ArrayList<>();
+        Map<String, List<BipeRule>> grouped = new LinkedHashMap<>();
+        for (BipeRule rule : rules) {
+            if (rule.isWildcard()) {
+                wildcards.add(rule);
+            } else {
+                List<BipeRule> list = grouped.get(rule.getPackageName());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    grouped.put(rule.getPackageName(), list);
+                }
+                list.add(rule);
+            }
+        }
+        Map<String, PackageRules> index = new HashMap<>();
+        for (Map.Entry<String, List<BipeRule>> entry : grouped.entrySet()) {
+            index.put(entry.getKey(), new PackageRules(mergeByIndex(entry.getValue(), wildcards)));
+        }
+        this.byPackage = index;
+        this.wildcardRules = new PackageRules(wildcards);
+    }
+
+    /**
+     * Parsea el JSON de bipes y compila cada regex una sola vez.
+     * Las reglas incompletas o con regex inválida se descartan (se cuentan en {@link #getInvalidCount()}).
+     */
+    public static BipeRuleSet compile(String bipesJson) throws JSONException {
+        if (bipesJson == null) {
+            return EMPTY;
+        }
+        JSONArray arr = new JSONArray(bipesJson);
+        List<BipeRule> rules = new ArrayList<>(arr.length());
+        int invalid = 0;
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject bipe = arr.optJSONObject(i);
+            if (bipe == null) {
+                invalid++;
+                continue;
+            }
+            String contain = bipe.optString("contain", null);
+            String pkg = bipe.optString("packageName", null);
+            String regex = bipe.optString("regex", null);
+            if (contain == null || pkg == null || regex == null) {
+                invalid++;
+                continue;
+            }
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex); // Ojo: flags por defecto
+            } catch (Exception e) {
+                invalid++;
+                continue;
+            }
+            rules.add(new BipeRule(
+                    i,
+                    contain,
+                    pkg,
+                    regex,
+                    pattern,
+                    bipe.optBoolean("hasMonto", false),
+                    bipe.optInt("idBilletera", 0)));
+        }
+        return new BipeRuleSet(bipesJson, Collections.unmodifiableList(rules), invalid);
+    }
+
+    /** JSON del que se compiló este conjunto (null si no hay reglas configuradas) */
+    public String getSource() {
+        return source;
+    }
+
+    public List<BipeRule> getRules() {
+        return rules;
+    }
+
+    public int getInvalidCount() {
+        return invalidCount;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /** Paquetes con reglas propias (sin contar comodines) */
+    public Set<String> getPackages() {
+        return Collections.unmodifiableSet(byPackage.keySet());
+    }
+
+    /** true si hay reglas comodín ("-1"), que aplican a cualquier paquete */
+    public boolean hasWildcardRules() {
+        return !wildcardRules.rules.isEmpty();
+    }
+
+    /** true si hay reglas escritas para este paquete en particular (sin contar comodines) */
+    public boolean hasPackageRules(String packageName) {
+        return byPackage.containsKey(packageName);
+    }
+
+    /** true si existe al menos una regla (propia o comodín) que aplique al paquete */
+    public boolean hasRulesFor(String packageName) {
+        return byPackage.containsKey(packageName) || !wildcardRules.rules.isEmpty();
+    }
+
+    /**
+     * Reglas del paquete cuyo "contain" aparece en el texto, en el orden original del JSON.
+     * Falta evaluar la regex de cada candidata.
+     */
+    public List<BipeRule> candidates(String packageName, String text) {
+        PackageRules pr = byPackage.get(packageName);
+        return (pr != null ? pr : wildcardRules).candidates(text);
+    }
+
+    /** Mezcla dos listas ya ordenadas por índice conservando la prioridad original */
+    private static List<BipeRule> mergeByIndex(List<BipeRule> a, List<BipeRule> b) {
+        List<BipeRule> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j >= b.size() || (i < a.size() && a.get(i).getIndex() < b.get(j).getIndex())) {
+                merged.add(a.get(i++));
+            } else {
+                merged.add(b.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Reglas aplicables a un paquete más el matcher de sus palabras "contain".
+     */
+    private static final class PackageRules {
+        final List<BipeRule> rules;
+        final ContainMatcher matcher;
+        // Para cada palabra distinta, posiciones (en rules) de las reglas que la usan
+        final int[][] keywordRules;
+
+        PackageRules(List<BipeRule> rules) {
+            this.rules = rules;
+            Map<String, List<Integer>> byKeyword = new LinkedHashMap<>();
+            for (int i = 0; i < rules.size(); i++) {
+                String contain = rules.get(i).getContain();
+                List<Integer> positions = byKeyword.get(contain);
+                if (positions == null) {
+                    positions = new ArrayList<>();
+                    byKeyword.put(contain, positions);
+                }
+                positions.add(i);
+            }
+            keywordRules = new int[byKeyword.size()][];
+            int k = 0;
+            for (List<Integer> positions : byKeyword.values()) {
+                int[] arr = new int[positions.size()];
+                for (int p = 0; p < arr.length; p++) {
+                    arr[p] = positions.get(p);
+                }
+                keywordRules[k++] = arr;
+            }
+            matcher = new ContainMatcher(new ArrayList<>(byKeyword.keySet()));
+        }
+
+        List<BipeRule> candidates(String text) {
+            if (rules.isEmpty()) {
+                return Collections.emptyList();
+            }
+            boolean[] found = matcher.scan(text);
+            boolean[] selected = null;
+            for (int k = 0; k < found.length; k++) {
+                if (!found[k]) {
+                    continue;
+                }
+                if (selected == null) {
+                    selected = new boolean[rules.size()];
+                }
+                for (int pos : keywordRules[k]) {
+                    selected[pos] = true;
+                }
+            }
+            if (selected == null) {
+                return Collections.emptyList();
+            }
+            List<BipeRule> result = new ArrayList<>(2);
+            for (int i = 0; i < selected.length; i++) {
+                if (selected[i]) {
+                    result.add(rules.get(i));
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package notification.listener.service.core;
+
+/**
+ * Fuente de tiempo del núcleo (epoch en ms). En pruebas y benchmarks se reemplaza por un reloj fijo.
+ */
+public interface Clock {
+
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long now() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    long now();
+}
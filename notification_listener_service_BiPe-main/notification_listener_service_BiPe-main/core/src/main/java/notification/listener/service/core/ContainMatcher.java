@@ -0,0 +1,142 @@
+package notification.listener.service.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Matcher multi-cadena (Aho-Corasick) sobre las palabras "contain" de las reglas.
+ * Una sola pasada por el texto indica qué palabras aparecen, sin importar cuántas reglas haya.
+ * Inmutable después de construido; seguro para usar desde varios hilos.
+ */
+final class ContainMatcher {
+
+    private static final int ROOT = 0;
+
+    private final int keywordCount;
+    // Palabras vacías: siempre "aparecen" (String.contains("") es true)
+    private final int[] emptyKeywords;
+
+    // Trie: hijos de cada nodo en arreglos paralelos (pocos hijos por nodo en la práctica)
+    private final char[][] childChars;
+    private final int[][] childNodes;
+    private final int[] fail;
+    // Enlace al siguiente nodo (vía fail) que termina alguna palabra, -1 si no hay
+    private final int[] outputLink;
+    private final int[][] outputs;
+
+    ContainMatcher(List<String> keywords) {
+        keywordCount = keywords.size();
+
+        List<char[]> chars = new ArrayList<>();
+        List<int[]> nodes = new ArrayList<>();
+        List<int[]> outs = new ArrayList<>();
+        chars.add(new char[0]);
+        nodes.add(new int[0]);
+        outs.add(new int[0]);
+
+        int[] empties = new int[0];
+        for (int k = 0; k < keywords.size(); k++) {
+            String word = keywords.get(k);
+            if (word.isEmpty()) {
+                empties = append(empties, k);
+                continue;
+            }
+            int node = ROOT;
+            for (int i = 0; i < word.length(); i++) {
+                char c = word.charAt(i);
+                int next = find(chars.get(node), nodes.get(node), c);
+                if (next < 0) {
+                    next = chars.size();
+                    chars.add(new char[0]);
+                    nodes.add(new int[0]);
+                    outs.add(new int[0]);
+                    chars.set(node, append(chars.get(node), c));
+                    nodes.set(node, append(nodes.get(node), next));
+                }
+                node = next;
+            }
+            outs.set(node, append(outs.get(node), k));
+        }
+        emptyKeywords = empties;
+
+        int size = chars.size();
+        childChars = chars.toArray(new char[size][]);
+        childNodes = nodes.toArray(new int[size][]);
+        outputs = outs.toArray(new int[size][]);
+        fail = new int[size];
+        outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+
+        // BFS para construir los enlaces de fallo
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int child : childNodes[ROOT]) {
+            fail[child] = ROOT;
+            queue[tail++] = child;
+        }
+        while (head < tail) {
+            int node = queue[head++];
+            for (int i = 0; i < childChars[node].length; i++) {
+                char c = childChars[node][i];
+                int child = childNodes[node][i];
+                int f = fail[node];
+                int target;
+                while ((target = find(childChars[f], childNodes[f], c)) < 0 && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = target >= 0 ? target : ROOT;
+                int failNode = fail[child];
+                outputLink[child] = outputs[failNode].length > 0 ? failNode : outputLink[failNode];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /**
+     * Recorre el texto una vez y marca en el resultado las palabras encontradas.
+     */
+    boolean[] scan(CharSequence text) {
+        boolean[] found = new boolean[keywordCount];
+        for (int k : emptyKeywords) {
+            found[k] = true;
+        }
+        int node = ROOT;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int next;
+            while ((next = find(childChars[node], childNodes[node], c)) < 0 && node != ROOT) {
+                node = fail[node];
+            }
+            node = next >= 0 ? next : ROOT;
+            for (int out = outputs[node].length > 0 ? node : outputLink[node]; out >= 0; out = outputLink[out]) {
+                for (int k : outputs[out]) {
+                    found[k] = true;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static int find(char[] keys, int[] values, char c) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == c) {
+                return values[i];
+            }
+        }
+        return -1;
+    }
+
+    private static char[] append(char[] arr, char value) {
+        char[] copy = Arrays.copyOf(arr, arr.length + 1);
+        copy[arr.length] = value;
+        return copy;
+    }
+
+    private static int[] append(int[] arr, int value) {
+        int[] copy = Arrays.copyOf(arr, arr.length + 1);
+        copy[arr.length] = value;
+        return copy;
+    }
+}
@@ -0,0 +1,253 @@
+package notification.listener.service.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caché acotada de huellas ya procesadas, con ventana de tiempo y persistida en disco.
+ *
+ * Evita que un mismo pago se envíe dos veces cuando la app actualiza la notificación
+ * (mismo id) o cuando Xiaomi vuelve a entregar los posts tras reconectar el listener.
+ *
+ * - Guarda solo un hash de 64 bits de cada huella (nunca nombres ni montos en claro).
+ * - Cada huella vence {@code windowMs} después de registrarse; si se supera la capacidad
+ *   se descarta la más antigua.
+ * - Cada alta se agrega al final del archivo (hash, vencimiento); el archivo se reescribe
+ *   solo con las vigentes cuando crece al doble de la capacidad.
+ * - {@link #reserve(String, long)} registra la huella solo en memoria hasta {@link #commit(String)}:
+ *   así una huella nunca llega a disco antes que el pago que protege. Si el pago se pierde,
+ *   {@link #release(String)} la quita.
+ */
+public final class DedupCache {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int RECORD_BYTES = 8 + 8;
+
+    private static final Map<String, DedupCache> instances = new HashMap<>();
+
+    private final File file;
+    private final int capacity;
+    private final long windowMs;
+    // hash -> vencimiento, en orden de alta (que con ventana fija también es orden de vencimiento)
+    private final LinkedHashMap<Long, Long> entries = new LinkedHashMap<>();
+    // Reservadas con reserve() que todavía no se escribieron
+    private final Set<Long> reserved = new HashSet<>();
+
+    private DataOutputStream out;
+    private int records;
+
+    private DedupCache(File file, int capacity, long windowMs) throws IOException {
+        this.file = file;
+        this.capacity = capacity;
+        this.windowMs = windowMs;
+        load(System.currentTimeMillis());
+    }
+
+    /** Abre (o reutiliza) la caché guardada en {@code file}. Una sola instancia por archivo. */
+    public static DedupCache open(File file, int capacity, long windowMs) throws IOException {
+        String key = file.getAbsolutePath();
+        synchronized (instances) {
+            DedupCache cache = instances.get(key);
+            if (cache == null) {
+                cache = new DedupCache(file, capacity, windowMs);
+                instances.put(key, cache);
+            }
+            return cache;
+        }
+    }
+
+    /** true si la huella se registró dentro de la ventana */
+    public synchronized boolean contains(String fingerprint, long now) {
+        expire(now);
+        return entries.containsKey(hash(fingerprint));
+    }
+
+    /**
+     * Registra la huella si no estaba vigente. Es atómico: si dos hilos procesan la misma
+     * notificación solo uno recibe true.
+     *
+     * @return true si la huella es nueva, false si es un duplicado
+     */
+    public synchronized boolean add(String fingerprint, long now) {
+        long h = hash(fingerprint);
+        if (!put(h, now)) {
+            return false;
+        }
+        persist(h);
+        return true;
+    }
+
+    /**
+     * Como {@link #add(String, long)} pero sin escribir en disco: si el proceso muere antes de
+     * {@link #commit(String)} la huella se pierde junto con lo que protegía.
+     *
+     * @return true si la huella es nueva, false si es un duplicado
+     */
+    public synchronized boolean reserve(String fingerprint, long now) {
+        long h = hash(fingerprint);
+        if (!put(h, now)) {
+            return false;
+        }
+        reserved.add(h);
+        return true;
+    }
+
+    /** Escribe en disco una huella reservada (no hace nada si no estaba reservada o ya venció) */
+    public synchronized void commit(String fingerprint) {
+        long h = hash(fingerprint);
+        if (reserved.remove(h) && entries.containsKey(h)) {
+            persist(h);
+        }
+    }
+
+    /**
+     * Olvida una huella reservada que no llegó a protegerse (el pago no se pudo guardar): la
+     * misma notificación se puede volver a detectar. No toca huellas ya escritas.
+     */
+    public synchronized void release(String fingerprint) {
+        long h = hash(fingerprint);
+        if (reserved.remove(h)) {
+            entries.remove(h);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private boolean put(long h, long now) {
+        expire(now);
+        if (entries.containsKey(h)) {
+            return false;
+        }
+        entries.put(h, now + windowMs);
+        if (entries.size() > capacity) {
+            Iterator<Long> it = entries.keySet().iterator();
+            reserved.remove(it.next());
+            it.remove();
+        }
+        return true;
+    }
+
+    private void persist(long h) {
+        try {
+            write(h, entries.get(h));
+        } catch (IOException e) {
+            // Best-effort: en memoria sigue funcionando, solo no sobrevive a un reinicio
+            closeQuietly();
+        }
+    }
+
+    private void expire(long now) {
+        Iterator<Map.Entry<Long, Long>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Long, Long> entry = it.next();
+            if (entry.getValue() > now) {
+                break;
+            }
+            reserved.remove(entry.getKey());
+            it.remove();
+        }
+    }
+
+    private void load(long now) throws IOException {
+        if (file.exists()) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                while (true) {
+                    long h = in.readLong();
+                    long expiresAt = in.readLong();
+                    if (expiresAt > now) {
+                        entries.remove(h);
+                        entries.put(h, expiresAt);
+                    }
+                }
+            } catch (EOFException ignored) {
+                // Fin del archivo (o registro parcial por corte de energía)
+            } finally {
+                in.close();
+            }
+            while (entries.size() > capacity) {
+                Iterator<Long> it = entries.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+        }
+        rewrite();
+    }
+
+    private void write(long h, long expiresAt) throws IOException {
+        if (out == null || records >= capacity * 2) {
+            rewrite();
+        }
+        out.writeLong(h);
+        out.writeLong(expiresAt);
+        out.flush();
+        records++;
+    }
+
+    /** Reescribe el archivo solo con las huellas vigentes (vía temporal + rename) */
+    private void rewrite() throws IOException {
+        closeQuietly();
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("No se pudo crear " + parent);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream tmpOut = new FileOutputStream(tmp, false);
+        try {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(tmpOut, entries.size() * RECORD_BYTES + 1));
+            for (Map.Entry<Long, Long> entry : entries.entrySet()) {
+                if (reserved.contains(entry.getKey())) {
+                    continue;
+                }
+                data.writeLong(entry.getKey());
+                data.writeLong(entry.getValue());
+            }
+            data.flush();
+            tmpOut.getFD().sync();
+        } finally {
+            tmpOut.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("No se pudo reemplazar " + file);
+        }
+        records = entries.size() - reserved.size();
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), RECORD_BYTES));
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // Nada que hacer
+            }
+            out = null;
+        }
+    }
+
+    /** FNV-1a de 64 bits sobre los bytes UTF-8 de la huella */
+    static long hash(String fingerprint) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : fingerprint.getBytes(UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,155 @@
+package notification.listener.service.core;
+
+/**
+ * Salud del listener a partir de latidos, sin sondear a intervalos fijos.
+ *
+ * - Latidos: notificaciones publicadas/quitadas ({@link #onEvent(long)}) y otros callbacks del
+ *   sistema como ranking o hints ({@link #onCallback(long)}). Mientras lleguen, no hay nada que
+ *   verificar.
+ * - Si pasan {@link #QUIET_MS} sin latidos se pide un sondeo barato del binder. Si responde, el
+ *   silencio era real (noche, sin apps activas) y la espera hasta el próximo sondeo se duplica,
+ *   hasta {@link #MAX_QUIET_MS}. Cualquier latido la devuelve a QUIET_MS.
+ * - Si el sondeo falla o el sistema desconectó el listener, se pide reconexión cada
+ *   {@link #RECONNECT_RETRY_MS}; el cooldown real lo pone {@link ReconnectPolicy}.
+ *
+ * Igual que {@link SendPolicy}, todos los métodos reciben "now" para probarla sin reloj real.
+ */
+public final class HealthPolicy {
+
+    public enum Status {
+        /** Latidos recientes o último sondeo correcto */
+        HEALTHY,
+        /** Figura conectado pero el binder no responde (servicio zombie) */
+        DEAD,
+        /** onListenerDisconnected, o todavía no conectó en este proceso */
+        DISCONNECTED
+    }
+
+    /** Lo que el monitor debe hacer ahora */
+    public enum Step {
+        NONE,
+        PROBE,
+        RECONNECT
+    }
+
+    static final long QUIET_MS = 10 * 60 * 1000;
+    static final long MAX_QUIET_MS = 2 * 60 * 60 * 1000;
+    static final long RECONNECT_RETRY_MS = 60_000;
+
+    private Status status = Status.DISCONNECTED;
+    private long lastEventAt = 0;
+    private long lastCallbackAt = 0;
+    private long lastProbeAt = 0;
+    private long lastReconnectAt = 0;
+    private long quietMs = QUIET_MS;
+
+    private long probes = 0;
+    private long probeFailures = 0;
+
+    /** Notificación publicada o quitada. @return true si cambió el estado */
+    public synchronized boolean onEvent(long now) {
+        lastEventAt = now;
+        return beat();
+    }
+
+    /** Otro callback del sistema (ranking, hints, filtro). @return true si cambió el estado */
+    public synchronized boolean onCallback(long now) {
+        lastCallbackAt = now;
+        return beat();
+    }
+
+    /** onListenerConnected. @return true si cambió el estado */
+    public synchronized boolean onConnected(long now) {
+        lastCallbackAt = now;
+        lastProbeAt = 0;
+        return beat();
+    }
+
+    /** onListenerDisconnected. @return true si cambió el estado */
+    public synchronized boolean onDisconnected(long now) {
+        lastCallbackAt = now;
+        return setStatus(Status.DISCONNECTED);
+    }
+
+    /**
+     * Qué hacer ahora: sondear si los latidos están viejos, o pedir reconexión si está caído.
+     */
+    public synchronized Step evaluate(long now) {
+        if (status != Status.HEALTHY) {
+            if (now - lastReconnectAt < RECONNECT_RETRY_MS) {
+                return Step.NONE;
+            }
+            lastReconnectAt = now;
+            return Step.RECONNECT;
+        }
+        return now >= nextProbeAt() ? Step.PROBE : Step.NONE;
+    }
+
+    /** Resultado del sondeo del binder. @return true si cambió el estado */
+    public synchronized boolean onProbe(long now, boolean alive) {
+        probes++;
+        lastProbeAt = now;
+        if (alive) {
+            // Silencio real: espaciar el próximo sondeo
+            quietMs = Math.min(quietMs * 2, MAX_QUIET_MS);
+            return setStatus(Status.HEALTHY);
+        }
+        probeFailures++;
+        quietMs = QUIET_MS;
+        return setStatus(Status.DEAD);
+    }
+
+    /** Cuándo conviene volver a evaluar */
+    public synchronized long nextCheckAt() {
+        if (status != Status.HEALTHY) {
+            return lastReconnectAt + RECONNECT_RETRY_MS;
+        }
+        return nextProbeAt();
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized long getLastEventAt() {
+        return lastEventAt;
+    }
+
+    public synchronized long getLastCallbackAt() {
+        return lastCallbackAt;
+    }
+
+    public synchronized long getLastProbeAt() {
+        return lastProbeAt;
+    }
+
+    /** Silencio tolerado antes del próximo sondeo */
+    public synchronized long getQuietMs() {
+        return quietMs;
+    }
+
+    public synchronized long getProbes() {
+        return probes;
+    }
+
+    public synchronized long getProbeFailures() {
+        return probeFailures;
+    }
+
+    private long nextProbeAt() {
+        return Math.max(Math.max(lastEventAt, lastCallbackAt), lastProbeAt) + quietMs;
+    }
+
+    private boolean beat() {
+        quietMs = QUIET_MS;
+        return setStatus(Status.HEALTHY);
+    }
+
+    private boolean setStatus(Status next) {
+        if (status == next) {
+            return false;
+        }
+        status = next;
+        return true;
+    }
+}
@@ -0,0 +1,100 @@
+package notification.listener.service.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias sin locks: cubetas fijas (en ms) con contadores atómicos.
+ *
+ * Registrar es una búsqueda en un arreglo chico y un incremento; los percentiles se estiman
+ * con el límite superior de la cubeta, suficiente para un panel de salud.
+ */
+public final class LatencyHistogram {
+
+    /** Límites superiores de cada cubeta en ms; la última cubeta es "más que el último límite" */
+    static final long[] BOUNDS_MS = {10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 300000};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMs = new AtomicLong();
+    private final AtomicLong maxMs = new AtomicLong();
+
+    public void record(long ms) {
+        if (ms < 0) {
+            ms = 0;
+        }
+        int i = 0;
+        while (i < BOUNDS_MS.length && ms > BOUNDS_MS[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        count.incrementAndGet();
+        sumMs.addAndGet(ms);
+        long max;
+        while (ms > (max = maxMs.get()) && !maxMs.compareAndSet(max, ms)) {
+            // reintentar: otro hilo actualizó el máximo
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Percentil estimado (0-100) en ms: límite superior de la cubeta que lo contiene,
+     * o el máximo observado si cae en la última. 0 si no hay muestras.
+     */
+    public long percentile(double p) {
+        long[] counts = counts();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return i < BOUNDS_MS.length ? Math.min(BOUNDS_MS[i], maxMs.get()) : maxMs.get();
+            }
+        }
+        return maxMs.get();
+    }
+
+    /** Resumen para Flutter: count, avgMs, maxMs, p50/p90/p99 y las cubetas */
+    public HashMap<String, Object> snapshot() {
+        HashMap<String, Object> data = new HashMap<>();
+        long n = count.get();
+        data.put("count", n);
+        data.put("avgMs", n == 0 ? 0L : sumMs.get() / n);
+        data.put("maxMs", maxMs.get());
+        data.put("p50Ms", percentile(50));
+        data.put("p90Ms", percentile(90));
+        data.put("p99Ms", percentile(99));
+        List<Long> bounds = new ArrayList<>(BOUNDS_MS.length);
+        for (long b : BOUNDS_MS) {
+            bounds.add(b);
+        }
+        List<Long> counts = new ArrayList<>(BOUNDS_MS.length + 1);
+        for (long c : counts()) {
+            counts.add(c);
+        }
+        data.put("boundsMs", bounds);
+        data.put("buckets", counts);
+        return data;
+    }
+
+    private long[] counts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+}
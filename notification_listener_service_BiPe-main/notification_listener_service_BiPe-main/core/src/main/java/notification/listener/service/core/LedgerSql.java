@@ -0,0 +1,173 @@
+package notification.listener.service.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Lógica del historial local de pagos sin SQLite: huella única, totales por día y armado de
+ * las consultas paginadas. PaymentLedger (plugin) solo ejecuta lo que se arma aquí.
+ *
+ * - {@link #record(Writer, String, String, PaymentMatch, long)}: insert del pago y, si era nuevo,
+ *   UPDATE del total del día con INSERT cuando no había fila (UPSERT recién existe en API 30).
+ * - {@link #paymentsPage(Long, Long, Integer, Long, Long, int)}: cursor (posted_at, _id), nunca OFFSET.
+ */
+public final class LedgerSql {
+
+    public static final int DEFAULT_PAGE = 50;
+    public static final int MAX_PAGE = 500;
+
+    public static final String PAYMENTS_ORDER = "posted_at DESC, _id DESC";
+    public static final String TOTALS_ORDER = "day DESC, id_billetera";
+
+    /** Operaciones sobre la base, dentro de una transacción que abre el que llama */
+    public interface Writer {
+        /**
+         * Inserta el pago ignorando conflictos de la huella única.
+         *
+         * @return false si ya existía una fila con esa huella
+         */
+        boolean insertPayment(Payment payment);
+
+        /** @return filas actualizadas (0 si aún no hay total para ese día y billetera) */
+        int addToDailyTotal(String day, int idBilletera, long cents);
+
+        void insertDailyTotal(String day, int idBilletera, long cents);
+    }
+
+    /** Fila de la tabla payments */
+    public static final class Payment {
+        public final String fingerprint;
+        public final String key;
+        public final String packageName;
+        public final int idBilletera;
+        public final String nombreCliente;
+        public final long cents;
+        public final String day;
+        public final long postedAt;
+
+        Payment(String key, String packageName, PaymentMatch match, long postTime) {
+            this.cents = toCents(match.getMonto());
+            this.fingerprint = key + "|" + postTime + "|" + cents + "|" + match.getNombreCliente();
+            this.key = key;
+            this.packageName = packageName;
+            this.idBilletera = match.getRule().getIdBilletera();
+            this.nombreCliente = match.getNombreCliente();
+            this.day = PaymentPayload.limaDay(postTime);
+            this.postedAt = postTime;
+        }
+    }
+
+    /** WHERE con sus argumentos y el LIMIT a pedir */
+    public static final class Query {
+        public final String where;
+        public final String[] args;
+        public final int pageSize;
+
+        Query(String where, List<String> args, int pageSize) {
+            this.where = where;
+            this.args = args.toArray(new String[0]);
+            this.pageSize = pageSize;
+        }
+
+        /** Se pide una fila de más: si llega, hay otra página */
+        public String limit() {
+            return String.valueOf(pageSize + 1);
+        }
+    }
+
+    private LedgerSql() {
+    }
+
+    /** Montos en céntimos: las sumas no acumulan error de punto flotante */
+    public static long toCents(double monto) {
+        return Math.round(monto * 100);
+    }
+
+    /**
+     * Guarda un pago y suma su monto al total del día.
+     *
+     * @return false si ya estaba registrado (no se vuelve a sumar)
+     */
+    public static boolean record(Writer writer, String key, String packageName, PaymentMatch match, long postTime) {
+        Payment payment = new Payment(key, packageName, match, postTime);
+        if (!writer.insertPayment(payment)) {
+            return false;
+        }
+        if (writer.addToDailyTotal(payment.day, payment.idBilletera, payment.cents) == 0) {
+            writer.insertDailyTotal(payment.day, payment.idBilletera, payment.cents);
+        }
+        return true;
+    }
+
+    /**
+     * Consulta de una página de pagos, del más reciente al más antiguo.
+     *
+     * @param from desde (postTime ms, inclusive) o null
+     * @param to hasta (postTime ms, exclusivo) o null
+     * @param idBilletera solo esa billetera, o null para todas
+     * @param beforePostedAt cursor de la página anterior (null para la primera)
+     * @param beforeId cursor de la página anterior
+     */
+    public static Query paymentsPage(Long from, Long to, Integer idBilletera, Long beforePostedAt, Long beforeId,
+                                     int limit) {
+        int pageSize = limit <= 0 ? DEFAULT_PAGE : Math.min(limit, MAX_PAGE);
+        StringBuilder where = new StringBuilder("1");
+        List<String> args = new ArrayList<>();
+        if (idBilletera != null) {
+            where.append(" AND id_billetera = ?");
+            args.add(String.valueOf(idBilletera));
+        }
+        if (from != null) {
+            where.append(" AND posted_at >= ?");
+            args.add(String.valueOf(from));
+        }
+        if (to != null) {
+            where.append(" AND posted_at < ?");
+            args.add(String.valueOf(to));
+        }
+        if (beforePostedAt != null && beforeId != null) {
+            where.append(" AND (posted_at < ? OR (posted_at = ? AND _id < ?))");
+            args.add(String.valueOf(beforePostedAt));
+            args.add(String.valueOf(beforePostedAt));
+            args.add(String.valueOf(beforeId));
+        }
+        return new Query(where.toString(), args, pageSize);
+    }
+
+    /**
+     * Arma la página con las filas leídas (hasta {@code pageSize + 1}).
+     *
+     * @param rows filas ya convertidas, cada una con "id" y "postedAt"
+     * @return {"items": [...], "nextCursor": {"postedAt", "id"} o null si no hay más}
+     */
+    public static HashMap<String, Object> page(List<HashMap<String, Object>> rows, int pageSize) {
+        List<HashMap<String, Object>> items = rows.size() > pageSize
+                ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        HashMap<String, Object> page = new HashMap<>();
+        page.put("items", items);
+        if (rows.size() > pageSize && !items.isEmpty()) {
+            HashMap<String, Object> last = items.get(items.size() - 1);
+            HashMap<String, Object> next = new HashMap<>();
+            next.put("postedAt", last.get("postedAt"));
+            next.put("id", last.get("id"));
+            page.put("nextCursor", next);
+        } else {
+            page.put("nextCursor", null);
+        }
+        return page;
+    }
+
+    /** Totales de un rango de días (yyyy-MM-dd, inclusive), opcionalmente de una billetera */
+    public static Query dailyTotals(String fromDay, String toDay, Integer idBilletera) {
+        StringBuilder where = new StringBuilder("day >= ? AND day <= ?");
+        List<String> args = new ArrayList<>();
+        args.add(fromDay);
+        args.add(toDay);
+        if (idBilletera != null) {
+            where.append(" AND id_billetera = ?");
+            args.add(String.valueOf(idBilletera));
+        }
+        return new Query(where.toString(), args, 0);
+    }
+}
@@ -0,0 +1,118 @@
+package notification.listener.service.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor con carriles seriales: las tareas con la misma clave corren en orden, en el mismo hilo.
+ *
+ * - Carriles normales: la clave (p.ej. StatusBarNotification.getKey()) elige el carril por hash,
+ *   así el post y el remove de una notificación nunca se adelantan entre sí, pero
+ *   notificaciones distintas se procesan en paralelo.
+ * - Carriles prioritarios: aparte, para los paquetes con reglas de bipe. Un pago nunca espera
+ *   detrás del trabajo de íconos de otras apps.
+ *
+ * Una misma clave debe ir siempre al mismo tipo de carril para conservar el orden.
+ */
+public final class OrderedExecutor {
+
+    private final ThreadPoolExecutor[] lanes;
+    private final ThreadPoolExecutor[] priorityLanes;
+    private volatile boolean shutdown = false;
+
+    public OrderedExecutor(String name, int laneCount, String priorityName, int priorityLaneCount) {
+        lanes = createLanes(name, Math.max(1, laneCount), Thread.NORM_PRIORITY);
+        priorityLanes = createLanes(priorityName, Math.max(1, priorityLaneCount), Thread.NORM_PRIORITY + 1);
+    }
+
+    /**
+     * Encola la tarea en el carril de su clave.
+     *
+     * @return false si el executor ya está apagado
+     */
+    public boolean execute(String key, boolean priority, Runnable task) {
+        ThreadPoolExecutor[] group = priority ? priorityLanes : lanes;
+        int index = key == null ? 0 : (spread(key.hashCode()) & Integer.MAX_VALUE) % group.length;
+        try {
+            group[index].execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /** Tareas esperando en todos los carriles (sin contar las que están corriendo) */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ThreadPoolExecutor lane : all()) {
+            depth += lane.getQueue().size();
+        }
+        return depth;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        for (ThreadPoolExecutor lane : all()) {
+            lane.shutdown();
+        }
+    }
+
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> pending = new ArrayList<>();
+        for (ThreadPoolExecutor lane : all()) {
+            pending.addAll(lane.shutdownNow());
+        }
+        return pending;
+    }
+
+    /** Espera a que terminen todos los carriles, con un plazo total */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ThreadPoolExecutor lane : all()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !lane.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<ThreadPoolExecutor> all() {
+        List<ThreadPoolExecutor> all = new ArrayList<>(lanes.length + priorityLanes.length);
+        for (ThreadPoolExecutor lane : priorityLanes) {
+            all.add(lane);
+        }
+        for (ThreadPoolExecutor lane : lanes) {
+            all.add(lane);
+        }
+        return all;
+    }
+
+    private static ThreadPoolExecutor[] createLanes(String name, int count, int priority) {
+        ThreadPoolExecutor[] group = new ThreadPoolExecutor[count];
+        for (int i = 0; i < count; i++) {
+            final String threadName = count == 1 ? name : name + "-" + i;
+            // Un hilo por carril: es lo que garantiza el orden dentro del carril
+            group[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setPriority(priority);
+                return thread;
+            });
+        }
+        return group;
+    }
+
+    /** Mezcla los bits altos del hash (los hashCode de String suelen variar poco en los bajos) */
+    private static int spread(int h) {
+        return h ^ (h >>> 16);
+    }
+}
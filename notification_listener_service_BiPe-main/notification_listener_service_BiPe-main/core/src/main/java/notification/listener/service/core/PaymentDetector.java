@@ -0,0 +1,144 @@
+package notification.listener.service.core;
+
+import org.json.JSONException;
+
+/**
+ * Decide si el texto de una notificación es un pago nuevo y arma su payload.
+ *
+ * Se usan dos huellas por notificación, ambas con la clave de la notificación:
+ * - "vista": clave + hora de post + texto. Se consulta antes de evaluar reglas, así un post
+ *   repetido idéntico (reconexión en Xiaomi) no cuesta regex ni red.
+ * - "pago": clave + monto + nombre. Se registra tras el match, así una actualización de la
+ *   misma notificación con otro texto pero el mismo pago tampoco se envía dos veces.
+ *
+ * Tras un match las huellas quedan solo reservadas en memoria: se escriben en disco con
+ * {@link #confirm(Result)} cuando el payload ya es durable (enviado o en el diario). Si el proceso
+ * muere antes, tras reiniciar la notificación vuelve a evaluarse en vez de quedar como vista; si el
+ * payload no se pudo guardar, {@link #abandon(Result)} las libera ya.
+ *
+ * Es el mismo camino que recorre el listener; al no depender de Android también lo usa el
+ * arnés de replay de trazas.
+ */
+public final class PaymentDetector {
+
+    public enum Outcome {
+        /** Post idéntico a uno ya procesado */
+        SEEN,
+        /** Ninguna regla hizo match */
+        NO_MATCH,
+        /** Mismo pago que una versión anterior de la notificación */
+        DUPLICATE,
+        /** Pago nuevo: hay payload para enviar */
+        PAYMENT
+    }
+
+    public static final class Result {
+        private final Outcome outcome;
+        private final PaymentMatch match;
+        private final String payload;
+        // Huellas reservadas que confirm() escribe en disco
+        private final String seen;
+        private final String payment;
+
+        Result(Outcome outcome, PaymentMatch match, String payload, String seen, String payment) {
+            this.outcome = outcome;
+            this.match = match;
+            this.payload = payload;
+            this.seen = seen;
+            this.payment = payment;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        /** Regla y datos del pago (null si no hubo match) */
+        public PaymentMatch getMatch() {
+            return match;
+        }
+
+        /** JSON para /yape (solo con {@link Outcome#PAYMENT}) */
+        public String getPayload() {
+            return payload;
+        }
+    }
+
+    private static final Result SEEN = new Result(Outcome.SEEN, null, null, null, null);
+    private static final Result NO_MATCH = new Result(Outcome.NO_MATCH, null, null, null, null);
+
+    private final DedupCache dedup;
+    private final Clock clock;
+    private final PipelineMetrics metrics;
+
+    /**
+     * @param dedup caché de huellas, o null para procesar sin deduplicar
+     */
+    public PaymentDetector(DedupCache dedup, Clock clock, PipelineMetrics metrics) {
+        this.dedup = dedup;
+        this.clock = clock;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param key clave estable de la notificación
+     * @param postTime hora de post de la notificación (huella "vista" y FechaHora del payload)
+     */
+    public Result process(BipeRuleSet rules, String key, String packageName, String text, int notificationId,
+                          long postTime, int idUsuario, int idNegocio) throws JSONException {
+        String seen = seenFingerprint(key, postTime, text);
+        if (dedup != null && dedup.contains(seen, clock.now())) {
+            return SEEN;
+        }
+        // Una sola pasada por el texto da las reglas candidatas; gana la primera cuya regex hace match
+        PaymentMatch match = PaymentMatch.find(rules, packageName, text);
+        if (match == null) {
+            return NO_MATCH;
+        }
+        metrics.onMatched();
+
+        String payment = paymentFingerprint(key, match.getMonto(), match.getNombreCliente());
+        if (dedup != null) {
+            long now = clock.now();
+            // Solo en memoria: la "vista" de un duplicado tampoco se escribe, el pago original
+            // puede seguir sin ser durable
+            dedup.reserve(seen, now);
+            if (!dedup.reserve(payment, now)) {
+                metrics.onDuplicate();
+                return new Result(Outcome.DUPLICATE, match, null, null, null);
+            }
+        }
+        // FechaHora: hora de post en hora Perú (America/Lima), también para lo recuperado por el catch-up
+        String payload = PaymentPayload.build(match, idUsuario, idNegocio, notificationId, packageName, postTime);
+        return new Result(Outcome.PAYMENT, match, payload, seen, payment);
+    }
+
+    /**
+     * Escribe en disco las huellas de un pago cuyo payload ya es durable. Antes de esto solo
+     * protegen contra duplicados dentro del mismo proceso.
+     */
+    public void confirm(Result result) {
+        if (dedup != null && result.getOutcome() == Outcome.PAYMENT) {
+            dedup.commit(result.seen);
+            dedup.commit(result.payment);
+        }
+    }
+
+    /**
+     * Quita las huellas reservadas de un pago que no se pudo enviar ni guardar: si la notificación
+     * vuelve a llegar (o la revisa el catch-up) se detecta otra vez en lugar de quedar como vista.
+     */
+    public void abandon(Result result) {
+        if (dedup != null && result.getOutcome() == Outcome.PAYMENT) {
+            dedup.release(result.seen);
+            dedup.release(result.payment);
+        }
+    }
+
+    public static String seenFingerprint(String key, long postTime, String text) {
+        return "v|" + key + "|" + postTime + "|" + text;
+    }
+
+    public static String paymentFingerprint(String key, double monto, String nombre) {
+        return "p|" + key + "|" + monto + "|" + nombre;
+    }
+}
@@ -0,0 +1,68 @@
+package notification.listener.service.core;
+
+import java.util.regex.Matcher;
+
+/**
+ * Resultado de aplicar las reglas de bipes al texto de una notificación: la regla que hizo match,
+ * el nombre del cliente y el monto ya parseado.
+ */
+public final class PaymentMatch {
+
+    private final BipeRule rule;
+    private final String nombreCliente;
+    private final double monto;
+
+    PaymentMatch(BipeRule rule, String nombreCliente, double monto) {
+        this.rule = rule;
+        this.nombreCliente = nombreCliente;
+        this.monto = monto;
+    }
+
+    /**
+     * Primera regla candidata (por "contain") cuya regex hace match en el texto.
+     *
+     * - Con dos o más grupos: grupo 1 = nombre, grupo 2 = monto.
+     * - Con un grupo: nombre = el "contain" de la regla, grupo 1 = monto.
+     *
+     * @return el match, o null si ninguna regla aplica
+     */
+    public static PaymentMatch find(BipeRuleSet rules, String packageName, String text) {
+        for (BipeRule rule : rules.candidates(packageName, text)) {
+            Matcher m = rule.getPattern().matcher(text);
+            if (!m.find()) {
+                continue;
+            }
+            String nombreCliente = m.groupCount() > 1 ? m.group(1) : rule.getContain();
+            double monto = 0.0;
+            if (rule.hasMonto()) {
+                monto = parseMonto(m.groupCount() > 1 ? m.group(2) : m.group(1));
+            }
+            return new PaymentMatch(rule, nombreCliente, monto);
+        }
+        return null;
+    }
+
+    /** "S/ 1,234.50" → 1234.5; 0 si no se puede leer */
+    public static double parseMonto(String montoStr) {
+        if (montoStr == null) {
+            return 0.0;
+        }
+        try {
+            return Double.parseDouble(montoStr.replace(",", "").replace("S/ ", "").replace("s/ ", "").trim());
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    public BipeRule getRule() {
+        return rule;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    public double getMonto() {
+        return monto;
+    }
+}
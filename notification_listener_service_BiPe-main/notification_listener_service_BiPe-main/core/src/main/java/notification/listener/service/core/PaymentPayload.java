@@ -0,0 +1,61 @@
+package notification.listener.service.core;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Arma el JSON que se envía a /yape para un pago detectado.
+ */
+public final class PaymentPayload {
+
+    // SimpleDateFormat no es thread-safe y crearlo cuesta: uno por hilo
+    private static final ThreadLocal<SimpleDateFormat> LIMA_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS", Locale.US);
+            sdf.setTimeZone(TimeZone.getTimeZone("America/Lima"));
+            return sdf;
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> LIMA_DAY = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+            sdf.setTimeZone(TimeZone.getTimeZone("America/Lima"));
+            return sdf;
+        }
+    };
+
+    private PaymentPayload() {
+    }
+
+    /** Día (yyyy-MM-dd, hora de Perú) en que cae un instante, el mismo huso que FechaHora */
+    public static String limaDay(long millis) {
+        return LIMA_DAY.get().format(new Date(millis));
+    }
+
+    /**
+     * @param postTime hora de post de la notificación (FechaHora, en hora de Perú): un pago
+     *                 recuperado tarde conserva la hora en que llegó
+     */
+    public static String build(PaymentMatch match, int idUsuario, int idNegocio, int notificationId,
+                               String packageName, long postTime) throws JSONException {
+        JSONObject payload = new JSONObject();
+        payload.put("IdUsuarioNegocio", idUsuario);
+        payload.put("IdNegocio", idNegocio);
+        payload.put("NombreCliente", match.getNombreCliente());
+        payload.put("Monto", match.getMonto());
+        payload.put("Estado", "ACTIVO");
+        payload.put("FechaHora", LIMA_FORMAT.get().format(new Date(postTime)));
+        payload.put("IdNotificationApp", notificationId);
+        payload.put("IdBilletera", match.getRule().getIdBilletera());
+        payload.put("PackageName", packageName);
+        return payload.toString();
+    }
+}
@@ -0,0 +1,232 @@
+package notification.listener.service.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lógica de envío y reintentos de pagos, sin hilos ni Android: el que llama decide cuándo.
+ *
+ * - {@link #sendLive(String, String, long)}: un pago recién detectado; si no se puede enviar
+ *   (política en pausa, fallo reintentable, token rechazado) va al almacén durable.
+ * - {@link #drain(String, int, Yield)}: vacía el almacén en lotes, respetando la
+ *   {@link SendPolicy} y los leases del almacén (nunca dos envíos del mismo pago a la vez).
+ */
+public final class PaymentSender {
+
+    /** Status usado cuando no hubo respuesta HTTP */
+    public static final int NO_RESPONSE = -1;
+    /** {@link #sendLive} no tocó la red (sin token o política en pausa) */
+    public static final int NOT_ATTEMPTED = -2;
+
+    /** Pago descartado por rechazo definitivo del servidor (para loguearlo) */
+    public interface Listener {
+        void onDropped(String payload, int code);
+    }
+
+    /** Permite cortar un drain entre lote y lote (p.ej. para dar paso a un pago en vivo) */
+    public interface Yield {
+        boolean shouldYield();
+    }
+
+    private final Transport transport;
+    private final PaymentStore store;
+    private final SendPolicy policy;
+    private final Clock clock;
+    private final PipelineMetrics metrics;
+    private final Object drainLock = new Object();
+    private volatile Listener listener;
+
+    public PaymentSender(Transport transport, PaymentStore store, SendPolicy policy, Clock clock,
+                         PipelineMetrics metrics) {
+        this.transport = transport;
+        this.store = store;
+        this.policy = policy;
+        this.clock = clock;
+        this.metrics = metrics;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public SendPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Envía un pago recién detectado. Todo lo que no termine en éxito o descarte queda en el almacén.
+     *
+     * @param postTime hora de la notificación, para la latencia de punta a punta (0 si no se sabe)
+     * @return status HTTP, {@link #NO_RESPONSE} o {@link #NOT_ATTEMPTED}
+     */
+    public int sendLive(String token, String payload, long postTime) throws IOException {
+        if (token == null || !policy.canAttempt(clock.now(), token)) {
+            store(payload);
+            return NOT_ATTEMPTED;
+        }
+        int code = post(token, payload);
+        SendPolicy.Outcome outcome = SendPolicy.classify(code);
+        policy.onResult(outcome, clock.now(), token);
+        switch (outcome) {
+            case SUCCESS:
+                metrics.onDelivered(postTime, clock.now());
+                break;
+            case FATAL:
+                drop(payload, code);
+                break;
+            default:
+                store(payload);
+                break;
+        }
+        return code;
+    }
+
+    /** Guarda un payload en el almacén durable sin intentar enviarlo */
+    public void store(String payload) throws IOException {
+        metrics.onRetry();
+        store.append(payload);
+    }
+
+    /**
+     * Envía el backlog en lotes de hasta {@code batchSize}, hasta vaciarlo, fallar, quedar en
+     * pausa o que {@code yield} lo pida. Solo un drain a la vez por instancia.
+     *
+     * @return cantidad de payloads resueltos (enviados o descartados)
+     */
+    public int drain(String token, int batchSize, Yield yield) throws IOException {
+        if (token == null) {
+            return 0;
+        }
+        synchronized (drainLock) {
+            int sent = 0;
+            while (store.size() > 0) {
+                List<PaymentStore.Entry> batch = store.claim(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                if (!policy.canAttempt(clock.now(), token)) {
+                    // Backoff, circuito abierto o token vencido: no tocar la red
+                    for (PaymentStore.Entry entry : batch) {
+                        store.release(entry.getSeq());
+                    }
+                    break;
+                }
+                int resolved = sendClaimed(token, batch);
+                sent += resolved;
+                if (resolved < batch.size()) {
+                    // Tras un fallo no seguir golpeando la red en esta pasada
+                    break;
+                }
+                if (yield != null && yield.shouldYield()) {
+                    break;
+                }
+            }
+            return sent;
+        }
+    }
+
+    /**
+     * Envía un grupo de entradas reclamadas: en un solo request si el servidor soporta lotes,
+     * si no una por una. Confirma las enviadas (y descarta las fatales) y libera el resto.
+     * El primer request ya fue autorizado por {@link SendPolicy#canAttempt(long, String)}.
+     */
+    private int sendClaimed(String token, List<PaymentStore.Entry> entries) throws IOException {
+        if (entries.size() > 1) {
+            List<String> payloads = new ArrayList<>(entries.size());
+            for (PaymentStore.Entry entry : entries) {
+                payloads.add(entry.getPayload());
+            }
+            int[] statuses;
+            long start = clock.now();
+            try {
+                statuses = transport.postBatch(token, payloads);
+            } catch (IOException e) {
+                statuses = new int[entries.size()];
+                Arrays.fill(statuses, NO_RESPONSE);
+            }
+            if (statuses != null) {
+                long elapsed = clock.now() - start;
+                int resolved = 0;
+                SendPolicy.Outcome batchOutcome = SendPolicy.Outcome.RETRYABLE;
+                for (int i = 0; i < entries.size(); i++) {
+                    metrics.onResponse(statuses[i], elapsed);
+                    SendPolicy.Outcome outcome = SendPolicy.classify(statuses[i]);
+                    if (resolve(entries.get(i), outcome, statuses[i])) {
+                        resolved++;
+                    }
+                    if (outcome == SendPolicy.Outcome.AUTH) {
+                        batchOutcome = outcome;
+                    } else if (outcome != SendPolicy.Outcome.RETRYABLE && batchOutcome != SendPolicy.Outcome.AUTH) {
+                        batchOutcome = SendPolicy.Outcome.SUCCESS;
+                    }
+                }
+                policy.onResult(batchOutcome, clock.now(), token);
+                return resolved;
+            }
+            // El servidor no soporta lotes: uno por uno
+        }
+
+        int resolved = 0;
+        boolean stop = false;
+        for (int i = 0; i < entries.size(); i++) {
+            PaymentStore.Entry entry = entries.get(i);
+            if (stop || (i > 0 && !policy.canAttempt(clock.now(), token))) {
+                stop = true;
+                store.release(entry.getSeq());
+                continue;
+            }
+            int code = post(token, entry.getPayload());
+            SendPolicy.Outcome outcome = SendPolicy.classify(code);
+            policy.onResult(outcome, clock.now(), token);
+            if (resolve(entry, outcome, code)) {
+                resolved++;
+            } else {
+                stop = true;
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Confirma o libera una entrada según el resultado.
+     *
+     * @return true si la entrada salió del almacén (enviada o descartada por error fatal)
+     */
+    private boolean resolve(PaymentStore.Entry entry, SendPolicy.Outcome outcome, int code) throws IOException {
+        switch (outcome) {
+            case SUCCESS:
+                store.acknowledge(entry.getSeq());
+                return true;
+            case FATAL:
+                drop(entry.getPayload(), code);
+                store.acknowledge(entry.getSeq());
+                return true;
+            default:
+                store.release(entry.getSeq());
+                return false;
+        }
+    }
+
+    private void drop(String payload, int code) {
+        metrics.onDropped();
+        Listener l = listener;
+        if (l != null) {
+            l.onDropped(payload, code);
+        }
+    }
+
+    /** @return status HTTP, o {@link #NO_RESPONSE} si no hubo respuesta */
+    private int post(String token, String payload) {
+        long start = clock.now();
+        int code;
+        try {
+            code = transport.post(token, payload);
+        } catch (Exception e) {
+            code = NO_RESPONSE;
+        }
+        metrics.onResponse(code, clock.now() - start);
+        return code;
+    }
+}
@@ -0,0 +1,42 @@
+package notification.listener.service.core;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Almacén durable de pagos pendientes de envío. La implementación real es {@link RetryJournal}.
+ *
+ * Cada entrada reclamada con {@link #claim(int)} queda "en vuelo" hasta cerrarse con
+ * {@link #acknowledge(long)} (enviada o descartada) o {@link #release(long)} (reintentar).
+ */
+public interface PaymentStore {
+
+    /** Payload pendiente con su número de secuencia */
+    final class Entry {
+        private final long seq;
+        private final String payload;
+
+        public Entry(long seq, String payload) {
+            this.seq = seq;
+            this.payload = payload;
+        }
+
+        public long getSeq() {
+            return seq;
+        }
+
+        public String getPayload() {
+            return payload;
+        }
+    }
+
+    long append(String payload) throws IOException;
+
+    List<Entry> claim(int max) throws IOException;
+
+    void acknowledge(long seq) throws IOException;
+
+    void release(long seq) throws IOException;
+
+    int size() throws IOException;
+}
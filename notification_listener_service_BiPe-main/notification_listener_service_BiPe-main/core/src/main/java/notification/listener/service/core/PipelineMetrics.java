@@ -0,0 +1,130 @@
+package notification.listener.service.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores e histogramas del pipeline nativo (notificación → regla → subida), para el panel
+ * de salud de la app vía {@code getMetrics}.
+ *
+ * Todo es atómico y sin locks: se actualiza desde los carriles del listener y el hilo de subida
+ * sin frenarlos. Son del proceso: se reinician si el proceso muere.
+ */
+public final class PipelineMetrics {
+
+    private static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    // Notificaciones
+    final AtomicLong seen = new AtomicLong();
+    final AtomicLong filtered = new AtomicLong();
+    final AtomicLong matched = new AtomicLong();
+    final AtomicLong duplicates = new AtomicLong();
+    final AtomicLong caughtUp = new AtomicLong();
+    // Subida
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong retried = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+    private final ConcurrentHashMap<Integer, AtomicLong> failuresByStatus = new ConcurrentHashMap<>();
+    // Latencias
+    final LatencyHistogram endToEnd = new LatencyHistogram();
+    final LatencyHistogram request = new LatencyHistogram();
+
+    private volatile OrderedExecutor executor;
+
+    public PipelineMetrics() {
+    }
+
+    public static PipelineMetrics get() {
+        return INSTANCE;
+    }
+
+    /** Un post/remove llegó al listener */
+    public void onSeen() {
+        seen.incrementAndGet();
+    }
+
+    /** Descartado por el filtro de paquetes antes de encolar */
+    public void onFiltered() {
+        filtered.incrementAndGet();
+    }
+
+    /** Una regla de bipe hizo match */
+    public void onMatched() {
+        matched.incrementAndGet();
+    }
+
+    /** Match repetido que no se reenvía */
+    public void onDuplicate() {
+        duplicates.incrementAndGet();
+    }
+
+    /** Notificaciones activas reenviadas a las reglas por el catch-up tras reconectar */
+    public void onCaughtUp(int count) {
+        caughtUp.addAndGet(count);
+    }
+
+    /** Respuesta de un POST (o -1 si no hubo respuesta) y cuánto tardó */
+    public void onResponse(int code, long requestMs) {
+        request.record(requestMs);
+        if (SendPolicy.classify(code) == SendPolicy.Outcome.SUCCESS) {
+            sent.incrementAndGet();
+            return;
+        }
+        AtomicLong counter = failuresByStatus.get(code);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = failuresByStatus.putIfAbsent(code, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        counter.incrementAndGet();
+    }
+
+    /** Pago confirmado por el servidor; postTime = StatusBarNotification.getPostTime() */
+    public void onDelivered(long postTime, long now) {
+        if (postTime > 0) {
+            endToEnd.record(now - postTime);
+        }
+    }
+
+    /** Pago que pasa al diario de reintentos */
+    public void onRetry() {
+        retried.incrementAndGet();
+    }
+
+    /** Pago descartado (rechazo definitivo del servidor) */
+    public void onDropped() {
+        dropped.incrementAndGet();
+    }
+
+    /** Executor del listener para medir la profundidad de sus colas (null al destruirse) */
+    public void setExecutor(OrderedExecutor executor) {
+        this.executor = executor;
+    }
+
+    /** Contadores e histogramas; los medidores de otras piezas los agrega quien llama */
+    public HashMap<String, Object> snapshot() {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("seen", seen.get());
+        data.put("filtered", filtered.get());
+        data.put("matched", matched.get());
+        data.put("duplicates", duplicates.get());
+        data.put("caughtUp", caughtUp.get());
+        data.put("sent", sent.get());
+        data.put("retried", retried.get());
+        data.put("dropped", dropped.get());
+        HashMap<Integer, Long> failures = new HashMap<>();
+        for (Map.Entry<Integer, AtomicLong> e : failuresByStatus.entrySet()) {
+            failures.put(e.getKey(), e.getValue().get());
+        }
+        data.put("failuresByStatus", failures);
+        OrderedExecutor ex = executor;
+        data.put("executorQueueDepth", ex != null ? ex.getQueueDepth() : 0);
+        data.put("endToEndLatency", endToEnd.snapshot());
+        data.put("requestLatency", request.snapshot());
+        return data;
+    }
+}
@@ -0,0 +1,143 @@
+package notification.listener.service.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.TreeMap;
+
+/**
+ * Marca de agua de la hora de post (getPostTime) de las notificaciones ya procesadas.
+ *
+ * Al reconectar el listener solo hace falta revisar las notificaciones activas posteriores a la
+ * marca: lo anterior ya pasó por las reglas. La marca solo avanza y se guarda en disco como
+ * mucho cada {@code flushIntervalMs}; si el proceso muere antes, la marca queda algo atrás y
+ * la huella "vista" de {@link DedupCache} evita reenviar lo que se vuelva a revisar.
+ *
+ * {@link #isNew(long)} deja un margen ({@code slackMs}) por debajo de la marca porque los carriles
+ * del listener no terminan estrictamente en orden de post.
+ *
+ * Un pago detectado pero que solo está en memoria se marca con {@link #hold(long)}: la marca no
+ * pasa de su hora de post hasta {@link #release(long, long)}, así si el proceso muere el catch-up
+ * lo vuelve a revisar.
+ */
+public final class PostTimeWatermark {
+
+    private final File file;
+    private final long slackMs;
+    private final long flushIntervalMs;
+
+    private long value;
+    // Mayor hora de post registrada; value se queda atrás si hay pagos retenidos
+    private long requested;
+    // Hora de post -> pagos retenidos con esa hora
+    private final TreeMap<Long, Integer> holds = new TreeMap<>();
+    private long persisted;
+    private long lastFlushAt;
+
+    private PostTimeWatermark(File file, long slackMs, long flushIntervalMs) {
+        this.file = file;
+        this.slackMs = slackMs;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /**
+     * Lee la marca guardada (0 si no hay archivo o está dañado).
+     */
+    public static PostTimeWatermark open(File file, long slackMs, long flushIntervalMs) {
+        PostTimeWatermark watermark = new PostTimeWatermark(file, slackMs, flushIntervalMs);
+        watermark.value = read(file);
+        watermark.requested = watermark.value;
+        watermark.persisted = watermark.value;
+        return watermark;
+    }
+
+    /** 0 si nunca se procesó nada (instalación nueva o archivo perdido) */
+    public synchronized long get() {
+        return value;
+    }
+
+    public synchronized boolean isInitialized() {
+        return value > 0;
+    }
+
+    /** true si una notificación con esta hora de post puede no haber pasado por las reglas */
+    public synchronized boolean isNew(long postTime) {
+        return postTime > value - slackMs;
+    }
+
+    /**
+     * Registra una notificación procesada. Guarda en disco si la marca avanzó y pasó el intervalo.
+     */
+    public synchronized void advance(long postTime, long now) throws IOException {
+        requested = Math.max(requested, postTime);
+        long target = holds.isEmpty() ? requested : Math.min(requested, holds.firstKey() - 1);
+        if (target <= value) {
+            return;
+        }
+        value = target;
+        if (now - lastFlushAt >= flushIntervalMs) {
+            flush(now);
+        }
+    }
+
+    /** Un pago con esta hora de post todavía no es durable: la marca no lo pasa hasta release */
+    public synchronized void hold(long postTime) {
+        Integer count = holds.get(postTime);
+        holds.put(postTime, count == null ? 1 : count + 1);
+    }
+
+    /** El pago retenido ya es durable: cuenta como procesado */
+    public synchronized void release(long postTime, long now) throws IOException {
+        Integer count = holds.get(postTime);
+        if (count != null) {
+            if (count > 1) {
+                holds.put(postTime, count - 1);
+            } else {
+                holds.remove(postTime);
+            }
+        }
+        advance(postTime, now);
+    }
+
+    /** Guarda la marca si cambió desde la última escritura (p.ej. al destruirse el servicio) */
+    public synchronized void flush(long now) throws IOException {
+        lastFlushAt = now;
+        if (value == persisted) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(tmp, false);
+        try {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeLong(value);
+            data.flush();
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("No se pudo reemplazar " + file);
+        }
+        persisted = value;
+    }
+
+    private static long read(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(file));
+            try {
+                return Math.max(0, in.readLong());
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            // Archivo ilegible o cortado: como si no hubiera marca (no se hace catch-up)
+            return 0;
+        }
+    }
+}
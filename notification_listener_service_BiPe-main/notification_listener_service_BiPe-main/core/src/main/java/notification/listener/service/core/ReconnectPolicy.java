@@ -0,0 +1,190 @@
+package notification.listener.service.core;
+
+/**
+ * Máquina de estados de la reconexión del listener: un solo intento a la vez, con cooldown y
+ * escalado gradual.
+ *
+ * - Primero requestRebind (suave). Solo si no reconecta antes de {@link #REBIND_TIMEOUT_MS}, o si
+ *   requestRebind falla, se pasa al toggle del componente (deshabilitar/habilitar), que abre una
+ *   ventana en la que se pierden notificaciones.
+ * - Los pedidos que llegan con un intento en curso se suman a él (coalescencia).
+ * - Tras cada intento hay un cooldown; si el intento falló, crece con backoff exponencial.
+ * - Un pedido {@link Trigger#MANUAL} (el usuario tocó "Reiniciar") ignora el cooldown.
+ *
+ * Igual que {@link SendPolicy}, todos los métodos reciben "now" para probarla sin reloj real.
+ */
+public final class ReconnectPolicy {
+
+    public enum State {
+        /** Nada en curso */
+        IDLE,
+        /** requestRebind pedido, esperando onListenerConnected */
+        REBINDING,
+        /** Componente deshabilitado/habilitado, esperando onListenerConnected */
+        TOGGLING,
+        /** El último intento no reconectó: no se reintenta hasta que pase la espera */
+        COOLDOWN
+    }
+
+    public enum Trigger {
+        /** Reconectar solo si el listener figura desconectado (boot, worker, onListenerDisconnected) */
+        AUTO,
+        /** Figura conectado pero se sospecha un binder muerto: reconectar igual, respetando cooldown */
+        SUSPECT,
+        /** Pedido del usuario: sin cooldown */
+        MANUAL
+    }
+
+    /** Lo que el coordinador debe ejecutar */
+    public enum Step {
+        NONE,
+        REBIND,
+        TOGGLE
+    }
+
+    static final long REBIND_TIMEOUT_MS = 10_000;
+    static final long TOGGLE_TIMEOUT_MS = 15_000;
+    static final long MIN_INTERVAL_MS = 20_000;
+    static final long FAILURE_BASE_MS = 30_000;
+    static final long FAILURE_MAX_MS = 15 * 60 * 1000;
+
+    private State state = State.IDLE;
+    private long deadline = 0;
+    private long cooldownUntil = 0;
+    private int consecutiveFailures = 0;
+    private String reason;
+
+    private long requests = 0;
+    private long coalesced = 0;
+    private long rebinds = 0;
+    private long toggles = 0;
+    private long recovered = 0;
+
+    /**
+     * Pedido de reconexión.
+     *
+     * @param connected lo que indica el listener (onListenerConnected sin desconexión posterior)
+     * @param rebindSupported false antes de API 24: se va directo al toggle
+     */
+    public synchronized Step request(long now, Trigger trigger, String why, boolean connected,
+                                     boolean rebindSupported) {
+        requests++;
+        if (state == State.REBINDING || state == State.TOGGLING) {
+            coalesced++;
+            return Step.NONE;
+        }
+        if (trigger == Trigger.AUTO && connected) {
+            return Step.NONE;
+        }
+        if (trigger != Trigger.MANUAL && now < cooldownUntil) {
+            return Step.NONE;
+        }
+        reason = why;
+        if (rebindSupported) {
+            state = State.REBINDING;
+            deadline = now + REBIND_TIMEOUT_MS;
+            rebinds++;
+            return Step.REBIND;
+        }
+        return startToggle(now);
+    }
+
+    /** requestRebind lanzó una excepción: escalar al toggle sin esperar el timeout */
+    public synchronized Step onRebindFailed(long now) {
+        if (state != State.REBINDING) {
+            return Step.NONE;
+        }
+        return startToggle(now);
+    }
+
+    /**
+     * Venció el plazo del paso actual.
+     *
+     * @return TOGGLE si el rebind no alcanzó; NONE si ya reconectó o si el toggle tampoco funcionó
+     */
+    public synchronized Step onDeadline(long now, boolean connected) {
+        if ((state != State.REBINDING && state != State.TOGGLING) || now < deadline) {
+            return Step.NONE;
+        }
+        if (connected) {
+            succeed(now);
+            return Step.NONE;
+        }
+        if (state == State.REBINDING) {
+            return startToggle(now);
+        }
+        consecutiveFailures++;
+        long wait = FAILURE_BASE_MS << Math.min(consecutiveFailures - 1, 10);
+        cooldownUntil = now + Math.min(wait, FAILURE_MAX_MS);
+        state = State.COOLDOWN;
+        return Step.NONE;
+    }
+
+    /** onListenerConnected: cierra el intento en curso (si lo había) */
+    public synchronized void onConnected(long now) {
+        if (state == State.REBINDING || state == State.TOGGLING) {
+            succeed(now);
+        } else if (state == State.COOLDOWN) {
+            // Reconectó solo (p.ej. el sistema terminó el rebind tarde): no penalizar lo que venga
+            consecutiveFailures = 0;
+            cooldownUntil = Math.min(cooldownUntil, now + MIN_INTERVAL_MS);
+            state = State.IDLE;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** Momento en que vence el paso actual (0 si no hay intento en curso) */
+    public synchronized long getDeadline() {
+        return state == State.REBINDING || state == State.TOGGLING ? deadline : 0;
+    }
+
+    public synchronized long getCooldownUntil() {
+        return cooldownUntil;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /** Motivo del intento en curso o del último */
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized long getRebinds() {
+        return rebinds;
+    }
+
+    public synchronized long getToggles() {
+        return toggles;
+    }
+
+    public synchronized long getRecovered() {
+        return recovered;
+    }
+
+    private Step startToggle(long now) {
+        state = State.TOGGLING;
+        deadline = now + TOGGLE_TIMEOUT_MS;
+        toggles++;
+        return Step.TOGGLE;
+    }
+
+    private void succeed(long now) {
+        recovered++;
+        consecutiveFailures = 0;
+        cooldownUntil = now + MIN_INTERVAL_MS;
+        state = State.IDLE;
+    }
+}
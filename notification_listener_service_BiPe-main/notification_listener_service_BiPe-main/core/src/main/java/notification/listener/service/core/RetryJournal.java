@@ -0,0 +1,384 @@
+package notification.listener.service.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Cola de reintentos durable: diario append-only en archivos segmentados, con fsync por escritura.
+ *
+ * - {@link #append(String)} es O(1): escribe un registro al final del segmento activo.
+ * - {@link #claim(int)} entrega payloads pendientes y los marca "en vuelo", así dos hilos
+ *   (o el listener y el worker) no envían el mismo pago a la vez.
+ * - {@link #acknowledge(long)} registra el envío exitoso en acks.log; {@link #release(long)}
+ *   devuelve el payload a pendientes.
+ * - Un segmento sin pendientes se borra; acks.log se reescribe cuando crece demasiado.
+ *
+ * Formato de cada registro: seq (long), largo (int), crc32 (int), payload UTF-8.
+ * Un registro truncado o corrupto al final de un segmento (corte de energía) se descarta al abrir.
+ */
+public final class RetryJournal implements PaymentStore {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String ACK_FILE = "acks.log";
+    private static final String ACK_TMP_FILE = "acks.tmp";
+    private static final long SEGMENT_MAX_BYTES = 256 * 1024;
+    private static final long ACK_COMPACT_BYTES = 64 * 1024;
+    private static final int HEADER_BYTES = 8 + 4 + 4;
+
+    private static final Map<String, RetryJournal> instances = new HashMap<>();
+
+    /** Entrada pendiente y el segmento que la contiene */
+    private static final class Record {
+        final Entry entry;
+        final int segment;
+
+        Record(long seq, String payload, int segment) {
+            this.entry = new Entry(seq, payload);
+            this.segment = segment;
+        }
+    }
+
+    /** Rango de secuencias de un segmento y cuántas siguen pendientes */
+    private static final class Segment {
+        final int number;
+        final File file;
+        long firstSeq = -1;
+        long lastSeq = -1;
+        int live;
+
+        Segment(int number, File file) {
+            this.number = number;
+            this.file = file;
+        }
+    }
+
+    private final File dir;
+    private final TreeMap<Long, Record> pending = new TreeMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+
+    private Segment active;
+    private FileOutputStream activeOut;
+    private long activeSize;
+    private FileOutputStream ackOut;
+    private long ackSize;
+    private long nextSeq = 1;
+
+    private RetryJournal(File dir) throws IOException {
+        this.dir = dir;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("No se pudo crear " + dir);
+        }
+        load();
+    }
+
+    /**
+     * Abre (o reutiliza) el diario del directorio indicado.
+     * Una sola instancia por directorio y proceso para que todos compartan los mismos leases.
+     */
+    public static RetryJournal open(File dir) throws IOException {
+        String key = dir.getAbsolutePath();
+        synchronized (instances) {
+            RetryJournal journal = instances.get(key);
+            if (journal == null) {
+                journal = new RetryJournal(dir);
+                instances.put(key, journal);
+            }
+            return journal;
+        }
+    }
+
+    /**
+     * Agrega un payload al final del diario y lo fuerza a disco antes de retornar.
+     */
+    @Override
+    public synchronized long append(String payload) throws IOException {
+        if (active == null || activeSize >= SEGMENT_MAX_BYTES) {
+            rotate();
+        }
+        long seq = nextSeq++;
+        byte[] data = payload.getBytes(UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(HEADER_BYTES + data.length);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeLong(seq);
+        out.writeInt(data.length);
+        out.writeInt((int) crc.getValue());
+        out.write(data);
+        out.flush();
+
+        activeOut.write(buffer.toByteArray());
+        activeOut.getFD().sync();
+        activeSize += buffer.size();
+
+        if (active.firstSeq < 0) {
+            active.firstSeq = seq;
+        }
+        active.lastSeq = seq;
+        active.live++;
+        pending.put(seq, new Record(seq, payload, active.number));
+        return seq;
+    }
+
+    /**
+     * Entrega hasta {@code max} payloads pendientes (los más antiguos primero) y los marca en vuelo.
+     * Cada uno debe cerrarse con {@link #acknowledge(long)} o {@link #release(long)}.
+     */
+    @Override
+    public synchronized List<Entry> claim(int max) {
+        List<Entry> claimed = new ArrayList<>();
+        for (Map.Entry<Long, Record> e : pending.entrySet()) {
+            if (claimed.size() >= max) {
+                break;
+            }
+            if (inFlight.add(e.getKey())) {
+                claimed.add(e.getValue().entry);
+            }
+        }
+        return claimed;
+    }
+
+    /**
+     * Marca el payload como enviado. Borra su segmento si ya no le quedan pendientes.
+     */
+    @Override
+    public synchronized void acknowledge(long seq) throws IOException {
+        inFlight.remove(seq);
+        Record record = pending.remove(seq);
+        if (record == null) {
+            return;
+        }
+        writeAck(seq);
+        Segment segment = segments.get(record.segment);
+        if (segment != null && --segment.live == 0 && segment != active) {
+            deleteSegment(segment);
+        }
+        if (ackSize >= ACK_COMPACT_BYTES) {
+            compact();
+        }
+    }
+
+    /** Devuelve un payload en vuelo a la lista de pendientes (el envío falló) */
+    @Override
+    public synchronized void release(long seq) {
+        inFlight.remove(seq);
+    }
+
+    /** Cantidad de payloads pendientes (incluye los que están en vuelo) */
+    @Override
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Reescribe acks.log dejando solo los acks de segmentos que aún existen
+     * y borra los segmentos sin pendientes.
+     */
+    public synchronized void compact() throws IOException {
+        Iterator<Segment> it = segments.values().iterator();
+        while (it.hasNext()) {
+            Segment segment = it.next();
+            if (segment.live == 0 && segment != active) {
+                if (!segment.file.delete() && segment.file.exists()) {
+                    throw new IOException("No se pudo borrar " + segment.file);
+                }
+                it.remove();
+            }
+        }
+
+        File tmp = new File(dir, ACK_TMP_FILE);
+        FileOutputStream tmpOut = new FileOutputStream(tmp, false);
+        long written = 0;
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(tmpOut));
+            for (Segment segment : segments.values()) {
+                if (segment.firstSeq < 0) {
+                    continue;
+                }
+                for (long seq = segment.firstSeq; seq <= segment.lastSeq; seq++) {
+                    if (!pending.containsKey(seq)) {
+                        out.writeLong(seq);
+                        written += 8;
+                    }
+                }
+            }
+            out.flush();
+            tmpOut.getFD().sync();
+        } finally {
+            tmpOut.close();
+        }
+        if (ackOut != null) {
+            ackOut.close();
+        }
+        File ackFile = new File(dir, ACK_FILE);
+        if (!tmp.renameTo(ackFile)) {
+            throw new IOException("No se pudo reemplazar " + ackFile);
+        }
+        ackOut = new FileOutputStream(ackFile, true);
+        ackSize = written;
+    }
+
+    private void load() throws IOException {
+        Set<Long> acked = readAcks();
+
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                int number = segmentNumber(file.getName());
+                if (number >= 0) {
+                    segments.put(number, new Segment(number, file));
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            readSegment(segment, acked);
+        }
+        Iterator<Segment> it = segments.values().iterator();
+        while (it.hasNext()) {
+            Segment segment = it.next();
+            if (segment.live == 0) {
+                segment.file.delete();
+                it.remove();
+            }
+        }
+        ackOut = new FileOutputStream(new File(dir, ACK_FILE), true);
+        compact();
+    }
+
+    private Set<Long> readAcks() throws IOException {
+        Set<Long> acked = new HashSet<>();
+        File ackFile = new File(dir, ACK_FILE);
+        if (!ackFile.exists()) {
+            return acked;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(ackFile)));
+        try {
+            while (true) {
+                acked.add(in.readLong());
+            }
+        } catch (EOFException ignored) {
+            // Fin del archivo (o ack parcial por corte de energía)
+        } finally {
+            in.close();
+        }
+        return acked;
+    }
+
+    private void readSegment(Segment segment, Set<Long> acked) throws IOException {
+        long validBytes = 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)));
+        try {
+            while (true) {
+                long seq;
+                int length;
+                int checksum;
+                byte[] data;
+                try {
+                    seq = in.readLong();
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > SEGMENT_MAX_BYTES * 4) {
+                        break;
+                    }
+                    data = new byte[length];
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                validBytes += HEADER_BYTES + length;
+                nextSeq = Math.max(nextSeq, seq + 1);
+                if (segment.firstSeq < 0) {
+                    segment.firstSeq = seq;
+                }
+                segment.lastSeq = seq;
+                if (!acked.contains(seq)) {
+                    segment.live++;
+                    pending.put(seq, new Record(seq, new String(data, UTF_8), segment.number));
+                }
+            }
+        } finally {
+            in.close();
+        }
+        if (validBytes < segment.file.length()) {
+            // Descartar la cola corrupta para que los próximos appends queden legibles
+            RandomAccessFile raf = new RandomAccessFile(segment.file, "rw");
+            try {
+                raf.setLength(validBytes);
+                raf.getFD().sync();
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        if (activeOut != null) {
+            activeOut.close();
+            if (active.live == 0) {
+                deleteSegment(active);
+            }
+        }
+        int number = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        File file = new File(dir, String.format(Locale.US, "%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        active = new Segment(number, file);
+        segments.put(number, active);
+        activeOut = new FileOutputStream(file, true);
+        activeSize = file.length();
+    }
+
+    private void writeAck(long seq) throws IOException {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) seq;
+            seq >>>= 8;
+        }
+        ackOut.write(bytes);
+        ackOut.getFD().sync();
+        ackSize += bytes.length;
+    }
+
+    private void deleteSegment(Segment segment) {
+        segment.file.delete();
+        segments.remove(segment.number);
+    }
+
+    private static int segmentNumber(String name) {
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package notification.listener.service.core;
+
+import java.util.Random;
+
+/**
+ * Política de envío al API: backoff exponencial con jitter, circuit breaker y pausa por auth.
+ *
+ * - Cada fallo reintentable aumenta la espera (BASE * 2^fallos, con jitter, hasta MAX).
+ * - Tras {@value #FAILURE_THRESHOLD} fallos seguidos el circuito se abre: no se toca la red
+ *   hasta que pase la espera; luego se permite una sola prueba (half-open).
+ * - Un 401/403 pausa los envíos hasta que cambie "flutter.jwt_token".
+ * - Solo un rechazo de validación explícito (400, 422) es fatal: el payload se descarta y no
+ *   afecta al circuito. Cualquier otro status (404, 409, 3xx...) se reintenta, como hacía la cola
+ *   original: un deploy mal enrutado no debe hacer perder pagos.
+ *
+ * Todos los métodos reciben "now" para poder probar la política sin reloj real.
+ */
+public final class SendPolicy {
+
+    public enum Outcome {
+        /** 2xx */
+        SUCCESS,
+        /** Sin respuesta, timeout, 5xx y todo status no reconocido: reintentar más tarde */
+        RETRYABLE,
+        /** 401/403: token vencido, pausar hasta que cambie */
+        AUTH,
+        /** 400/422: el servidor rechazó el payload por inválido, no tiene sentido reintentar */
+        FATAL
+    }
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+        PAUSED_AUTH
+    }
+
+    static final int FAILURE_THRESHOLD = 5;
+    static final long BASE_DELAY_MS = 5_000;
+    static final long MAX_DELAY_MS = 15 * 60 * 1000;
+
+    private final Random random;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long nextAttemptAt = 0;
+    private boolean probeInFlight = false;
+    private String pausedToken;
+
+    public SendPolicy() {
+        this(new Random());
+    }
+
+    SendPolicy(Random random) {
+        this.random = random;
+    }
+
+    /** Clasifica un status HTTP (-1 si no hubo respuesta, 0 si el lote no informó el item) */
+    public static Outcome classify(int httpCode) {
+        if (httpCode >= 200 && httpCode < 300) {
+            return Outcome.SUCCESS;
+        }
+        if (httpCode == 401 || httpCode == 403) {
+            return Outcome.AUTH;
+        }
+        if (httpCode == 400 || httpCode == 422) {
+            return Outcome.FATAL;
+        }
+        return Outcome.RETRYABLE;
+    }
+
+    /**
+     * Indica si se puede intentar un request ahora. En half-open deja pasar una sola prueba.
+     */
+    public synchronized boolean canAttempt(long now, String token) {
+        if (state == State.PAUSED_AUTH) {
+            if (token == null || token.equals(pausedToken)) {
+                return false;
+            }
+            // Flutter guardó un token nuevo: reanudar
+            reset();
+        }
+        if (now < nextAttemptAt) {
+            return false;
+        }
+        if (state == State.OPEN) {
+            state = State.HALF_OPEN;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /** Registra el resultado de un request hecho tras {@link #canAttempt(long, String)} */
+    public synchronized void onResult(Outcome outcome, long now, String token) {
+        probeInFlight = false;
+        switch (outcome) {
+            case SUCCESS:
+            case FATAL:
+                // Un fatal es culpa del payload, no del servidor: el circuito sigue sano
+                reset();
+                break;
+            case AUTH:
+                state = State.PAUSED_AUTH;
+                pausedToken = token;
+                break;
+            case RETRYABLE:
+                consecutiveFailures++;
+                nextAttemptAt = now + backoffDelay(consecutiveFailures);
+                if (state == State.HALF_OPEN || consecutiveFailures >= FAILURE_THRESHOLD) {
+                    state = State.OPEN;
+                }
+                break;
+        }
+    }
+
+    /** Momento a partir del cual vale la pena volver a intentar (0 si ya) */
+    public synchronized long getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /** Backoff exponencial con "equal jitter": entre la mitad y el total de la espera */
+    long backoffDelay(int failures) {
+        long delay = BASE_DELAY_MS << Math.min(failures - 1, 20);
+        if (delay <= 0 || delay > MAX_DELAY_MS) {
+            delay = MAX_DELAY_MS;
+        }
+        long half = delay / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        nextAttemptAt = 0;
+        pausedToken = null;
+    }
+}
@@ -0,0 +1,29 @@
+package notification.listener.service.core;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Envío de payloads al API. La implementación real es {@link YapeHttpClient}; las pruebas usan
+ * un servidor local o un doble en memoria.
+ */
+public interface Transport {
+
+    /**
+     * POST de un payload.
+     *
+     * @return status HTTP
+     * @throws IOException si no hubo respuesta (sin red, timeout, etc.)
+     */
+    int post(String token, String payload) throws IOException;
+
+    /**
+     * POST de varios payloads en un solo request.
+     *
+     * @return status por payload (0 si el servidor no informó el item), o null si el
+     *         servidor no admite lotes y hay que enviar uno por uno. Un status fatal solo puede
+     *         venir del servidor para ese item, nunca de un fallo del lote completo
+     * @throws IOException si no hubo respuesta
+     */
+    int[] postBatch(String token, List<String> payloads) throws IOException;
+}
@@ -0,0 +1,257 @@
+package notification.listener.service.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hilo de subida: cola en memoria acotada, envío en vivo y vaciado periódico del backlog.
+ *
+ * {@link #submit(String, long, Durability)} nunca bloquea; si la cola está llena el payload va directo al
+ * almacén durable. Tras un envío exitoso (hay red) o un {@link #requestDrain()} el backlog se
+ * vacía en lotes, cediendo el paso a los pagos nuevos entre lote y lote.
+ *
+ * Mientras un payload está solo en la cola en memoria no es durable: el aviso {@link Durability}
+ * de {@link #submit(String, long, Durability)} llega recién cuando se envió, quedó en el almacén o
+ * se descartó, para que el que llama no registre nada en disco antes que el pago. Si no se pudo
+ * enviar ni guardar también avisa, para que el que llama deshaga lo que reservó.
+ */
+public final class UploadWorker {
+
+    /** Token vigente para el API (null si no hay sesión) */
+    public interface TokenSource {
+        String getToken();
+    }
+
+    /** Para registrar lo que pasa en el hilo (logcat en Android, consola en la JVM) */
+    public interface Listener {
+        /** Resultado de un envío en vivo: status HTTP, {@link PaymentSender#NO_RESPONSE} o NOT_ATTEMPTED */
+        void onLiveResult(int code);
+
+        void onError(String message, Exception e);
+    }
+
+    /** Destino final de un payload de {@link #submit(String, long, Durability)} */
+    public interface Durability {
+        /**
+         * @param durable true si se envió, quedó en el almacén o se descartó; false si no se pudo
+         *                enviar ni guardar y el payload se perdió
+         */
+        void onSettled(boolean durable);
+    }
+
+    // Marca para despertar al hilo sin payload (comparación por identidad)
+    private static final Pending WAKE_UP = new Pending(null, 0, null);
+
+    /** Payload en memoria con la hora de la notificación (para medir la latencia de punta a punta) */
+    private static final class Pending {
+        final String payload;
+        final long postTime;
+        final Durability durability;
+
+        Pending(String payload, long postTime, Durability durability) {
+            this.payload = payload;
+            this.postTime = postTime;
+            this.durability = durability;
+        }
+    }
+
+    private final PaymentSender sender;
+    private final TokenSource tokens;
+    private final int batchSize;
+    private final long intervalMs;
+    private final BlockingQueue<Pending> queue;
+    private volatile Listener listener;
+    private volatile long nextBacklogDrainAt = 0;
+    private volatile boolean busy = false;
+    private Thread thread;
+
+    /**
+     * @param capacity tamaño de la cola en memoria
+     * @param batchSize máximo de payloads por request al vaciar el backlog
+     * @param intervalMs cada cuánto se revisa el backlog aunque no lleguen pagos
+     */
+    public UploadWorker(PaymentSender sender, TokenSource tokens, int capacity, int batchSize, long intervalMs) {
+        this.sender = sender;
+        this.tokens = tokens;
+        this.batchSize = batchSize;
+        this.intervalMs = intervalMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public synchronized void start(String threadName) {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::runLoop, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** Detiene el hilo; lo que quede en memoria se puede guardar con {@link #persistPending()} */
+    public synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Encola un payload para envío.
+     *
+     * @param postTime hora de la notificación que lo originó
+     * @param durability se llama una vez, en el hilo que lo resuelve, cuando el payload ya no
+     *                   depende de la memoria o se perdió. Puede ser null
+     * @return false si la cola estaba llena y el payload se intentó guardar directamente en el almacén
+     */
+    public boolean submit(String payload, long postTime, Durability durability) {
+        Pending pending = new Pending(payload, postTime, durability);
+        if (queue.offer(pending)) {
+            return true;
+        }
+        store(pending);
+        return false;
+    }
+
+    /** Pide al hilo que intente vaciar el backlog cuanto antes */
+    public void requestDrain() {
+        nextBacklogDrainAt = 0;
+        queue.offer(WAKE_UP);
+    }
+
+    /**
+     * Mueve al almacén lo que quede en memoria (p.ej. cuando el servicio se destruye).
+     *
+     * @return cantidad de payloads movidos
+     */
+    public int persistPending() {
+        Pending pending;
+        int moved = 0;
+        while ((pending = queue.poll()) != null) {
+            if (pending != WAKE_UP) {
+                store(pending);
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Envía el backlog en el hilo que llama. Los leases del almacén evitan envíos duplicados
+     * si otro hilo (p.ej. un worker periódico) lo vacía a la vez.
+     *
+     * @return cantidad de payloads enviados con éxito
+     */
+    public int drainBacklog() {
+        return drainBacklog(false);
+    }
+
+    /** Payloads esperando en memoria */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /** true si no hay nada en memoria ni un envío en curso */
+    public boolean isIdle() {
+        return !busy && queue.isEmpty();
+    }
+
+    public PaymentSender getSender() {
+        return sender;
+    }
+
+    private int drainBacklog(boolean yieldToLive) {
+        try {
+            // Dar prioridad a los pagos nuevos entre lote y lote
+            return sender.drain(tokens.getToken(), batchSize, yieldToLive ? () -> !queue.isEmpty() : null);
+        } catch (Exception e) {
+            error("Error al vaciar cola nativa", e);
+            return 0;
+        }
+    }
+
+    private void runLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long wait = Math.max(0, nextBacklogDrainAt - System.currentTimeMillis());
+                Pending pending = queue.poll(wait, TimeUnit.MILLISECONDS);
+                busy = true;
+                if (pending != null && pending != WAKE_UP) {
+                    sendLive(pending);
+                }
+                long now = System.currentTimeMillis();
+                if (now >= nextBacklogDrainAt) {
+                    nextBacklogDrainAt = now + intervalMs;
+                    drainBacklog(true);
+                    // Si la política pide esperar, reintentar justo cuando termine el backoff
+                    long retryAt = sender.getPolicy().getNextAttemptAt();
+                    if (retryAt > System.currentTimeMillis()) {
+                        nextBacklogDrainAt = retryAt;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                error("Error en hilo de subida", e);
+            } finally {
+                busy = false;
+            }
+        }
+    }
+
+    private void sendLive(Pending pending) {
+        int code;
+        try {
+            code = sender.sendLive(tokens.getToken(), pending.payload, pending.postTime);
+        } catch (Exception e) {
+            // Falló el envío y también el almacén: el pago solo existía en memoria
+            error("Error al agregar a cola nativa", e);
+            settle(pending, false);
+            return;
+        }
+        // Enviado, en el almacén o descartado: ya no depende de la memoria
+        settle(pending, true);
+        if (SendPolicy.classify(code) == SendPolicy.Outcome.SUCCESS) {
+            // Hay red: aprovechar para vaciar el backlog pronto
+            nextBacklogDrainAt = 0;
+        }
+        Listener l = listener;
+        if (l != null) {
+            l.onLiveResult(code);
+        }
+    }
+
+    private void store(Pending pending) {
+        try {
+            sender.store(pending.payload);
+        } catch (Exception e) {
+            error("Error al agregar a cola nativa", e);
+            settle(pending, false);
+            return;
+        }
+        settle(pending, true);
+    }
+
+    private void settle(Pending pending, boolean durable) {
+        if (pending.durability == null) {
+            return;
+        }
+        try {
+            pending.durability.onSettled(durable);
+        } catch (Exception e) {
+            error("Error tras resolver el pago", e);
+        }
+    }
+
+    private void error(String message, Exception e) {
+        Listener l = listener;
+        if (l != null) {
+            l.onError(message, e);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package notification.listener.service.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Cliente HTTP compartido para el API de BiPE.
+ *
+ * - Reutiliza conexiones: siempre lee y cierra el cuerpo de la respuesta y nunca llama a
+ *   disconnect(), así el socket vuelve al pool de HttpURLConnection (keep-alive).
+ * - Usa un único SSLSocketFactory con caché de sesiones para que las reconexiones
+ *   reanuden la sesión TLS en lugar de hacer el handshake completo.
+ * - {@link #prewarm()} abre la conexión por adelantado (p.ej. en onListenerConnected).
+ * - {@link #postBatch(String, List)} envía varios payloads en un solo request a /yape/batch
+ *   cuando el servidor lo soporta (negociado con el header {@value #BATCH_HEADER}).
+ */
+public final class YapeHttpClient implements Transport {
+
+    public static final String API_BASE = "https://apialert.c-centralizador.com/api";
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 15000;
+    private static final long PREWARM_MIN_INTERVAL_MS = 60_000;
+
+    /** Header que pide (request) y confirma (response) el modo lote */
+    public static final String BATCH_HEADER = "X-Bipe-Batch";
+    static final String BATCH_PATH = "/yape/batch";
+    // Tras detectar que el servidor no soporta lotes, no volver a intentar por un rato
+    private static final long BATCH_RETRY_AFTER_MS = 6 * 60 * 60 * 1000L;
+
+    private static final YapeHttpClient shared = new YapeHttpClient(API_BASE);
+
+    /** Respuesta ya leída por completo (la conexión queda libre para reutilizarse) */
+    public static final class Response {
+        private final int code;
+        private final String body;
+        private final Map<String, List<String>> headers;
+
+        Response(int code, String body, Map<String, List<String>> headers) {
+            this.code = code;
+            this.body = body;
+            this.headers = headers;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getHeader(String name) {
+            if (headers == null) {
+                return null;
+            }
+            for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+                if (name.equalsIgnoreCase(entry.getKey()) && !entry.getValue().isEmpty()) {
+                    return entry.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        public boolean isOk() {
+            return code == 200;
+        }
+    }
+
+    private final String baseUrl;
+    private final SSLSocketFactory sslSocketFactory;
+    private final AtomicBoolean prewarming = new AtomicBoolean(false);
+    private volatile long lastPrewarmAt = 0;
+    private volatile long batchUnsupportedUntil = 0;
+
+    /** @param baseUrl p.ej. {@link #API_BASE}, o un servidor local en pruebas de carga */
+    public YapeHttpClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+        this.sslSocketFactory = createSocketFactory();
+    }
+
+    public static YapeHttpClient shared() {
+        return shared;
+    }
+
+    /**
+     * POST de un JSON a {@code baseUrl + path} con el token Bearer.
+     *
+     * @throws IOException si no hubo respuesta HTTP (sin red, timeout, etc.)
+     */
+    public Response postJson(String path, String token, String json) throws IOException {
+        return post(path, token, json, false);
+    }
+
+    /** POST a /yape (un pago) */
+    @Override
+    public int post(String token, String payload) throws IOException {
+        return postJson("/yape", token, payload).getCode();
+    }
+
+    /** true si vale la pena intentar {@link #postBatch(String, List)} */
+    public boolean isBatchEnabled() {
+        return System.currentTimeMillis() >= batchUnsupportedUntil;
+    }
+
+    /**
+     * Envía varios payloads como un arreglo JSON a /yape/batch.
+     *
+     * El servidor debe responder con el header {@value #BATCH_HEADER} y un arreglo con un
+     * resultado por payload, en el mismo orden: números (status HTTP) u objetos
+     * {"index": i, "status": s}.
+     *
+     * @return status HTTP por item (si falla el lote completo, todos llevan el status del lote,
+     *         salvo un 400/422 que queda en 0; 0 si el servidor no informó el item), o null si la
+     *         respuesta no trae {@value #BATCH_HEADER} y hay que enviar uno por uno
+     * @throws IOException si no hubo respuesta HTTP
+     */
+    @Override
+    public int[] postBatch(String token, List<String> payloads) throws IOException {
+        if (!isBatchEnabled()) {
+            return null;
+        }
+        StringBuilder json = new StringBuilder(payloads.size() * 256);
+        json.append('[');
+        for (int i = 0; i < payloads.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(payloads.get(i));
+        }
+        json.append(']');
+
+        Response response = post(BATCH_PATH, token, json.toString(), true);
+        int code = response.getCode();
+        if (response.getHeader(BATCH_HEADER) == null) {
+            // No respondió la API de lotes (servidor viejo, proxy): el status no dice nada de
+            // cada pago. Se envían uno por uno, y si rechazó el arreglo no se vuelve a probar
+            if (isUnsupportedStatus(code) || (code >= 200 && code < 300) || code == 400 || code == 422) {
+                batchUnsupportedUntil = System.currentTimeMillis() + BATCH_RETRY_AFTER_MS;
+            }
+            return null;
+        }
+        int[] statuses = new int[payloads.size()];
+        if (code != 200 && code != 207) {
+            // Falló el lote completo (p.ej. 401 o 503): ningún item se envió. Un rechazo del lote
+            // entero (400/422) no señala qué pago es inválido: se reintentan todos, no se descarta ninguno
+            Arrays.fill(statuses, SendPolicy.classify(code) == SendPolicy.Outcome.FATAL ? 0 : code);
+            return statuses;
+        }
+        try {
+            JSONArray arr = new JSONArray(response.getBody());
+            for (int i = 0; i < arr.length(); i++) {
+                Object item = arr.get(i);
+                int index = i;
+                int status;
+                if (item instanceof JSONObject) {
+                    index = ((JSONObject) item).optInt("index", i);
+                    status = ((JSONObject) item).optInt("status", 0);
+                } else {
+                    status = arr.optInt(i, 0);
+                }
+                if (index >= 0 && index < statuses.length) {
+                    statuses[index] = status;
+                }
+            }
+        } catch (JSONException e) {
+            // Respuesta ilegible: tratar todo como no enviado, se reintentará
+            return new int[payloads.size()];
+        }
+        return statuses;
+    }
+
+    private Response post(String path, String token, String json, boolean batch) throws IOException {
+        byte[] body = json.getBytes("UTF-8");
+        HttpURLConnection conn = open(path);
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setFixedLengthStreamingMode(body.length);
+        conn.setRequestProperty("Content-Type", "application/json");
+        conn.setRequestProperty("Authorization", "Bearer " + token);
+        if (batch) {
+            conn.setRequestProperty(BATCH_HEADER, "1");
+        }
+        OutputStream os = conn.getOutputStream();
+        try {
+            os.write(body);
+        } finally {
+            os.close();
+        }
+        return readResponse(conn);
+    }
+
+    /**
+     * Abre la conexión TCP/TLS en segundo plano para que el primer pago no pague el handshake.
+     * Se ignora si ya hay un precalentamiento en curso o si se hizo hace menos de un minuto.
+     */
+    public void prewarm() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrewarmAt < PREWARM_MIN_INTERVAL_MS || !prewarming.compareAndSet(false, true)) {
+            return;
+        }
+        lastPrewarmAt = now;
+        Thread thread = new Thread(() -> {
+            try {
+                HttpURLConnection conn = open("/yape");
+                conn.setRequestMethod("HEAD");
+                readResponse(conn);
+            } catch (Exception ignored) {
+                // Sin red: el primer envío abrirá la conexión
+            } finally {
+                prewarming.set(false);
+            }
+        }, "BipePrewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+        if (conn instanceof HttpsURLConnection && sslSocketFactory != null) {
+            ((HttpsURLConnection) conn).setSSLSocketFactory(sslSocketFactory);
+        }
+        conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        conn.setReadTimeout(READ_TIMEOUT_MS);
+        conn.setUseCaches(false);
+        conn.setRequestProperty("Connection", "keep-alive");
+        return conn;
+    }
+
+    /**
+     * Lee el código y el cuerpo completo. No se llama a disconnect(): consumir y cerrar el
+     * stream es lo que permite devolver el socket al pool.
+     */
+    private static Response readResponse(HttpURLConnection conn) throws IOException {
+        int code = conn.getResponseCode();
+        InputStream in = code >= 400 ? conn.getErrorStream() : conn.getInputStream();
+        String body = null;
+        if (in != null) {
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                body = out.toString("UTF-8");
+            } finally {
+                in.close();
+            }
+        }
+        return new Response(code, body, conn.getHeaderFields());
+    }
+
+    private static boolean isUnsupportedStatus(int code) {
+        return code == 404 || code == 405 || code == 415 || code == 501;
+    }
+
+    private static SSLSocketFactory createSocketFactory() {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, null, null);
+            SSLSessionContext sessions = context.getClientSessionContext();
+            if (sessions != null) {
+                sessions.setSessionCacheSize(16);
+                sessions.setSessionTimeout(24 * 60 * 60);
+            }
+            return context.getSocketFactory();
+        } catch (Exception e) {
+            // Si falla, HttpsURLConnection usa su factory por defecto
+            return null;
+        }
+    }
+}
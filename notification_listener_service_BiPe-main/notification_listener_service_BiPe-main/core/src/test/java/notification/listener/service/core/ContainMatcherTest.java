@@ -0,0 +1,62 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ContainMatcherTest {
+
+    @Test
+    public void findsOverlappingKeywords() {
+        ContainMatcher matcher = new ContainMatcher(Arrays.asList("aba", "bab", "abab", "c"));
+        assertArrayEquals(new boolean[]{true, true, true, false}, matcher.scan("ababa"));
+        assertArrayEquals(new boolean[]{true, false, false, false}, matcher.scan("xabax"));
+    }
+
+    @Test
+    public void findsKeywordThatIsSuffixOfAnother() {
+        // "pago" y "go" terminan en el mismo nodo que "un pago" vía los enlaces de fallo
+        ContainMatcher matcher = new ContainMatcher(Arrays.asList("te envió un pago", "pago", "go", "he", "she"));
+        assertArrayEquals(new boolean[]{true, true, true, false, false},
+                matcher.scan("Yape! Ana te envió un pago por S/ 5"));
+        assertArrayEquals(new boolean[]{false, true, true, false, false}, matcher.scan("pago recibido"));
+        assertArrayEquals(new boolean[]{false, false, false, true, true}, matcher.scan("ushers"));
+    }
+
+    @Test
+    public void emptyKeywordListFindsNothing() {
+        ContainMatcher matcher = new ContainMatcher(Collections.<String>emptyList());
+        assertEquals(0, matcher.scan("Ana te envió un pago").length);
+        assertEquals(0, matcher.scan("").length);
+    }
+
+    @Test
+    public void emptyKeywordAlwaysMatchesLikeStringContains() {
+        ContainMatcher matcher = new ContainMatcher(Arrays.asList("", "pago"));
+        assertArrayEquals(new boolean[]{true, false}, matcher.scan(""));
+    }
+
+    @Test
+    public void agreesWithStringContains() {
+        List<String> keywords = Arrays.asList("ab", "b", "bca", "aab", "cab", "abcab", "ca");
+        ContainMatcher matcher = new ContainMatcher(keywords);
+        Random random = new Random(7);
+        for (int n = 0; n < 500; n++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                text.append((char) ('a' + random.nextInt(3)));
+            }
+            boolean[] found = matcher.scan(text);
+            for (int k = 0; k < keywords.size(); k++) {
+                assertEquals(text + " / " + keywords.get(k), text.toString().contains(keywords.get(k)), found[k]);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DedupCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rejectsDuplicatesInsideWindow() throws Exception {
+        DedupCache cache = DedupCache.open(folder.newFile("a.bin"), 10, 1000);
+        assertTrue(cache.add("p|key|10.0|Ana", 0));
+        assertFalse(cache.add("p|key|10.0|Ana", 500));
+        assertTrue(cache.contains("p|key|10.0|Ana", 999));
+        assertFalse(cache.contains("p|key|10.0|Ana", 1000));
+        assertTrue(cache.add("p|key|10.0|Ana", 1000));
+    }
+
+    @Test
+    public void evictsOldestWhenFull() throws Exception {
+        DedupCache cache = DedupCache.open(folder.newFile("b.bin"), 3, 60_000);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.add("k" + i, i));
+        }
+        assertEquals(3, cache.size());
+        assertFalse(cache.contains("k0", 10));
+        assertTrue(cache.contains("k4", 10));
+    }
+
+    @Test
+    public void survivesReopen() throws Exception {
+        File file = new File(folder.getRoot(), "c.bin");
+        long now = System.currentTimeMillis();
+        DedupCache cache = DedupCache.open(file, 100, 60_000);
+        for (int i = 0; i < 250; i++) {
+            cache.add("k" + i, now);
+        }
+        forget(file);
+
+        DedupCache reopened = DedupCache.open(file, 100, 60_000);
+        assertEquals(100, reopened.size());
+        assertTrue(reopened.contains("k249", now));
+        assertFalse(reopened.contains("k0", now));
+        // El archivo se compacta: nunca pasa del doble de la capacidad
+        assertTrue(file.length() <= 2 * 100 * 16);
+    }
+
+    @Test
+    public void reservedFingerprintsReachDiskOnlyOnCommit() throws Exception {
+        File file = new File(folder.getRoot(), "d.bin");
+        long now = System.currentTimeMillis();
+        DedupCache cache = DedupCache.open(file, 100, 60_000);
+        assertTrue(cache.reserve("v|key|1|texto", now));
+        assertTrue(cache.reserve("p|key|10.0|Ana", now));
+        assertFalse(cache.reserve("p|key|10.0|Ana", now));
+        assertFalse(cache.add("p|key|10.0|Ana", now));
+        cache.commit("p|key|10.0|Ana");
+        forget(file);
+
+        // El proceso murió antes de confirmar la "vista": solo sobrevive la huella confirmada
+        DedupCache reopened = DedupCache.open(file, 100, 60_000);
+        assertFalse(reopened.contains("v|key|1|texto", now));
+        assertTrue(reopened.contains("p|key|10.0|Ana", now));
+    }
+
+    /** Simula un reinicio del proceso quitando la instancia compartida */
+    @SuppressWarnings("unchecked")
+    private static void forget(File file) throws Exception {
+        Field field = DedupCache.class.getDeclaredField("instances");
+        field.setAccessible(true);
+        ((Map<String, DedupCache>) field.get(null)).remove(file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,69 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import notification.listener.service.core.HealthPolicy.Status;
+import notification.listener.service.core.HealthPolicy.Step;
+
+public class HealthPolicyTest {
+
+    @Test
+    public void probesOnlyWhenHeartbeatsGoStale() {
+        HealthPolicy policy = new HealthPolicy();
+        assertTrue(policy.onConnected(0));
+        assertEquals(Status.HEALTHY, policy.getStatus());
+
+        policy.onEvent(5 * 60 * 1000);
+        assertEquals(Step.NONE, policy.evaluate(10 * 60 * 1000));
+        assertEquals(5 * 60 * 1000 + HealthPolicy.QUIET_MS, policy.nextCheckAt());
+        assertEquals(Step.PROBE, policy.evaluate(policy.nextCheckAt()));
+    }
+
+    @Test
+    public void quietPeriodsSpaceOutProbesUntilNextHeartbeat() {
+        HealthPolicy policy = new HealthPolicy();
+        policy.onConnected(0);
+        long now = HealthPolicy.QUIET_MS;
+        assertFalse(policy.onProbe(now, true));
+        assertEquals(2 * HealthPolicy.QUIET_MS, policy.getQuietMs());
+        assertEquals(now + 2 * HealthPolicy.QUIET_MS, policy.nextCheckAt());
+
+        for (int i = 0; i < 10; i++) {
+            policy.onProbe(policy.nextCheckAt(), true);
+        }
+        assertEquals(HealthPolicy.MAX_QUIET_MS, policy.getQuietMs());
+
+        policy.onCallback(policy.nextCheckAt());
+        assertEquals(HealthPolicy.QUIET_MS, policy.getQuietMs());
+    }
+
+    @Test
+    public void deadBinderAsksForReconnectAtMostOncePerRetry() {
+        HealthPolicy policy = new HealthPolicy();
+        policy.onConnected(0);
+        long now = HealthPolicy.QUIET_MS;
+        assertTrue(policy.onProbe(now, false));
+        assertEquals(Status.DEAD, policy.getStatus());
+
+        assertEquals(Step.RECONNECT, policy.evaluate(now));
+        assertEquals(Step.NONE, policy.evaluate(now + 1));
+        assertEquals(Step.RECONNECT, policy.evaluate(now + HealthPolicy.RECONNECT_RETRY_MS));
+
+        // Llegan notificaciones otra vez: estaba vivo
+        assertTrue(policy.onEvent(now + HealthPolicy.RECONNECT_RETRY_MS + 1));
+        assertEquals(Status.HEALTHY, policy.getStatus());
+    }
+
+    @Test
+    public void startsDisconnectedUntilListenerConnects() {
+        HealthPolicy policy = new HealthPolicy();
+        assertEquals(Status.DISCONNECTED, policy.getStatus());
+        assertEquals(Step.RECONNECT, policy.evaluate(HealthPolicy.RECONNECT_RETRY_MS));
+        assertTrue(policy.onConnected(HealthPolicy.RECONNECT_RETRY_MS + 1));
+        assertTrue(policy.onDisconnected(HealthPolicy.RECONNECT_RETRY_MS + 2));
+    }
+}
@@ -0,0 +1,45 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesUseBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(40);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(900);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(50, histogram.percentile(90));
+        assertEquals(900, histogram.percentile(99));
+    }
+
+    @Test
+    public void snapshotReportsOverflowAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(400000);
+        Map<String, Object> data = histogram.snapshot();
+        assertEquals(2L, data.get("count"));
+        assertEquals(400000L, data.get("maxMs"));
+        assertEquals(400000L, data.get("p99Ms"));
+        List<?> buckets = (List<?>) data.get("buckets");
+        assertEquals(1L, buckets.get(0));
+        assertEquals(1L, buckets.get(buckets.size() - 1));
+    }
+
+    @Test
+    public void emptyHistogramIsZero() {
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+}
@@ -0,0 +1,126 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class LedgerSqlTest {
+
+    private static final String YAPE = "com.bcp.innovacxion.yapeapp";
+    // 2024-01-01T05:00:00Z = 00:00 en Lima (UTC-5)
+    private static final long MIDNIGHT_LIMA = 1704085200000L;
+
+    /** Base en memoria con la misma semántica: huella UNIQUE con CONFLICT_IGNORE, totales por (día, billetera) */
+    private static final class MemoryWriter implements LedgerSql.Writer {
+        final Map<String, LedgerSql.Payment> payments = new HashMap<>();
+        final Map<String, long[]> totals = new HashMap<>();
+        int inserts;
+
+        @Override
+        public boolean insertPayment(LedgerSql.Payment payment) {
+            if (payments.containsKey(payment.fingerprint)) {
+                return false;
+            }
+            payments.put(payment.fingerprint, payment);
+            return true;
+        }
+
+        @Override
+        public int addToDailyTotal(String day, int idBilletera, long cents) {
+            long[] total = totals.get(day + "|" + idBilletera);
+            if (total == null) {
+                return 0;
+            }
+            total[0]++;
+            total[1] += cents;
+            return 1;
+        }
+
+        @Override
+        public void insertDailyTotal(String day, int idBilletera, long cents) {
+            inserts++;
+            totals.put(day + "|" + idBilletera, new long[]{1, cents});
+        }
+    }
+
+    private static PaymentMatch match(String text) throws Exception {
+        BipeRuleSet rules = BipeRuleSet.compile("[{\"contain\":\"te envió un pago\",\"packageName\":\"" + YAPE
+                + "\",\"regex\":\"(.+) te envió un pago por S/ ([\\\\d,.]+)\",\"hasMonto\":true,\"idBilletera\":3}]");
+        return PaymentMatch.find(rules, YAPE, text);
+    }
+
+    @Test
+    public void replayedPaymentIsNotCountedTwice() throws Exception {
+        MemoryWriter db = new MemoryWriter();
+        PaymentMatch ana = match("Ana te envió un pago por S/ 10.10");
+        assertTrue(LedgerSql.record(db, "k1", YAPE, ana, MIDNIGHT_LIMA));
+        assertFalse(LedgerSql.record(db, "k1", YAPE, ana, MIDNIGHT_LIMA));
+
+        assertEquals(1, db.payments.size());
+        long[] total = db.totals.get("2024-01-01|3");
+        assertEquals(1, total[0]);
+        assertEquals(1010, total[1]);
+    }
+
+    @Test
+    public void totalsInsertOncePerDayThenUpdate() throws Exception {
+        MemoryWriter db = new MemoryWriter();
+        LedgerSql.record(db, "k1", YAPE, match("Ana te envió un pago por S/ 0.10"), MIDNIGHT_LIMA);
+        LedgerSql.record(db, "k2", YAPE, match("Luis te envió un pago por S/ 0.20"), MIDNIGHT_LIMA + 1);
+        // Un ms antes de medianoche en Lima cae en el día anterior
+        LedgerSql.record(db, "k3", YAPE, match("Eva te envió un pago por S/ 5"), MIDNIGHT_LIMA - 1);
+
+        assertEquals(2, db.inserts);
+        long[] today = db.totals.get("2024-01-01|3");
+        assertEquals(2, today[0]);
+        // En céntimos: 0.10 + 0.20 es exacto
+        assertEquals(30, today[1]);
+        assertEquals(500, db.totals.get("2023-12-31|3")[1]);
+    }
+
+    @Test
+    public void pageQueryUsesKeysetCursor() {
+        LedgerSql.Query first = LedgerSql.paymentsPage(null, null, null, null, null, 0);
+        assertEquals("1", first.where);
+        assertEquals(0, first.args.length);
+        assertEquals(LedgerSql.DEFAULT_PAGE, first.pageSize);
+        assertEquals(String.valueOf(LedgerSql.DEFAULT_PAGE + 1), first.limit());
+
+        LedgerSql.Query next = LedgerSql.paymentsPage(100L, 200L, 3, 150L, 7L, 10_000);
+        assertEquals(LedgerSql.MAX_PAGE, next.pageSize);
+        assertEquals("1 AND id_billetera = ? AND posted_at >= ? AND posted_at < ?"
+                + " AND (posted_at < ? OR (posted_at = ? AND _id < ?))", next.where);
+        assertArrayEquals(new String[]{"3", "100", "200", "150", "150", "7"}, next.args);
+    }
+
+    @Test
+    public void nextCursorOnlyWhenExtraRowArrives() {
+        List<HashMap<String, Object>> rows = new ArrayList<>();
+        for (long id = 5; id >= 1; id--) {
+            HashMap<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("postedAt", 1_000L);
+            rows.add(row);
+        }
+        HashMap<String, Object> page = LedgerSql.page(rows, 4);
+        assertEquals(4, ((List<?>) page.get("items")).size());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> cursor = (Map<String, Object>) page.get("nextCursor");
+        // El cursor es la última fila entregada, no la fila extra
+        assertEquals(2L, cursor.get("id"));
+        assertEquals(1_000L, cursor.get("postedAt"));
+
+        HashMap<String, Object> last = LedgerSql.page(rows.subList(0, 3), 4);
+        assertEquals(3, ((List<?>) last.get("items")).size());
+        assertNull(last.get("nextCursor"));
+    }
+}
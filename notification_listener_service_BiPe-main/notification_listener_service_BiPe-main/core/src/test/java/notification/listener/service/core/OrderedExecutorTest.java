@@ -0,0 +1,67 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class OrderedExecutorTest {
+
+    @Test
+    public void keepsOrderPerKey() throws Exception {
+        OrderedExecutor executor = new OrderedExecutor("test", 4, "test-priority", 1);
+        final Map<String, List<Integer>> seen = Collections.synchronizedMap(new HashMap<String, List<Integer>>());
+        for (int i = 0; i < 2000; i++) {
+            final String key = "key" + (i % 37);
+            final int seq = i;
+            executor.execute(key, (i % 37) % 5 == 0, () -> {
+                synchronized (seen) {
+                    List<Integer> list = seen.get(key);
+                    if (list == null) {
+                        list = new ArrayList<>();
+                        seen.put(key, list);
+                    }
+                    list.add(seq);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (List<Integer> list : seen.values()) {
+            for (int i = 1; i < list.size(); i++) {
+                assertTrue(list.get(i - 1) < list.get(i));
+            }
+        }
+        assertEquals(37, seen.size());
+    }
+
+    @Test
+    public void priorityLaneIsNotBlockedByNormalLanes() throws Exception {
+        OrderedExecutor executor = new OrderedExecutor("test", 1, "test-priority", 1);
+        final CountDownLatch release = new CountDownLatch(1);
+        executor.execute("slow", false, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        final CountDownLatch paid = new CountDownLatch(1);
+        executor.execute("payment", true, paid::countDown);
+        assertTrue(paid.await(2, TimeUnit.SECONDS));
+        release.countDown();
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(2, TimeUnit.SECONDS));
+        assertFalse(executor.execute("late", false, () -> { }));
+    }
+}
@@ -0,0 +1,55 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class PaymentMatchTest {
+
+    private static final String YAPE = "com.bcp.innovacxion.yapeapp";
+
+    private static BipeRuleSet rules() throws Exception {
+        return BipeRuleSet.compile("["
+                + "{\"contain\":\"te envió un pago\",\"packageName\":\"" + YAPE + "\","
+                + "\"regex\":\"(.+) te envió un pago por S/ ([\\\\d,.]+)\",\"hasMonto\":true,\"idBilletera\":1},"
+                + "{\"contain\":\"Plin\",\"packageName\":\"-1\","
+                + "\"regex\":\"Plin S/ ([\\\\d,.]+)\",\"hasMonto\":true,\"idBilletera\":2}"
+                + "]");
+    }
+
+    @Test
+    public void extractsNameAndAmount() throws Exception {
+        PaymentMatch match = PaymentMatch.find(rules(), YAPE, "Ana Pérez te envió un pago por S/ 1,250.50");
+        assertEquals("Ana Pérez", match.getNombreCliente());
+        assertEquals(1250.50, match.getMonto(), 0.001);
+        assertEquals(1, match.getRule().getIdBilletera());
+    }
+
+    @Test
+    public void singleGroupUsesContainAsName() throws Exception {
+        PaymentMatch match = PaymentMatch.find(rules(), "com.otra.app", "Recibiste Plin S/ 20");
+        assertEquals("Plin", match.getNombreCliente());
+        assertEquals(20.0, match.getMonto(), 0.001);
+    }
+
+    @Test
+    public void noMatchReturnsNull() throws Exception {
+        assertNull(PaymentMatch.find(rules(), YAPE, "Tu código de verificación es 1234"));
+        assertEquals(0.0, PaymentMatch.parseMonto("S/ abc"), 0.0);
+    }
+
+    @Test
+    public void payloadUsesLimaTime() throws Exception {
+        PaymentMatch match = PaymentMatch.find(rules(), YAPE, "Ana te envió un pago por S/ 5");
+        // 2024-01-01T05:00:00Z = 00:00 en Lima (UTC-5)
+        JSONObject payload = new JSONObject(PaymentPayload.build(match, 7, 9, 42, YAPE, 1704085200000L));
+        assertEquals("2024-01-01T00:00:00.000", payload.getString("FechaHora"));
+        assertEquals("Ana", payload.getString("NombreCliente"));
+        assertEquals(5.0, payload.getDouble("Monto"), 0.0);
+        assertEquals(42, payload.getInt("IdNotificationApp"));
+        assertEquals(1, payload.getInt("IdBilletera"));
+        assertEquals("ACTIVO", payload.getString("Estado"));
+    }
+}
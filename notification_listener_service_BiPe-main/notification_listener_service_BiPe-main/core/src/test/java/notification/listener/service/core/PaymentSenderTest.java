@@ -0,0 +1,170 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class PaymentSenderTest {
+
+    /** Almacén en memoria con la misma semántica de leases que RetryJournal */
+    static final class MemoryStore implements PaymentStore {
+        final TreeMap<Long, String> pending = new TreeMap<>();
+        final List<Long> inFlight = new ArrayList<>();
+        long nextSeq = 1;
+
+        @Override
+        public long append(String payload) {
+            pending.put(nextSeq, payload);
+            return nextSeq++;
+        }
+
+        @Override
+        public List<Entry> claim(int max) {
+            List<Entry> claimed = new ArrayList<>();
+            for (Map.Entry<Long, String> e : pending.entrySet()) {
+                if (claimed.size() >= max) {
+                    break;
+                }
+                if (!inFlight.contains(e.getKey())) {
+                    inFlight.add(e.getKey());
+                    claimed.add(new Entry(e.getKey(), e.getValue()));
+                }
+            }
+            return claimed;
+        }
+
+        @Override
+        public void acknowledge(long seq) {
+            inFlight.remove(seq);
+            pending.remove(seq);
+        }
+
+        @Override
+        public void release(long seq) {
+            inFlight.remove(seq);
+        }
+
+        @Override
+        public int size() {
+            return pending.size();
+        }
+    }
+
+    /** Transporte que responde con los status indicados, en orden */
+    static final class ScriptedTransport implements Transport {
+        final List<Integer> codes = new ArrayList<>();
+        boolean batch = false;
+        int requests = 0;
+
+        @Override
+        public int post(String token, String payload) throws IOException {
+            requests++;
+            int code = codes.isEmpty() ? 200 : codes.remove(0);
+            if (code < 0) {
+                throw new IOException("sin red");
+            }
+            return code;
+        }
+
+        @Override
+        public int[] postBatch(String token, List<String> payloads) {
+            if (!batch) {
+                return null;
+            }
+            requests++;
+            int[] statuses = new int[payloads.size()];
+            for (int i = 0; i < statuses.length; i++) {
+                statuses[i] = codes.isEmpty() ? 200 : codes.remove(0);
+            }
+            return statuses;
+        }
+    }
+
+    private final Clock clock = new Clock() {
+        @Override
+        public long now() {
+            return 1_000_000;
+        }
+    };
+
+    @Test
+    public void liveFailureGoesToStoreAndDrainsLater() throws Exception {
+        MemoryStore store = new MemoryStore();
+        ScriptedTransport transport = new ScriptedTransport();
+        PipelineMetrics metrics = new PipelineMetrics();
+        PaymentSender sender = new PaymentSender(transport, store, new SendPolicy(), clock, metrics);
+
+        transport.codes.add(503);
+        assertEquals(503, sender.sendLive("t", "{\"a\":1}", 0));
+        assertEquals(1, store.size());
+
+        // Backoff activo: el drain no toca la red
+        assertEquals(0, sender.drain("t", 20, null));
+        assertEquals(1, transport.requests);
+        assertEquals(1, metrics.retried.get());
+    }
+
+    @Test
+    public void fatalIsDroppedAndNotStored() throws Exception {
+        MemoryStore store = new MemoryStore();
+        ScriptedTransport transport = new ScriptedTransport();
+        PipelineMetrics metrics = new PipelineMetrics();
+        PaymentSender sender = new PaymentSender(transport, store, new SendPolicy(), clock, metrics);
+
+        transport.codes.add(422);
+        assertEquals(422, sender.sendLive("t", "{}", 0));
+        assertEquals(0, store.size());
+        assertEquals(1, metrics.dropped.get());
+    }
+
+    @Test
+    public void unexpectedStatusIsKeptForRetry() throws Exception {
+        MemoryStore store = new MemoryStore();
+        ScriptedTransport transport = new ScriptedTransport();
+        PipelineMetrics metrics = new PipelineMetrics();
+        PaymentSender sender = new PaymentSender(transport, store, new SendPolicy(), clock, metrics);
+
+        transport.codes.add(404);
+        assertEquals(404, sender.sendLive("t", "{}", 0));
+        assertEquals(1, store.size());
+        assertEquals(0, metrics.dropped.get());
+    }
+
+    @Test
+    public void drainSendsBatchesAndStopsOnYield() throws Exception {
+        MemoryStore store = new MemoryStore();
+        for (int i = 0; i < 5; i++) {
+            store.append("{\"i\":" + i + "}");
+        }
+        ScriptedTransport transport = new ScriptedTransport();
+        transport.batch = true;
+        PaymentSender sender = new PaymentSender(transport, store, new SendPolicy(), clock, new PipelineMetrics());
+
+        assertEquals(2, sender.drain("t", 2, new PaymentSender.Yield() {
+            @Override
+            public boolean shouldYield() {
+                return true;
+            }
+        }));
+        assertEquals(3, store.size());
+        assertEquals(3, sender.drain("t", 2, null));
+        assertEquals(0, store.size());
+        assertEquals(3, transport.requests);
+    }
+
+    @Test
+    public void missingTokenStoresWithoutNetwork() throws Exception {
+        MemoryStore store = new MemoryStore();
+        ScriptedTransport transport = new ScriptedTransport();
+        PaymentSender sender = new PaymentSender(transport, store, new SendPolicy(), clock, new PipelineMetrics());
+        assertEquals(PaymentSender.NOT_ATTEMPTED, sender.sendLive(null, "{}", 0));
+        assertEquals(1, store.size());
+        assertEquals(0, transport.requests);
+    }
+}
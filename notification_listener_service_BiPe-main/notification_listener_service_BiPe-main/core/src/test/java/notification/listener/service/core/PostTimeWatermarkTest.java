@@ -0,0 +1,69 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PostTimeWatermarkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void onlyMovesForwardAndKeepsSlack() throws Exception {
+        PostTimeWatermark watermark = PostTimeWatermark.open(new File(folder.getRoot(), "w.bin"), 100, 0);
+        assertFalse(watermark.isInitialized());
+
+        watermark.advance(5_000, 0);
+        watermark.advance(4_000, 0);
+        assertEquals(5_000, watermark.get());
+
+        assertFalse(watermark.isNew(4_900));
+        assertTrue(watermark.isNew(4_901));
+        assertTrue(watermark.isNew(6_000));
+    }
+
+    @Test
+    public void heldPaymentKeepsMarkBehindUntilReleased() throws Exception {
+        PostTimeWatermark watermark = PostTimeWatermark.open(new File(folder.getRoot(), "w.bin"), 0, 0);
+        watermark.advance(1_000, 0);
+        watermark.hold(2_000);
+        // Una notificación posterior sin pago no arrastra la marca más allá del pago en memoria
+        watermark.advance(3_000, 0);
+        assertEquals(1_999, watermark.get());
+        assertTrue(watermark.isNew(2_000));
+
+        watermark.release(2_000, 0);
+        assertEquals(3_000, watermark.get());
+    }
+
+    @Test
+    public void flushesAtMostOncePerInterval() throws Exception {
+        File file = new File(folder.getRoot(), "w.bin");
+        PostTimeWatermark watermark = PostTimeWatermark.open(file, 0, 1_000);
+
+        watermark.advance(10, 5_000);
+        watermark.advance(20, 5_500);
+        assertEquals(10, PostTimeWatermark.open(file, 0, 1_000).get());
+
+        watermark.flush(5_600);
+        assertEquals(20, PostTimeWatermark.open(file, 0, 1_000).get());
+    }
+
+    @Test
+    public void truncatedFileStartsFromZero() throws Exception {
+        File file = new File(folder.getRoot(), "w.bin");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[]{1, 2, 3});
+        out.close();
+
+        assertEquals(0, PostTimeWatermark.open(file, 0, 0).get());
+    }
+}
@@ -0,0 +1,68 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import notification.listener.service.core.ReconnectPolicy.State;
+import notification.listener.service.core.ReconnectPolicy.Step;
+import notification.listener.service.core.ReconnectPolicy.Trigger;
+
+public class ReconnectPolicyTest {
+
+    @Test
+    public void concurrentRequestsJoinTheAttemptInFlight() {
+        ReconnectPolicy policy = new ReconnectPolicy();
+        assertEquals(Step.REBIND, policy.request(0, Trigger.AUTO, "boot", false, true));
+        assertEquals(Step.NONE, policy.request(10, Trigger.AUTO, "worker", false, true));
+        assertEquals(Step.NONE, policy.request(20, Trigger.MANUAL, "flutter", false, true));
+        assertEquals(2, policy.getCoalesced());
+        assertEquals(1, policy.getRebinds());
+
+        policy.onConnected(500);
+        assertEquals(State.IDLE, policy.getState());
+        assertEquals(0, policy.getToggles());
+        // Cooldown tras reconectar: un pedido automático no vuelve a tocar el listener
+        assertEquals(Step.NONE, policy.request(1_000, Trigger.SUSPECT, "watchdog", true, true));
+    }
+
+    @Test
+    public void togglesOnlyWhenRebindDoesNotReconnect() {
+        ReconnectPolicy policy = new ReconnectPolicy();
+        policy.request(0, Trigger.AUTO, "disconnected", false, true);
+        assertEquals(Step.NONE, policy.onDeadline(ReconnectPolicy.REBIND_TIMEOUT_MS - 1, false));
+        assertEquals(Step.TOGGLE, policy.onDeadline(ReconnectPolicy.REBIND_TIMEOUT_MS, false));
+        assertEquals(State.TOGGLING, policy.getState());
+
+        ReconnectPolicy failing = new ReconnectPolicy();
+        failing.request(0, Trigger.AUTO, "disconnected", false, true);
+        assertEquals(Step.TOGGLE, failing.onRebindFailed(1));
+
+        ReconnectPolicy legacy = new ReconnectPolicy();
+        assertEquals(Step.TOGGLE, legacy.request(0, Trigger.AUTO, "boot", false, false));
+    }
+
+    @Test
+    public void failedAttemptsBackOffButManualBypassesCooldown() {
+        ReconnectPolicy policy = new ReconnectPolicy();
+        long now = 0;
+        policy.request(now, Trigger.AUTO, "a", false, true);
+        now += ReconnectPolicy.REBIND_TIMEOUT_MS;
+        policy.onDeadline(now, false);
+        now += ReconnectPolicy.TOGGLE_TIMEOUT_MS;
+        assertEquals(Step.NONE, policy.onDeadline(now, false));
+        assertEquals(State.COOLDOWN, policy.getState());
+        assertEquals(now + ReconnectPolicy.FAILURE_BASE_MS, policy.getCooldownUntil());
+
+        assertEquals(Step.NONE, policy.request(now + 1, Trigger.AUTO, "b", false, true));
+        assertEquals(Step.REBIND, policy.request(now + 1, Trigger.MANUAL, "usuario", false, true));
+        assertEquals("usuario", policy.getReason());
+    }
+
+    @Test
+    public void autoRequestIgnoredWhileConnected() {
+        ReconnectPolicy policy = new ReconnectPolicy();
+        assertEquals(Step.NONE, policy.request(0, Trigger.AUTO, "worker", true, true));
+        assertEquals(Step.REBIND, policy.request(0, Trigger.SUSPECT, "sin eventos", true, true));
+    }
+}
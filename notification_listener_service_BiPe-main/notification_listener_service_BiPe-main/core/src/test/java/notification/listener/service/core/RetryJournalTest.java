@@ -0,0 +1,235 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RetryJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void reopenKeepsOnlyUnacknowledged() throws Exception {
+        File dir = folder.newFolder("j");
+        RetryJournal journal = RetryJournal.open(dir);
+        long a = journal.append("{\"a\":1}");
+        journal.append("{\"b\":2}");
+        long c = journal.append("{\"c\":3}");
+        journal.claim(3);
+        journal.acknowledge(a);
+        journal.release(c);
+        forget(dir);
+
+        RetryJournal reopened = RetryJournal.open(dir);
+        assertEquals(2, reopened.size());
+        assertEquals(Arrays.asList("{\"b\":2}", "{\"c\":3}"), payloads(reopened.claim(10)));
+        // Las secuencias siguen después de las ya usadas
+        assertTrue(reopened.append("{\"d\":4}") > c);
+    }
+
+    @Test
+    public void tornTailIsDroppedAndLaterAppendsStayReadable() throws Exception {
+        File dir = folder.newFolder("j");
+        RetryJournal journal = RetryJournal.open(dir);
+        journal.append("{\"a\":1}");
+        journal.append("{\"b\":2}");
+        forget(dir);
+        // Corte de energía a mitad de un registro: solo parte del encabezado
+        File segment = segments(dir).get(0);
+        long valid = segment.length();
+        FileOutputStream out = new FileOutputStream(segment, true);
+        out.write(new byte[]{0, 0, 0, 0, 0, 0});
+        out.close();
+
+        RetryJournal reopened = RetryJournal.open(dir);
+        assertEquals(2, reopened.size());
+        assertEquals(valid, segment.length());
+        reopened.append("{\"c\":3}");
+        forget(dir);
+
+        assertEquals(Arrays.asList("{\"a\":1}", "{\"b\":2}", "{\"c\":3}"),
+                payloads(RetryJournal.open(dir).claim(10)));
+    }
+
+    @Test
+    public void corruptLastRecordIsDiscarded() throws Exception {
+        File dir = folder.newFolder("j");
+        RetryJournal journal = RetryJournal.open(dir);
+        journal.append("{\"a\":1}");
+        journal.append("{\"b\":2}");
+        forget(dir);
+        // Un byte cambiado en el payload del último registro: el CRC no coincide
+        File segment = segments(dir).get(0);
+        RandomAccessFile raf = new RandomAccessFile(segment, "rw");
+        raf.seek(segment.length() - 2);
+        raf.write('X');
+        raf.close();
+
+        RetryJournal reopened = RetryJournal.open(dir);
+        assertEquals(Collections.singletonList("{\"a\":1}"), payloads(reopened.claim(10)));
+    }
+
+    @Test
+    public void rotatesAndDeletesSegmentsWithoutPending() throws Exception {
+        File dir = folder.newFolder("j");
+        RetryJournal journal = RetryJournal.open(dir);
+        String big = bigPayload(100 * 1024);
+        List<Long> first = new ArrayList<>();
+        // 3 x 100 KB llenan el primer segmento (256 KB): el cuarto abre otro
+        for (int i = 0; i < 3; i++) {
+            first.add(journal.append(big));
+        }
+        journal.append("{\"d\":4}");
+        assertEquals(2, segments(dir).size());
+
+        journal.claim(4);
+        journal.acknowledge(first.get(0));
+        journal.acknowledge(first.get(1));
+        assertEquals(2, segments(dir).size());
+        journal.acknowledge(first.get(2));
+        assertEquals(1, segments(dir).size());
+        assertEquals(1, journal.size());
+    }
+
+    @Test
+    public void compactDropsAcksOfDeletedSegments() throws Exception {
+        File dir = folder.newFolder("j");
+        RetryJournal journal = RetryJournal.open(dir);
+        String big = bigPayload(100 * 1024);
+        List<Long> first = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            first.add(journal.append(big));
+        }
+        long kept = journal.append("{\"d\":4}");
+        long acked = journal.append("{\"e\":5}");
+        journal.claim(5);
+        for (long seq : first) {
+            journal.acknowledge(seq);
+        }
+        journal.acknowledge(acked);
+        File acks = new File(dir, "acks.log");
+        assertEquals(4 * 8, acks.length());
+
+        journal.compact();
+        // Solo queda el ack del segmento que sigue existiendo
+        assertEquals(8, acks.length());
+        forget(dir);
+
+        RetryJournal reopened = RetryJournal.open(dir);
+        assertEquals(1, reopened.size());
+        assertEquals(kept, reopened.claim(10).get(0).getSeq());
+    }
+
+    @Test
+    public void claimNeverHandsOutTheSameEntryTwice() throws Exception {
+        File dir = folder.newFolder("j");
+        RetryJournal journal = RetryJournal.open(dir);
+        for (int i = 0; i < 5; i++) {
+            journal.append("{\"i\":" + i + "}");
+        }
+        List<PaymentStore.Entry> a = journal.claim(2);
+        List<PaymentStore.Entry> b = journal.claim(2);
+        assertEquals(2, a.size());
+        assertEquals(2, b.size());
+        assertFalse(a.get(0).getSeq() == b.get(0).getSeq());
+
+        // Liberada vuelve a estar disponible; las demás siguen en vuelo
+        journal.release(a.get(0).getSeq());
+        List<PaymentStore.Entry> c = journal.claim(10);
+        assertEquals(2, c.size());
+        assertEquals(a.get(0).getSeq(), c.get(0).getSeq());
+        assertEquals(5, journal.size());
+    }
+
+    @Test
+    public void concurrentClaimsAreDisjoint() throws Exception {
+        File dir = folder.newFolder("j");
+        RetryJournal journal = RetryJournal.open(dir);
+        for (int i = 0; i < 200; i++) {
+            journal.append("{\"i\":" + i + "}");
+        }
+        Set<Long> claimed = Collections.synchronizedSet(new HashSet<Long>());
+        List<Long> duplicates = Collections.synchronizedList(new ArrayList<Long>());
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    List<PaymentStore.Entry> batch;
+                    while (!(batch = journal.claim(7)).isEmpty()) {
+                        for (PaymentStore.Entry entry : batch) {
+                            if (!claimed.add(entry.getSeq())) {
+                                duplicates.add(entry.getSeq());
+                            }
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(200, claimed.size());
+        assertTrue(duplicates.isEmpty());
+    }
+
+    private static List<String> payloads(List<PaymentStore.Entry> entries) {
+        List<String> payloads = new ArrayList<>();
+        for (PaymentStore.Entry entry : entries) {
+            payloads.add(entry.getPayload());
+        }
+        return payloads;
+    }
+
+    private static List<File> segments(File dir) {
+        List<File> segments = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith("segment-")) {
+                    segments.add(file);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static String bigPayload(int size) {
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        return "{\"p\":\"" + new String(chars) + "\"}";
+    }
+
+    /** Simula un reinicio del proceso quitando la instancia compartida */
+    @SuppressWarnings("unchecked")
+    private static void forget(File dir) throws Exception {
+        Field field = RetryJournal.class.getDeclaredField("instances");
+        field.setAccessible(true);
+        ((Map<String, RetryJournal>) field.get(null)).remove(dir.getAbsolutePath());
+    }
+}
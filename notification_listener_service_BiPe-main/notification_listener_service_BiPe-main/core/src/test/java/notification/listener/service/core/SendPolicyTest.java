@@ -0,0 +1,72 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SendPolicyTest {
+
+    @Test
+    public void classifiesStatusCodes() {
+        assertEquals(SendPolicy.Outcome.SUCCESS, SendPolicy.classify(200));
+        assertEquals(SendPolicy.Outcome.AUTH, SendPolicy.classify(401));
+        assertEquals(SendPolicy.Outcome.AUTH, SendPolicy.classify(403));
+        assertEquals(SendPolicy.Outcome.RETRYABLE, SendPolicy.classify(503));
+        assertEquals(SendPolicy.Outcome.RETRYABLE, SendPolicy.classify(429));
+        assertEquals(SendPolicy.Outcome.RETRYABLE, SendPolicy.classify(-1));
+        assertEquals(SendPolicy.Outcome.RETRYABLE, SendPolicy.classify(0));
+        assertEquals(SendPolicy.Outcome.FATAL, SendPolicy.classify(400));
+        assertEquals(SendPolicy.Outcome.FATAL, SendPolicy.classify(422));
+        // Un 404 o 409 puede ser un deploy mal enrutado: nunca se descarta el pago
+        assertEquals(SendPolicy.Outcome.RETRYABLE, SendPolicy.classify(404));
+        assertEquals(SendPolicy.Outcome.RETRYABLE, SendPolicy.classify(409));
+        assertEquals(SendPolicy.Outcome.RETRYABLE, SendPolicy.classify(302));
+    }
+
+    @Test
+    public void opensAfterThresholdAndAllowsSingleProbe() {
+        SendPolicy policy = new SendPolicy(new Random(1));
+        long now = 0;
+        for (int i = 0; i < SendPolicy.FAILURE_THRESHOLD; i++) {
+            now = Math.max(now, policy.getNextAttemptAt());
+            assertTrue(policy.canAttempt(now, "t"));
+            policy.onResult(SendPolicy.Outcome.RETRYABLE, now, "t");
+        }
+        assertEquals(SendPolicy.State.OPEN, policy.getState());
+        assertFalse(policy.canAttempt(now, "t"));
+
+        now = policy.getNextAttemptAt();
+        assertTrue(policy.canAttempt(now, "t"));
+        assertEquals(SendPolicy.State.HALF_OPEN, policy.getState());
+        assertFalse(policy.canAttempt(now, "t"));
+
+        policy.onResult(SendPolicy.Outcome.SUCCESS, now, "t");
+        assertEquals(SendPolicy.State.CLOSED, policy.getState());
+        assertEquals(0, policy.getConsecutiveFailures());
+        assertTrue(policy.canAttempt(now, "t"));
+    }
+
+    @Test
+    public void authPauseLiftsWhenTokenChanges() {
+        SendPolicy policy = new SendPolicy(new Random(1));
+        assertTrue(policy.canAttempt(0, "old"));
+        policy.onResult(SendPolicy.Outcome.AUTH, 0, "old");
+        assertFalse(policy.canAttempt(Long.MAX_VALUE / 2, "old"));
+        assertTrue(policy.canAttempt(1, "new"));
+        assertEquals(SendPolicy.State.CLOSED, policy.getState());
+    }
+
+    @Test
+    public void backoffIsBoundedWithJitter() {
+        SendPolicy policy = new SendPolicy(new Random(7));
+        for (int failures = 1; failures < 40; failures++) {
+            long delay = policy.backoffDelay(failures);
+            long full = Math.min(SendPolicy.MAX_DELAY_MS, SendPolicy.BASE_DELAY_MS << Math.min(failures - 1, 20));
+            assertTrue(delay >= full / 2 && delay <= full);
+        }
+    }
+}
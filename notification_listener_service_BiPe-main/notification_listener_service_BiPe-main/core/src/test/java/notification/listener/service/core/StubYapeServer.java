@@ -0,0 +1,202 @@
+package notification.listener.service.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+
+/**
+ * Servidor HTTP local que imita /yape y /yape/batch para pruebas sin red.
+ * Guarda cada payload aceptado y cuenta los requests.
+ *
+ * Para pruebas de carga se le puede agregar latencia (base + jitter) y una tasa de errores:
+ * cada request fallido responde el status configurado completo (también los lotes) y no guarda nada.
+ */
+public final class StubYapeServer {
+
+    private static final Set<Integer> USED_PORTS = new HashSet<>();
+
+    private final HttpServer server;
+    private final boolean batchSupported;
+    private final List<String> received = new CopyOnWriteArrayList<>();
+    private final List<Long> receivedAt = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Random random = new Random(42);
+    private volatile int singleStatus = 200;
+    private volatile int batchStatus = 0;
+    private volatile boolean batchStatusConfirmed = false;
+    private volatile long latencyMs = 0;
+    private volatile long jitterMs = 0;
+    private volatile double errorRate = 0;
+    private volatile int errorStatus = 503;
+
+    public StubYapeServer(boolean batchSupported) throws IOException {
+        this.batchSupported = batchSupported;
+        server = createOnFreshPort();
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/api/yape", this::handle);
+        server.start();
+    }
+
+    /**
+     * El pool keep-alive de HttpURLConnection se indexa por host:puerto: si un stub nuevo recibe el
+     * puerto de uno ya detenido, el cliente reutilizaría un socket muerto. Se evitan puertos repetidos.
+     */
+    private static HttpServer createOnFreshPort() throws IOException {
+        while (true) {
+            HttpServer candidate = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            synchronized (USED_PORTS) {
+                if (USED_PORTS.add(candidate.getAddress().getPort())) {
+                    return candidate;
+                }
+            }
+            candidate.stop(0);
+        }
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api";
+    }
+
+    void setSingleStatus(int status) {
+        this.singleStatus = status;
+    }
+
+    /**
+     * Todo lote responde {@code status} sin aceptar nada (0 vuelve al comportamiento normal).
+     *
+     * @param confirmed si la respuesta trae {@value YapeHttpClient#BATCH_HEADER} (false imita un
+     *                  servidor viejo o un proxy que rechaza el arreglo)
+     */
+    void setBatchStatus(int status, boolean confirmed) {
+        this.batchStatus = status;
+        this.batchStatusConfirmed = confirmed;
+    }
+
+    /** Cada respuesta tarda {@code baseMs} más un extra aleatorio de hasta {@code jitterMs} */
+    public void setLatency(long baseMs, long jitterMs) {
+        this.latencyMs = baseMs;
+        this.jitterMs = jitterMs;
+    }
+
+    /** Fracción de requests (0..1) que responden {@code status} sin aceptar nada */
+    public void setErrorRate(double rate, int status) {
+        this.errorRate = rate;
+        this.errorStatus = status;
+    }
+
+    /** Payloads aceptados, en orden de llegada (con repetidos si el cliente reenvió) */
+    public List<String> received() {
+        return received;
+    }
+
+    /** Hora de llegada (ms) de cada payload de {@link #received()}, mismo índice */
+    public List<Long> receivedAt() {
+        return receivedAt;
+    }
+
+    public int requestCount() {
+        return requests.get();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String body = readBody(exchange);
+        String path = exchange.getRequestURI().getPath();
+        if (delay()) {
+            respond(exchange, errorStatus, "{}");
+            return;
+        }
+        if (path.endsWith("/batch")) {
+            if (!batchSupported) {
+                // Con cuerpo, como el API real: un 404 sin cuerpo a veces cortaba la conexión keep-alive
+                respond(exchange, 404, "{}");
+                return;
+            }
+            if (batchStatus != 0) {
+                if (batchStatusConfirmed) {
+                    exchange.getResponseHeaders().add(YapeHttpClient.BATCH_HEADER, "1");
+                }
+                respond(exchange, batchStatus, "{}");
+                return;
+            }
+            JSONArray items = new JSONArray(body);
+            JSONArray results = new JSONArray();
+            for (int i = 0; i < items.length(); i++) {
+                accept(items.get(i).toString());
+                results.put(200);
+            }
+            exchange.getResponseHeaders().add(YapeHttpClient.BATCH_HEADER, "1");
+            respond(exchange, 200, results.toString());
+            return;
+        }
+        if (singleStatus == 200) {
+            accept(body);
+        }
+        respond(exchange, singleStatus, "{}");
+    }
+
+    private synchronized void accept(String payload) {
+        received.add(payload);
+        receivedAt.add(System.currentTimeMillis());
+    }
+
+    /**
+     * Aplica la latencia configurada.
+     *
+     * @return true si este request debe fallar
+     */
+    private boolean delay() {
+        long wait;
+        boolean fail;
+        synchronized (random) {
+            wait = latencyMs + (jitterMs > 0 ? (long) (random.nextDouble() * jitterMs) : 0);
+            fail = errorRate > 0 && random.nextDouble() < errorRate;
+        }
+        if (wait > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return fail;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return out.toString("UTF-8");
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        OutputStream os = exchange.getResponseBody();
+        os.write(bytes);
+        os.close();
+    }
+}
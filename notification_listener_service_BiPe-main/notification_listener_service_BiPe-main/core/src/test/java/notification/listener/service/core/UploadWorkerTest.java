@@ -0,0 +1,129 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class UploadWorkerTest {
+
+    private static final String YAPE = "com.bcp.innovacxion.yapeapp";
+    private static final String TEXT = "Ana te envió un pago por S/ 10.50";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private UploadWorker worker;
+
+    @After
+    public void tearDown() {
+        if (worker != null) {
+            worker.stop();
+        }
+    }
+
+    /** Almacén sin espacio: toda escritura falla */
+    private static final class FailingStore implements PaymentStore {
+        @Override
+        public long append(String payload) throws IOException {
+            throw new IOException("sin espacio");
+        }
+
+        @Override
+        public List<Entry> claim(int max) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void acknowledge(long seq) {
+        }
+
+        @Override
+        public void release(long seq) {
+        }
+
+        @Override
+        public int size() {
+            return 0;
+        }
+    }
+
+    @Test
+    public void lostPayloadReleasesReservedFingerprints() throws Exception {
+        PaymentDetector detector = detector();
+        BipeRuleSet rules = rules();
+        // Sin iniciar el hilo y con capacidad 1: el segundo submit va directo al almacén
+        worker = worker(new PaymentSenderTest.ScriptedTransport());
+        worker.submit("{}", 0, null);
+
+        PaymentDetector.Result result = detector.process(rules, "k1", YAPE, TEXT, 1, 1_000, 1, 1);
+        assertEquals(PaymentDetector.Outcome.PAYMENT, result.getOutcome());
+        AtomicReference<Boolean> settled = new AtomicReference<>();
+        assertFalse(worker.submit(result.getPayload(), 1_000, durable -> settle(detector, result, durable, settled)));
+
+        assertEquals(Boolean.FALSE, settled.get());
+        // La misma notificación se vuelve a detectar en lugar de quedar como vista o duplicada
+        assertEquals(PaymentDetector.Outcome.PAYMENT,
+                detector.process(rules, "k1", YAPE, TEXT, 1, 1_000, 1, 1).getOutcome());
+    }
+
+    @Test
+    public void failedLiveSendThatCannotBeStoredIsReported() throws Exception {
+        PaymentDetector detector = detector();
+        BipeRuleSet rules = rules();
+        PaymentSenderTest.ScriptedTransport transport = new PaymentSenderTest.ScriptedTransport();
+        transport.codes.add(503);
+        worker = worker(transport);
+        worker.start("UploadWorkerTest");
+
+        PaymentDetector.Result result = detector.process(rules, "k1", YAPE, TEXT, 1, 1_000, 1, 1);
+        AtomicReference<Boolean> settled = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+        assertTrue(worker.submit(result.getPayload(), 1_000, durable -> {
+            settle(detector, result, durable, settled);
+            done.countDown();
+        }));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Boolean.FALSE, settled.get());
+        assertEquals(PaymentDetector.Outcome.PAYMENT,
+                detector.process(rules, "k1", YAPE, TEXT, 1, 1_000, 1, 1).getOutcome());
+    }
+
+    private static void settle(PaymentDetector detector, PaymentDetector.Result result, boolean durable,
+                               AtomicReference<Boolean> settled) {
+        if (durable) {
+            detector.confirm(result);
+        } else {
+            detector.abandon(result);
+        }
+        settled.set(durable);
+    }
+
+    private PaymentDetector detector() throws Exception {
+        DedupCache dedup = DedupCache.open(folder.newFile("dedup.bin"), 100, 30 * 60_000);
+        return new PaymentDetector(dedup, Clock.SYSTEM, new PipelineMetrics());
+    }
+
+    private static UploadWorker worker(Transport transport) {
+        PaymentSender sender = new PaymentSender(transport, new FailingStore(), new SendPolicy(), Clock.SYSTEM,
+                new PipelineMetrics());
+        return new UploadWorker(sender, () -> "token", 1, 20, 60_000);
+    }
+
+    private static BipeRuleSet rules() throws Exception {
+        return BipeRuleSet.compile("[{\"contain\":\"te envió un pago\",\"packageName\":\"" + YAPE
+                + "\",\"regex\":\"(.+) te envió un pago por S/ ([\\\\d,.]+)\",\"hasMonto\":true,\"idBilletera\":3}]");
+    }
+}
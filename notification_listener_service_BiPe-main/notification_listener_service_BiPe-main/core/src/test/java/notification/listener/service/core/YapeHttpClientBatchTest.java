@@ -0,0 +1,137 @@
+package notification.listener.service.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class YapeHttpClientBatchTest {
+
+    private static final int BACKLOG = 200;
+    private static final int BATCH_SIZE = 20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private StubYapeServer server;
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void batchReportsPerItemResults() throws Exception {
+        server = new StubYapeServer(true);
+        YapeHttpClient client = new YapeHttpClient(server.baseUrl());
+
+        int[] results = client.postBatch("token", payloads(3));
+
+        assertArrayEquals(new int[]{200, 200, 200}, results);
+        assertEquals(3, server.received().size());
+        assertEquals(1, server.requestCount());
+    }
+
+    @Test
+    public void unsupportedServerFallsBackToSinglePosts() throws Exception {
+        server = new StubYapeServer(false);
+        YapeHttpClient client = new YapeHttpClient(server.baseUrl());
+
+        assertNull(client.postBatch("token", payloads(3)));
+        assertFalse(client.isBatchEnabled());
+        assertTrue(client.postJson("/yape", "token", payloads(1).get(0)).isOk());
+        assertEquals(1, server.received().size());
+    }
+
+    @Test
+    public void batchRejectedWithoutHeaderKeepsEveryItem() throws Exception {
+        server = new StubYapeServer(true);
+        // Un proxy rechaza el arreglo sin el header de lotes; los envíos individuales tampoco pasan
+        server.setBatchStatus(400, false);
+        server.setSingleStatus(503);
+        YapeHttpClient client = new YapeHttpClient(server.baseUrl());
+        RetryJournal journal = journalWith(payloads(3));
+
+        drain(client, journal);
+
+        assertFalse(client.isBatchEnabled());
+        assertEquals(3, journal.size());
+        assertEquals(0, server.received().size());
+    }
+
+    @Test
+    public void confirmedBatchRejectionIsRetriedNotDropped() throws Exception {
+        server = new StubYapeServer(true);
+        server.setBatchStatus(400, true);
+        YapeHttpClient client = new YapeHttpClient(server.baseUrl());
+
+        assertArrayEquals(new int[]{0, 0, 0}, client.postBatch("token", payloads(3)));
+
+        RetryJournal journal = journalWith(payloads(3));
+        drain(client, journal);
+        assertTrue(client.isBatchEnabled());
+        assertEquals(3, journal.size());
+    }
+
+    /**
+     * Vaciar un backlog en lotes rinde al menos lo mismo que uno por uno (stub local, sin red).
+     */
+    @Test
+    public void batchDrainThroughput() throws Exception {
+        server = new StubYapeServer(true);
+        YapeHttpClient client = new YapeHttpClient(server.baseUrl());
+        List<String> backlog = payloads(BACKLOG);
+
+        long start = System.nanoTime();
+        for (String payload : backlog) {
+            assertTrue(client.postJson("/yape", "token", payload).isOk());
+        }
+        long singleNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < backlog.size(); i += BATCH_SIZE) {
+            client.postBatch("token", backlog.subList(i, Math.min(i + BATCH_SIZE, backlog.size())));
+        }
+        long batchNanos = System.nanoTime() - start;
+
+        assertEquals(BACKLOG * 2, server.received().size());
+        // Un request cada BATCH_SIZE pagos: en lotes nunca puede rendir menos que uno por uno
+        assertTrue("lotes " + batchNanos / 1_000_000 + " ms vs individual " + singleNanos / 1_000_000 + " ms",
+                batchNanos <= singleNanos);
+    }
+
+    private RetryJournal journalWith(List<String> payloads) throws Exception {
+        RetryJournal journal = RetryJournal.open(folder.newFolder("journal"));
+        for (String payload : payloads) {
+            journal.append(payload);
+        }
+        return journal;
+    }
+
+    private static void drain(YapeHttpClient client, RetryJournal journal) throws Exception {
+        PaymentSender sender = new PaymentSender(client, journal, new SendPolicy(), Clock.SYSTEM,
+                new PipelineMetrics());
+        sender.drain("token", BATCH_SIZE, null);
+    }
+
+    private static List<String> payloads(int count) {
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add("{\"IdUsuarioNegocio\":1,\"IdNegocio\":2,\"NombreCliente\":\"Cliente " + i
+                    + "\",\"Monto\":" + (i + 0.5) + ",\"Estado\":\"ACTIVO\",\"FechaHora\":\"2024-01-01T10:00:00.000\""
+                    + ",\"IdNotificationApp\":" + i + ",\"IdBilletera\":1,\"PackageName\":\"com.bcp.innovacxion.yapeapp\"}");
+        }
+        return list;
+    }
+}
@@ -0,0 +1,95 @@
+package notification.listener.service.core.loadtest;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Una notificación grabada en la traza (una línea JSONL).
+ *
+ * Campos: "package" (o "packageName"), "title", "text" y "postTime" (ms). Opcionales: "id"
+ * (por defecto el número de línea) y "key" (por defecto paquete|id|null, como antes de API 20).
+ * Dos líneas con la misma clave, hora y texto son el mismo post repetido.
+ */
+public final class TraceEvent {
+
+    private final String packageName;
+    private final String title;
+    private final String text;
+    private final long postTime;
+    private final int id;
+    private final String key;
+
+    public TraceEvent(String packageName, String title, String text, long postTime, int id, String key) {
+        this.packageName = packageName;
+        this.title = title;
+        this.text = text;
+        this.postTime = postTime;
+        this.id = id;
+        this.key = key != null ? key : packageName + "|" + id + "|null";
+    }
+
+    public static TraceEvent parse(String line, int lineNumber) throws JSONException {
+        JSONObject json = new JSONObject(line);
+        String pkg = json.has("package") ? json.getString("package") : json.getString("packageName");
+        int id = json.optInt("id", lineNumber);
+        return new TraceEvent(pkg, json.optString("title", ""), json.optString("text", ""),
+                json.getLong("postTime"), id, json.has("key") ? json.getString("key") : null);
+    }
+
+    /** Lee la traza; ignora líneas vacías y las que empiezan con "#" */
+    public static List<TraceEvent> read(File file) throws IOException {
+        List<TraceEvent> events = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+        try {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    events.add(parse(line, number));
+                } catch (JSONException e) {
+                    throw new IOException(file + ":" + number + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return events;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public long getPostTime() {
+        return postTime;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,421 @@
+package notification.listener.service.core.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONObject;
+
+import notification.listener.service.core.BipeRuleSet;
+import notification.listener.service.core.Clock;
+import notification.listener.service.core.DedupCache;
+import notification.listener.service.core.OrderedExecutor;
+import notification.listener.service.core.PaymentDetector;
+import notification.listener.service.core.PaymentSender;
+import notification.listener.service.core.PipelineMetrics;
+import notification.listener.service.core.RetryJournal;
+import notification.listener.service.core.SendPolicy;
+import notification.listener.service.core.StubYapeServer;
+import notification.listener.service.core.UploadWorker;
+import notification.listener.service.core.YapeHttpClient;
+
+/**
+ * Reproduce una traza de notificaciones por el mismo pipeline del listener, en una JVM común:
+ * filtro por paquete, carriles de {@link OrderedExecutor}, {@link PaymentDetector} (dedup + reglas +
+ * payload), {@link UploadWorker} y {@link PaymentSender} con un {@link RetryJournal} real, contra un
+ * {@link StubYapeServer} local con latencia y errores configurables.
+ *
+ * Al terminar espera a que el backlog se vacíe (o a que venza {@link Options#settle(long)}) y
+ * compara lo que el pipeline decidió enviar con lo que el stub aceptó: pagos perdidos, envíos
+ * duplicados, throughput y latencia de punta a punta.
+ *
+ * Uso: {@code gradle replayTrace -Ptrace=loadtest/sample-trace.jsonl -Prules=loadtest/sample-rules.json
+ * -PreplayArgs="--speed=10 --error-rate=0.1"} (ver loadtest/README.md).
+ */
+public final class TraceReplay {
+
+    private static final String TOKEN = "replay-token";
+    // Mismos valores que el listener y PaymentUploader
+    private static final int NOTIFICATION_LANES = 4;
+    private static final int PAYMENT_LANES = 1;
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int BACKLOG_BATCH = 20;
+    private static final long BACKLOG_INTERVAL_MS = 60_000;
+    private static final int DEDUP_CAPACITY = 512;
+    private static final long DEDUP_WINDOW_MS = 30 * 60 * 1000;
+    private static final int MAX_TEXT = 500;
+    private static final long SETTLE_POLL_MS = 200;
+
+    /** Ritmo de la reproducción y comportamiento del stub */
+    public static final class Options {
+        double speed = 1;
+        double rate = 0;
+        long latencyMs = 30;
+        long jitterMs = 20;
+        double errorRate = 0;
+        int errorStatus = 503;
+        boolean batch = true;
+        long settleMs = 60_000;
+
+        /** Multiplica la velocidad de la traza (10 = diez veces más rápido que lo grabado) */
+        public Options speed(double speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        /** Eventos por segundo fijos; si es mayor que 0 se ignoran los tiempos de la traza */
+        public Options rate(double eventsPerSecond) {
+            this.rate = eventsPerSecond;
+            return this;
+        }
+
+        public Options latency(long baseMs, long jitterMs) {
+            this.latencyMs = baseMs;
+            this.jitterMs = jitterMs;
+            return this;
+        }
+
+        public Options errors(double rate, int status) {
+            this.errorRate = rate;
+            this.errorStatus = status;
+            return this;
+        }
+
+        /** Si el stub acepta /yape/batch */
+        public Options batch(boolean supported) {
+            this.batch = supported;
+            return this;
+        }
+
+        /** Tiempo máximo de espera para vaciar el backlog tras el último evento */
+        public Options settle(long ms) {
+            this.settleMs = ms;
+            return this;
+        }
+    }
+
+    /** Resultado de una reproducción */
+    public static final class Report {
+        int events;
+        int filtered;
+        int seen;
+        int noMatch;
+        int duplicatesSkipped;
+        int payments;
+        int delivered;
+        int duplicateSends;
+        int pending;
+        int dropped;
+        int lost;
+        int requests;
+        long injectMs;
+        long totalMs;
+        long p50Ms;
+        long p99Ms;
+        long maxMs;
+        long requestP50Ms;
+        long requestP99Ms;
+
+        /** Pagos que el pipeline decidió enviar */
+        public int getPayments() {
+            return payments;
+        }
+
+        /** Pagos distintos que el stub aceptó */
+        public int getDelivered() {
+            return delivered;
+        }
+
+        /** Aceptaciones repetidas del mismo pago */
+        public int getDuplicateSends() {
+            return duplicateSends;
+        }
+
+        /** Pagos aún en memoria o en el diario al terminar la espera */
+        public int getPending() {
+            return pending;
+        }
+
+        /** Pagos que no llegaron, no se descartaron por error fatal y no quedaron pendientes */
+        public int getLost() {
+            return lost;
+        }
+
+        public int getDuplicatesSkipped() {
+            return duplicatesSkipped;
+        }
+
+        public int getSeen() {
+            return seen;
+        }
+
+        public long getP99Ms() {
+            return p99Ms;
+        }
+
+        public String format() {
+            double injectSec = Math.max(injectMs, 1) / 1000.0;
+            double totalSec = Math.max(totalMs, 1) / 1000.0;
+            StringBuilder out = new StringBuilder();
+            out.append(String.format(Locale.US, "Eventos:              %d (%.1f/s inyectados en %.1f s)%n",
+                    events, events / injectSec, injectSec));
+            out.append(String.format(Locale.US, "  filtrados:          %d%n", filtered));
+            out.append(String.format(Locale.US, "  post repetido:      %d%n", seen));
+            out.append(String.format(Locale.US, "  sin match:          %d%n", noMatch));
+            out.append(String.format(Locale.US, "  pago ya enviado:    %d%n", duplicatesSkipped));
+            out.append(String.format(Locale.US, "Pagos a enviar:       %d%n", payments));
+            out.append(String.format(Locale.US, "  entregados:         %d (%.1f pagos/s en %.1f s)%n",
+                    delivered, delivered / totalSec, totalSec));
+            out.append(String.format(Locale.US, "  pendientes:         %d%n", pending));
+            out.append(String.format(Locale.US, "  descartados:        %d%n", dropped));
+            out.append(String.format(Locale.US, "  PERDIDOS:           %d%n", lost));
+            out.append(String.format(Locale.US, "  envíos duplicados:  %d%n", duplicateSends));
+            out.append(String.format(Locale.US, "Requests al stub:     %d%n", requests));
+            out.append(String.format(Locale.US, "Latencia punta a punta: p50 %d ms, p99 %d ms, max %d ms%n",
+                    p50Ms, p99Ms, maxMs));
+            out.append(String.format(Locale.US, "Latencia por request:   p50 <= %d ms, p99 <= %d ms%n",
+                    requestP50Ms, requestP99Ms));
+            return out.toString();
+        }
+    }
+
+    private TraceReplay() {
+    }
+
+    public static Report run(List<TraceEvent> trace, BipeRuleSet rules, Options options)
+            throws IOException, InterruptedException {
+        File dir = Files.createTempDirectory("bipe-replay").toFile();
+        StubYapeServer stub = new StubYapeServer(options.batch);
+        stub.setLatency(options.latencyMs, options.jitterMs);
+        stub.setErrorRate(options.errorRate, options.errorStatus);
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        DedupCache dedup = DedupCache.open(new File(dir, "dedup.bin"), DEDUP_CAPACITY, DEDUP_WINDOW_MS);
+        RetryJournal journal = RetryJournal.open(new File(dir, "journal"));
+        PaymentSender sender = new PaymentSender(new YapeHttpClient(stub.baseUrl()), journal, new SendPolicy(),
+                Clock.SYSTEM, metrics);
+        AtomicInteger dropped = new AtomicInteger();
+        sender.setListener((payload, code) -> dropped.incrementAndGet());
+        UploadWorker worker = new UploadWorker(sender, () -> TOKEN, QUEUE_CAPACITY, BACKLOG_BATCH, BACKLOG_INTERVAL_MS);
+        worker.start("ReplayUploader");
+        PaymentDetector detector = new PaymentDetector(dedup, Clock.SYSTEM, metrics);
+        OrderedExecutor executor = new OrderedExecutor("ReplayProcessor", NOTIFICATION_LANES,
+                "ReplayPayment", PAYMENT_LANES);
+
+        Report report = new Report();
+        AtomicIntegerArray outcomes = new AtomicIntegerArray(PaymentDetector.Outcome.values().length);
+        // Pago -> hora de post en la reproducción
+        Map<String, Long> expected = new ConcurrentHashMap<>();
+        try {
+            List<TraceEvent> events = new ArrayList<>(trace);
+            Collections.sort(events, (a, b) -> Long.compare(a.getPostTime(), b.getPostTime()));
+            report.events = events.size();
+
+            long start = System.currentTimeMillis();
+            long firstPost = events.isEmpty() ? 0 : events.get(0).getPostTime();
+            // El mismo post repetido conserva su hora: así la huella "vista" sigue funcionando
+            Map<Long, Long> replayTimes = new HashMap<>();
+            for (int i = 0; i < events.size(); i++) {
+                TraceEvent event = events.get(i);
+                long due = options.rate > 0
+                        ? start + (long) (i * 1000 / options.rate)
+                        : start + (long) ((event.getPostTime() - firstPost) / options.speed);
+                sleepUntil(due);
+                Long replayPost = replayTimes.get(event.getPostTime());
+                if (replayPost == null) {
+                    replayPost = System.currentTimeMillis();
+                    replayTimes.put(event.getPostTime(), replayPost);
+                }
+
+                metrics.onSeen();
+                String pkg = event.getPackageName();
+                if (!rules.hasRulesFor(pkg)) {
+                    metrics.onFiltered();
+                    report.filtered++;
+                    continue;
+                }
+                final long postTime = replayPost;
+                executor.execute(event.getKey(), rules.hasPackageRules(pkg), () -> {
+                    try {
+                        PaymentDetector.Result result = detector.process(rules, event.getKey(), pkg,
+                                truncate(event.getText()).trim(), event.getId(), postTime, 1, 1);
+                        outcomes.incrementAndGet(result.getOutcome().ordinal());
+                        if (result.getOutcome() == PaymentDetector.Outcome.PAYMENT) {
+                            expected.put(identity(result.getPayload()), postTime);
+                            worker.submit(result.getPayload(), postTime, durable -> {
+                                if (durable) {
+                                    detector.confirm(result);
+                                } else {
+                                    detector.abandon(result);
+                                }
+                            });
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Error procesando " + event.getKey() + ": " + e.getMessage());
+                    }
+                });
+            }
+            report.injectMs = System.currentTimeMillis() - start;
+            executor.shutdown();
+            executor.awaitTermination(options.settleMs, TimeUnit.MILLISECONDS);
+
+            // Esperar a que se vacíen la cola y el diario (la política de envío sigue mandando)
+            long deadline = System.currentTimeMillis() + options.settleMs;
+            int quiet = 0;
+            while (quiet < 2 && System.currentTimeMillis() < deadline) {
+                if (worker.isIdle() && journal.size() == 0) {
+                    quiet++;
+                } else {
+                    quiet = 0;
+                    worker.requestDrain();
+                }
+                Thread.sleep(SETTLE_POLL_MS);
+            }
+            report.totalMs = System.currentTimeMillis() - start;
+            report.pending = worker.getQueued() + journal.size();
+        } finally {
+            worker.stop();
+            executor.shutdownNow();
+            stub.stop();
+        }
+
+        report.seen = outcomes.get(PaymentDetector.Outcome.SEEN.ordinal());
+        report.noMatch = outcomes.get(PaymentDetector.Outcome.NO_MATCH.ordinal());
+        report.duplicatesSkipped = outcomes.get(PaymentDetector.Outcome.DUPLICATE.ordinal());
+        report.payments = outcomes.get(PaymentDetector.Outcome.PAYMENT.ordinal());
+        report.dropped = dropped.get();
+        report.requests = stub.requestCount();
+        collectDeliveries(stub, expected, report);
+        report.lost = Math.max(0, report.payments - report.delivered - report.pending - report.dropped);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> request = (Map<String, Object>) metrics.snapshot().get("requestLatency");
+        report.requestP50Ms = (Long) request.get("p50Ms");
+        report.requestP99Ms = (Long) request.get("p99Ms");
+        deleteRecursively(dir);
+        return report;
+    }
+
+    /** Cuenta entregas y duplicados en el stub y calcula la latencia exacta hasta la primera aceptación */
+    private static void collectDeliveries(StubYapeServer stub, Map<String, Long> expected, Report report) {
+        List<String> received = stub.received();
+        List<Long> receivedAt = stub.receivedAt();
+        Map<String, Long> firstAccept = new HashMap<>();
+        for (int i = 0; i < received.size(); i++) {
+            String id = identity(received.get(i));
+            if (firstAccept.containsKey(id)) {
+                report.duplicateSends++;
+            } else {
+                firstAccept.put(id, receivedAt.get(i));
+            }
+        }
+        List<Long> latencies = new ArrayList<>();
+        for (Map.Entry<String, Long> e : expected.entrySet()) {
+            Long at = firstAccept.get(e.getKey());
+            if (at != null) {
+                report.delivered++;
+                latencies.add(at - e.getValue());
+            }
+        }
+        Collections.sort(latencies);
+        report.p50Ms = percentile(latencies, 50);
+        report.p99Ms = percentile(latencies, 99);
+        report.maxMs = latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1);
+    }
+
+    /** Un pago es el mismo si coinciden app, id de notificación, monto y cliente (FechaHora no cuenta) */
+    static String identity(String payload) {
+        JSONObject json = new JSONObject(payload);
+        return json.optString("PackageName") + "|" + json.optInt("IdNotificationApp") + "|"
+                + json.optDouble("Monto") + "|" + json.optString("NombreCliente");
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(sorted.size() * p / 100.0);
+        return sorted.get(Math.max(0, Math.min(sorted.size() - 1, rank - 1)));
+    }
+
+    /** El listener recorta el texto igual antes del envío nativo */
+    private static String truncate(String text) {
+        return text.length() > MAX_TEXT ? text.substring(0, MAX_TEXT) + "..." : text;
+    }
+
+    private static void sleepUntil(long due) {
+        long wait;
+        while ((wait = due - System.currentTimeMillis()) > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(wait));
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * {@code TraceReplay <traza.jsonl> <reglas.json> [--speed=N] [--rate=N] [--latency=ms]
+     * [--jitter=ms] [--error-rate=0..1] [--error-status=N] [--no-batch] [--settle=ms]}
+     *
+     * Termina con código 1 si hubo pagos perdidos o envíos duplicados.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Uso: TraceReplay <traza.jsonl> <reglas.json> [--speed=N] [--rate=N] [--latency=ms]"
+                    + " [--jitter=ms] [--error-rate=0..1] [--error-status=N] [--no-batch] [--settle=ms]");
+            System.exit(2);
+        }
+        List<TraceEvent> trace = TraceEvent.read(new File(args[0]));
+        BipeRuleSet rules = BipeRuleSet.compile(new String(Files.readAllBytes(new File(args[1]).toPath()), "UTF-8"));
+        Options options = new Options();
+        for (int i = 2; i < args.length; i++) {
+            String arg = args[i];
+            String value = arg.indexOf('=') > 0 ? arg.substring(arg.indexOf('=') + 1) : "";
+            if (arg.startsWith("--speed=")) {
+                options.speed(Double.parseDouble(value));
+            } else if (arg.startsWith("--rate=")) {
+                options.rate(Double.parseDouble(value));
+            } else if (arg.startsWith("--latency=")) {
+                options.latencyMs = Long.parseLong(value);
+            } else if (arg.startsWith("--jitter=")) {
+                options.jitterMs = Long.parseLong(value);
+            } else if (arg.startsWith("--error-rate=")) {
+                options.errorRate = Double.parseDouble(value);
+            } else if (arg.startsWith("--error-status=")) {
+                options.errorStatus = Integer.parseInt(value);
+            } else if (arg.equals("--no-batch")) {
+                options.batch(false);
+            } else if (arg.startsWith("--settle=")) {
+                options.settle(Long.parseLong(value));
+            } else if (!arg.isEmpty()) {
+                System.err.println("Opción desconocida: " + arg);
+                System.exit(2);
+            }
+        }
+        PrintStream console = new PrintStream(System.out, true, "UTF-8");
+        console.println("Reproduciendo " + trace.size() + " notificaciones con " + rules.getRules().size()
+                + " reglas...");
+        Report report = run(trace, rules, options);
+        console.print(report.format());
+        System.exit(report.lost > 0 || report.duplicateSends > 0 ? 1 : 0);
+    }
+}
@@ -0,0 +1,59 @@
+package notification.listener.service.core.loadtest;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import notification.listener.service.core.BipeRuleSet;
+
+public class TraceReplayTest {
+
+    private static final String YAPE = "com.bcp.innovacxion.yapeapp";
+    private static final String RULES = "[{\"contain\":\"te envió un pago\",\"packageName\":\"" + YAPE + "\","
+            + "\"regex\":\"Yape! (.+) te envió un pago por S/ ([\\\\d,.]+)\",\"hasMonto\":true,\"idBilletera\":1}]";
+
+    /** 5 pagos, uno repetido idéntico, una actualización del mismo pago y dos notificaciones de ruido */
+    private static List<TraceEvent> trace() {
+        List<TraceEvent> events = new ArrayList<>();
+        long t = 1_760_000_000_000L;
+        for (int i = 0; i < 5; i++) {
+            events.add(yape(i, "Yape! Cliente " + i + " te envió un pago por S/ " + (10 + i), t + i * 100));
+        }
+        events.add(yape(1, "Yape! Cliente 1 te envió un pago por S/ 11", t + 100));
+        events.add(yape(2, "Yape! Cliente 2 te envió un pago por S/ 12 (actualizado)", t + 250));
+        events.add(new TraceEvent("com.whatsapp", "Mamá", "ya llegué", t + 300, 90, null));
+        events.add(yape(91, "Tu código de verificación Yape es 123456", t + 350));
+        return events;
+    }
+
+    private static TraceEvent yape(int id, String text, long postTime) {
+        return new TraceEvent(YAPE, "Yape", text, postTime, id, null);
+    }
+
+    @Test
+    public void deliversEveryPaymentOnceAndSkipsRepeats() throws Exception {
+        TraceReplay.Report report = TraceReplay.run(trace(), BipeRuleSet.compile(RULES),
+                new TraceReplay.Options().rate(200).latency(0, 0).settle(10_000));
+
+        assertEquals(5, report.getPayments());
+        assertEquals(5, report.getDelivered());
+        assertEquals(1, report.getSeen());
+        assertEquals(1, report.getDuplicatesSkipped());
+        assertEquals(0, report.getDuplicateSends());
+        assertEquals(0, report.getLost());
+    }
+
+    @Test
+    public void serverDownKeepsPaymentsPendingInsteadOfLosingThem() throws Exception {
+        TraceReplay.Report report = TraceReplay.run(trace(), BipeRuleSet.compile(RULES),
+                new TraceReplay.Options().rate(200).latency(0, 0).errors(1.0, 503).settle(500));
+
+        assertEquals(5, report.getPayments());
+        assertEquals(0, report.getDelivered());
+        assertEquals(5, report.getPending());
+        assertEquals(0, report.getLost());
+    }
+}
@@ -2,10 +2,60 @@ import 'dart:typed_data';
 
 import 'notification_listener_service.dart';
 
+/// Lo que decidió el pipeline nativo sobre la notificación (reglas de bipes,
+/// deduplicación y envío). Flutter solo lo muestra: no vuelve a aplicar regex.
+class NativePaymentResult {
+  /// QUEUED, JOURNALED, DUPLICATE, SEEN, NO_MATCH o SKIPPED
+  final String status;
+
+  /// IdBilletera de la regla que hizo match
+  final int? idBilletera;
+
+  /// "contain" de la regla que hizo match
+  final String? rule;
+
+  final String? nombreCliente;
+
+  /// Monto ya parseado por el lado nativo (mismo valor que se envía al API)
+  final double? monto;
+
+  const NativePaymentResult({
+    required this.status,
+    this.idBilletera,
+    this.rule,
+    this.nombreCliente,
+    this.monto,
+  });
+
+  factory NativePaymentResult.fromMap(Map<dynamic, dynamic> map) {
+    return NativePaymentResult(
+      status: map['status'] as String? ?? 'SKIPPED',
+      idBilletera: map['idBilletera'] as int?,
+      rule: map['rule'] as String?,
+      nombreCliente: map['nombreCliente'] as String?,
+      monto: (map['monto'] as num?)?.toDouble(),
+    );
+  }
+
+  /// Pago nuevo: encolado para el API o guardado en el diario de reintentos
+  bool get isNewPayment => status == 'QUEUED' || status == 'JOURNALED';
+
+  /// Hubo match con una regla (incluye pagos duplicados)
+  bool get hasMatch => rule != null;
+
+  @override
+  String toString() =>
+      'NativePaymentResult($status, $rule, $nombreCliente, $monto)';
+}
+
 class ServiceNotificationEvent {
   /// the notification id
   int? id;
 
+  /// clave única de la notificación en el sistema (StatusBarNotification.getKey);
+  /// el id solo puede repetirse entre apps
+  String? key;
+
   /// check if we can reply the Notification
   bool? canReply;
 
@@ -65,8 +115,28 @@ class ServiceNotificationEvent {
   /// Timestamp del evento de conexión
   DateTime? connectionTimestamp;
 
+  /// Tipo de evento de estado nativo (p.ej. "reconnect"); null en
+  /// notificaciones y eventos de conexión
+  String? statusType;
+
+  /// Datos del evento de estado (ver [ReconnectStatus.fromMap] para "reconnect")
+  Map<dynamic, dynamic>? status;
+
+  /// true si es un cambio de estado interno y no una notificación
+  bool get isStatusEvent => statusType != null;
+
+  /// true si el evento llegó mientras nadie escuchaba y se repite ahora
+  /// desde el buffer nativo (no trae imágenes). Útil para completar el
+  /// historial de la UI sin tratarlo como una notificación nueva.
+  bool isReplay = false;
+
+  /// Resultado del pipeline nativo; null si no se evaluó (p.ej. notificación
+  /// quitada o error en el lado nativo)
+  NativePaymentResult? payment;
+
   ServiceNotificationEvent({
     this.id,
+    this.key,
     this.canReply,
     this.haveExtraPicture,
     this.hasRemoved,
@@ -92,17 +162,28 @@ class ServiceNotificationEvent {
       return;
     }
 
+    if (map['status_event'] != null) {
+      statusType = map['status_event'];
+      status = map['status'];
+      return;
+    }
+
     // Evento de notificación normal
     id = map['id'];
+    key = map['key'];
     canReply = map['canReply'];
     haveExtraPicture = map['haveExtraPicture'];
     hasRemoved = map['hasRemoved'];
     extrasPicture = map['notificationExtrasPicture'];
     packageName = map['packageName'];
     title = map['title'];
-    appIcon = map['appIcon'];
+    // El lado nativo lo envía como 'notificationIcon'
+    appIcon = map['notificationIcon'] ?? map['appIcon'];
     largeIcon = map['largeIcon'];
     content = map['content'];
+    isReplay = map['replayed'] == true;
+    final paymentMap = map['payment'];
+    payment = paymentMap is Map ? NativePaymentResult.fromMap(paymentMap) : null;
   }
 
   /// send a direct message reply to the incoming notification
@@ -111,6 +192,7 @@ class ServiceNotificationEvent {
     try {
       return await methodeChannel.invokeMethod<bool>("sendReply", {
             'message': message,
+            'notificationKey': key,
             'notificationId': id,
           }) ??
           false;
@@ -127,14 +209,20 @@ class ServiceNotificationEvent {
       timestamp: $connectionTimestamp
       )''';
     }
+    if (isStatusEvent) {
+      return 'ServiceNotificationEvent.StatusEvent($statusType: $status)';
+    }
     return '''ServiceNotificationEvent(
       id: $id
+      key: $key
       can reply: $canReply
       packageName: $packageName
       title: $title
       content: $content
       hasRemoved: $hasRemoved
       haveExtraPicture: $haveExtraPicture
+      isReplay: $isReplay
+      payment: $payment
       )''';
   }
 }
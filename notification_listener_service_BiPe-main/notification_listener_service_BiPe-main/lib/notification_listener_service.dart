@@ -40,21 +40,581 @@ class ConnectionStatus {
   }
 }
 
+/// Estado del coordinador nativo de reconexión. Llega como evento de estado
+/// "reconnect" en el stream en cada transición, o con [NotificationListenerService.getReconnectStatus].
+class ReconnectStatus {
+  /// IDLE, REBINDING, TOGGLING o COOLDOWN
+  final String state;
+
+  /// Estado anterior (solo en los eventos de transición)
+  final String? previous;
+
+  /// Motivo del intento en curso o del último
+  final String? reason;
+
+  /// Fin del cooldown: antes de esto se ignoran los pedidos no manuales
+  final DateTime? cooldownUntil;
+  final int consecutiveFailures;
+  final int requests;
+
+  /// Pedidos que se sumaron a un intento ya en curso
+  final int coalesced;
+  final int rebinds;
+  final int toggles;
+  final int recovered;
+
+  ReconnectStatus({
+    required this.state,
+    this.previous,
+    this.reason,
+    this.cooldownUntil,
+    this.consecutiveFailures = 0,
+    this.requests = 0,
+    this.coalesced = 0,
+    this.rebinds = 0,
+    this.toggles = 0,
+    this.recovered = 0,
+  });
+
+  factory ReconnectStatus.fromMap(Map<dynamic, dynamic> map) {
+    final cooldownUntil = map['cooldownUntil'] as int? ?? 0;
+    return ReconnectStatus(
+      state: map['state'] ?? 'IDLE',
+      previous: map['previous'],
+      reason: map['reason'],
+      cooldownUntil: cooldownUntil > 0
+          ? DateTime.fromMillisecondsSinceEpoch(cooldownUntil)
+          : null,
+      consecutiveFailures: map['consecutiveFailures'] ?? 0,
+      requests: map['requests'] ?? 0,
+      coalesced: map['coalesced'] ?? 0,
+      rebinds: map['rebinds'] ?? 0,
+      toggles: map['toggles'] ?? 0,
+      recovered: map['recovered'] ?? 0,
+    );
+  }
+
+  /// Hay un rebind o toggle en curso
+  bool get inProgress => state == 'REBINDING' || state == 'TOGGLING';
+
+  @override
+  String toString() =>
+      'ReconnectStatus($previous -> $state, reason: $reason, failures: $consecutiveFailures)';
+}
+
+/// Salud del listener según el monitor nativo (latidos + sondeo del binder).
+/// Llega como evento de estado "health" en el stream cuando cambia, o con
+/// [NotificationListenerService.getHealthStatus].
+class HealthStatus {
+  /// HEALTHY, DEAD (conectado pero el binder no responde) o DISCONNECTED
+  final String status;
+
+  /// Última notificación publicada o quitada
+  final DateTime? lastEventAt;
+
+  /// Último callback del sistema (conexión, ranking, hints)
+  final DateTime? lastCallbackAt;
+  final DateTime? lastProbeAt;
+
+  /// Próxima revisión programada (se adapta a los latidos)
+  final DateTime? nextCheckAt;
+  final int probes;
+  final int probeFailures;
+
+  HealthStatus({
+    required this.status,
+    this.lastEventAt,
+    this.lastCallbackAt,
+    this.lastProbeAt,
+    this.nextCheckAt,
+    this.probes = 0,
+    this.probeFailures = 0,
+  });
+
+  factory HealthStatus.fromMap(Map<dynamic, dynamic> map) {
+    DateTime? time(String key) {
+      final value = map[key] as int? ?? 0;
+      return value > 0 ? DateTime.fromMillisecondsSinceEpoch(value) : null;
+    }
+
+    return HealthStatus(
+      status: map['status'] ?? 'DISCONNECTED',
+      lastEventAt: time('lastEventAt'),
+      lastCallbackAt: time('lastCallbackAt'),
+      lastProbeAt: time('lastProbeAt'),
+      nextCheckAt: time('nextCheckAt'),
+      probes: map['probes'] ?? 0,
+      probeFailures: map['probeFailures'] ?? 0,
+    );
+  }
+
+  bool get isHealthy => status == 'HEALTHY';
+
+  @override
+  String toString() =>
+      'HealthStatus($status, lastEvent: $lastEventAt, nextCheck: $nextCheckAt)';
+}
+
+/// Qué tan insistente es un pedido de reconexión (ver [NotificationListenerService.reconnectService])
+enum ReconnectTrigger {
+  /// Solo si el listener figura desconectado
+  auto,
+
+  /// Figura conectado pero se sospecha un enlace muerto; respeta el cooldown
+  suspect,
+
+  /// Pedido del usuario: ignora el cooldown
+  manual,
+}
+
+/// Campos pesados (imágenes) que se pueden pedir en una [NotificationSubscription]
+enum NotificationField { appIcon, largeIcon, extrasPicture }
+
+/// Qué notificaciones y qué campos debe enviar el lado nativo.
+///
+/// Lo que no se pide no se decodifica ni se comprime en Android, así que
+/// una app que solo lee el texto debería usar `fields: <NotificationField>{}`.
+class NotificationSubscription {
+  /// Solo notificaciones de estos paquetes (null = todos)
+  final List<String>? packages;
+
+  /// Imágenes a incluir (null = todas, como antes). Título y contenido siempre van.
+  final Set<NotificationField>? fields;
+
+  /// Lado máximo en px de [ServiceNotificationEvent.largeIcon] y
+  /// [ServiceNotificationEvent.extrasPicture] (null = 300)
+  final int? maxImageSize;
+
+  const NotificationSubscription({this.packages, this.fields, this.maxImageSize});
+
+  Map<String, dynamic> toMap() {
+    return {
+      if (packages != null) 'packages': packages,
+      if (fields != null) 'fields': fields!.map((f) => f.name).toList(),
+      if (maxImageSize != null) 'maxImageSize': maxImageSize,
+    };
+  }
+}
+
+/// Qué hace el buffer de repetición nativo cuando se llena
+enum ReplayDropPolicy { dropOldest, dropNewest }
+
+/// Estado del buffer de eventos que el lado nativo guarda mientras nadie escucha
+class ReplayStats {
+  final int buffered;
+  final int capacity;
+  final int spilledBytes;
+  final int dropped;
+  final int replayed;
+
+  ReplayStats({
+    required this.buffered,
+    required this.capacity,
+    required this.spilledBytes,
+    required this.dropped,
+    required this.replayed,
+  });
+
+  factory ReplayStats.fromMap(Map<dynamic, dynamic> map) {
+    return ReplayStats(
+      buffered: map['buffered'] ?? 0,
+      capacity: map['capacity'] ?? 0,
+      spilledBytes: map['spilledBytes'] ?? 0,
+      dropped: map['dropped'] ?? 0,
+      replayed: map['replayed'] ?? 0,
+    );
+  }
+
+  @override
+  String toString() {
+    return 'ReplayStats(buffered: $buffered/$capacity, spilledBytes: $spilledBytes, dropped: $dropped, replayed: $replayed)';
+  }
+}
+
+/// Resumen de un histograma de latencias nativo (en milisegundos)
+class LatencyStats {
+  final int count;
+  final int avgMs;
+  final int maxMs;
+  final int p50Ms;
+  final int p90Ms;
+  final int p99Ms;
+
+  LatencyStats({
+    required this.count,
+    required this.avgMs,
+    required this.maxMs,
+    required this.p50Ms,
+    required this.p90Ms,
+    required this.p99Ms,
+  });
+
+  factory LatencyStats.fromMap(Map<dynamic, dynamic>? map) {
+    map ??= const {};
+    return LatencyStats(
+      count: map['count'] ?? 0,
+      avgMs: map['avgMs'] ?? 0,
+      maxMs: map['maxMs'] ?? 0,
+      p50Ms: map['p50Ms'] ?? 0,
+      p90Ms: map['p90Ms'] ?? 0,
+      p99Ms: map['p99Ms'] ?? 0,
+    );
+  }
+
+  @override
+  String toString() => 'LatencyStats(n: $count, p50: ${p50Ms}ms, p90: ${p90Ms}ms, p99: ${p99Ms}ms, max: ${maxMs}ms)';
+}
+
+/// Métricas del pipeline nativo (notificación → regla → envío al API) para un panel de salud.
+/// Los contadores son del proceso: vuelven a cero si Android lo mata.
+class PipelineMetrics {
+  final int seen;
+  final int filtered;
+  final int matched;
+  final int duplicates;
+
+  /// Notificaciones activas revisadas por el catch-up tras reconectar el listener
+  final int caughtUp;
+  final int sent;
+  final int retried;
+  final int dropped;
+
+  /// Respuestas no exitosas por status HTTP (-1 = sin respuesta)
+  final Map<int, int> failuresByStatus;
+  final int retryBacklog;
+  final int executorQueueDepth;
+  final int dispatcherQueued;
+
+  /// Estado de la política de envío: CLOSED, OPEN, HALF_OPEN o PAUSED_AUTH
+  final String? sendState;
+  final int consecutiveFailures;
+
+  /// Desde la hora de la notificación hasta la respuesta 2xx (envíos en vivo)
+  final LatencyStats endToEnd;
+
+  /// Duración de cada request al API
+  final LatencyStats request;
+
+  /// Mapa completo tal como llega del lado nativo
+  final Map<dynamic, dynamic> raw;
+
+  PipelineMetrics({
+    required this.seen,
+    required this.filtered,
+    required this.matched,
+    required this.duplicates,
+    required this.caughtUp,
+    required this.sent,
+    required this.retried,
+    required this.dropped,
+    required this.failuresByStatus,
+    required this.retryBacklog,
+    required this.executorQueueDepth,
+    required this.dispatcherQueued,
+    required this.sendState,
+    required this.consecutiveFailures,
+    required this.endToEnd,
+    required this.request,
+    required this.raw,
+  });
+
+  factory PipelineMetrics.fromMap(Map<dynamic, dynamic> map) {
+    final failures = <int, int>{};
+    (map['failuresByStatus'] as Map<dynamic, dynamic>? ?? const {}).forEach((key, value) {
+      failures[key is int ? key : int.parse('$key')] = value as int;
+    });
+    return PipelineMetrics(
+      seen: map['seen'] ?? 0,
+      filtered: map['filtered'] ?? 0,
+      matched: map['matched'] ?? 0,
+      duplicates: map['duplicates'] ?? 0,
+      caughtUp: map['caughtUp'] ?? 0,
+      sent: map['sent'] ?? 0,
+      retried: map['retried'] ?? 0,
+      dropped: map['dropped'] ?? 0,
+      failuresByStatus: failures,
+      retryBacklog: map['retryBacklog'] ?? 0,
+      executorQueueDepth: map['executorQueueDepth'] ?? 0,
+      dispatcherQueued: map['dispatcherQueued'] ?? 0,
+      sendState: map['sendState'],
+      consecutiveFailures: map['consecutiveFailures'] ?? 0,
+      endToEnd: LatencyStats.fromMap(map['endToEndLatency']),
+      request: LatencyStats.fromMap(map['requestLatency']),
+      raw: map,
+    );
+  }
+
+  @override
+  String toString() {
+    return 'PipelineMetrics(seen: $seen, filtered: $filtered, matched: $matched, sent: $sent, '
+        'retryBacklog: $retryBacklog, sendState: $sendState, endToEnd: $endToEnd)';
+  }
+}
+
+/// Pago guardado en el historial local del plugin (SQLite en el dispositivo).
+class LedgerPayment {
+  final int id;
+  final String? key;
+  final String packageName;
+  final int idBilletera;
+  final String? nombreCliente;
+  final double monto;
+
+  /// Día en hora de Perú (yyyy-MM-dd)
+  final String day;
+  final DateTime postedAt;
+
+  LedgerPayment({
+    required this.id,
+    required this.key,
+    required this.packageName,
+    required this.idBilletera,
+    required this.nombreCliente,
+    required this.monto,
+    required this.day,
+    required this.postedAt,
+  });
+
+  factory LedgerPayment.fromMap(Map<dynamic, dynamic> map) {
+    return LedgerPayment(
+      id: map['id'] ?? 0,
+      key: map['key'],
+      packageName: map['packageName'] ?? '',
+      idBilletera: map['idBilletera'] ?? 0,
+      nombreCliente: map['nombreCliente'],
+      monto: (map['monto'] as num? ?? 0).toDouble(),
+      day: map['day'] ?? '',
+      postedAt: DateTime.fromMillisecondsSinceEpoch(map['postedAt'] ?? 0),
+    );
+  }
+
+  @override
+  String toString() => 'LedgerPayment($day, billetera: $idBilletera, $nombreCliente, S/ $monto)';
+}
+
+/// Posición para pedir la página siguiente de [NotificationListenerService.getLedgerPayments]
+class LedgerCursor {
+  final int postedAt;
+  final int id;
+
+  const LedgerCursor(this.postedAt, this.id);
+}
+
+/// Una página del historial; [next] es null cuando no hay más
+class LedgerPage {
+  final List<LedgerPayment> items;
+  final LedgerCursor? next;
+
+  LedgerPage(this.items, this.next);
+
+  factory LedgerPage.fromMap(Map<dynamic, dynamic> map) {
+    final cursor = map['nextCursor'] as Map<dynamic, dynamic>?;
+    return LedgerPage(
+      (map['items'] as List<dynamic>? ?? const [])
+          .map((item) => LedgerPayment.fromMap(item as Map<dynamic, dynamic>))
+          .toList(),
+      cursor == null ? null : LedgerCursor(cursor['postedAt'], cursor['id']),
+    );
+  }
+}
+
+/// Total de un día para una billetera, mantenido al registrar cada pago
+class LedgerDailyTotal {
+  final String day;
+  final int idBilletera;
+  final int count;
+  final double total;
+
+  LedgerDailyTotal({
+    required this.day,
+    required this.idBilletera,
+    required this.count,
+    required this.total,
+  });
+
+  factory LedgerDailyTotal.fromMap(Map<dynamic, dynamic> map) {
+    return LedgerDailyTotal(
+      day: map['day'] ?? '',
+      idBilletera: map['idBilletera'] ?? 0,
+      count: map['count'] ?? 0,
+      total: (map['total'] as num? ?? 0).toDouble(),
+    );
+  }
+
+  @override
+  String toString() => 'LedgerDailyTotal($day, billetera: $idBilletera, $count pagos, S/ $total)';
+}
+
 class NotificationListenerService {
   NotificationListenerService._();
 
   /// Stream the incoming notifications events
   static Stream<ServiceNotificationEvent> get notificationsStream {
     if (Platform.isAndroid) {
-      _stream ??=
-          _eventChannel.receiveBroadcastStream().map<ServiceNotificationEvent>(
-                (event) => ServiceNotificationEvent.fromMap(event),
-              );
+      _stream ??= _events(_eventChannel.receiveBroadcastStream());
       return _stream!;
     }
     throw Exception("Notifications API exclusively available on Android!");
   }
 
+  /// Igual que [notificationsStream] pero indicando qué paquetes y campos se necesitan.
+  ///
+  /// El EventChannel admite una sola suscripción nativa: llamar esto reemplaza
+  /// el stream anterior (y su suscripción) por uno nuevo.
+  ///
+  /// ```dart
+  /// NotificationListenerService.notificationsStreamWith(
+  ///   const NotificationSubscription(fields: <NotificationField>{}),
+  /// ).listen((event) => log("${event.packageName}: ${event.content}"));
+  /// ```
+  static Stream<ServiceNotificationEvent> notificationsStreamWith(
+      NotificationSubscription subscription) {
+    if (Platform.isAndroid) {
+      _stream = _events(
+          _eventChannel.receiveBroadcastStream(subscription.toMap()));
+      return _stream!;
+    }
+    throw Exception("Notifications API exclusively available on Android!");
+  }
+
+  /// Convierte los mensajes del canal en eventos. Con entrega agrupada
+  /// (ver [setBatchDelivery]) un mensaje trae una lista de eventos.
+  static Stream<ServiceNotificationEvent> _events(Stream<dynamic> raw) {
+    return raw
+        .expand<dynamic>((message) => message is List ? message : [message])
+        .map<ServiceNotificationEvent>(
+          (event) => ServiceNotificationEvent.fromMap(event),
+        );
+  }
+
+  /// Agrupa los eventos nativos: en lugar de un mensaje por notificación,
+  /// espera hasta [window] desde el primero (o hasta juntar [maxBatch]) y
+  /// los envía en un solo mensaje. El stream sigue emitiendo un evento por
+  /// notificación, en el mismo orden.
+  ///
+  /// Útil ante ráfagas (grupos de WhatsApp, varios pagos tras Doze).
+  /// `enabled: false` vuelve a un mensaje por evento.
+  static Future<bool> setBatchDelivery({
+    bool enabled = true,
+    Duration window = const Duration(milliseconds: 200),
+    int maxBatch = 50,
+  }) async {
+    try {
+      return await methodeChannel.invokeMethod<bool>('setBatchDelivery', {
+            'windowMs': enabled ? window.inMilliseconds : 0,
+            'maxBatch': maxBatch,
+          }) ??
+          false;
+    } on PlatformException catch (error) {
+      log("Error en setBatchDelivery: $error");
+      return false;
+    }
+  }
+
+  /// Configura el buffer nativo que guarda las notificaciones llegadas
+  /// mientras Flutter no escucha y las repite al siguiente listen
+  /// (con [ServiceNotificationEvent.isReplay] en true).
+  ///
+  /// Con [spillToDisk] lo que no cabe en memoria pasa a un archivo pequeño
+  /// en lugar de perderse.
+  static Future<bool> configureReplayBuffer({
+    int capacity = 50,
+    ReplayDropPolicy dropPolicy = ReplayDropPolicy.dropOldest,
+    bool spillToDisk = true,
+  }) async {
+    try {
+      return await methodeChannel.invokeMethod<bool>('configureReplayBuffer', {
+            'capacity': capacity,
+            'dropPolicy': dropPolicy.name,
+            'spillToDisk': spillToDisk,
+          }) ??
+          false;
+    } on PlatformException catch (error) {
+      log("Error en configureReplayBuffer: $error");
+      return false;
+    }
+  }
+
+  /// Cuántos eventos hay guardados y cuántos se descartaron por falta de espacio
+  static Future<ReplayStats?> getReplayStats() async {
+    try {
+      final result = await methodeChannel.invokeMethod('getReplayStats');
+      return result == null ? null : ReplayStats.fromMap(result);
+    } on PlatformException catch (error) {
+      log("Error en getReplayStats: $error");
+      return null;
+    }
+  }
+
+  /// Contadores y latencias del pipeline nativo, más el estado del backlog y de las colas.
+  static Future<PipelineMetrics?> getMetrics() async {
+    try {
+      final result = await methodeChannel.invokeMethod('getMetrics');
+      return result == null ? null : PipelineMetrics.fromMap(result);
+    } on PlatformException catch (error) {
+      log("Error en getMetrics: $error");
+      return null;
+    }
+  }
+
+  /// Pagos del historial local, del más reciente al más antiguo.
+  /// [from] es inclusivo y [to] exclusivo; para la página siguiente pasar `page.next` en [after].
+  static Future<LedgerPage?> getLedgerPayments({
+    DateTime? from,
+    DateTime? to,
+    int? idBilletera,
+    LedgerCursor? after,
+    int limit = 50,
+  }) async {
+    try {
+      final result = await methodeChannel.invokeMethod('getLedgerPayments', {
+        'from': from?.millisecondsSinceEpoch,
+        'to': to?.millisecondsSinceEpoch,
+        'idBilletera': idBilletera,
+        'beforePostedAt': after?.postedAt,
+        'beforeId': after?.id,
+        'limit': limit,
+      });
+      return result == null ? null : LedgerPage.fromMap(result);
+    } on PlatformException catch (error) {
+      log("Error en getLedgerPayments: $error");
+      return null;
+    }
+  }
+
+  /// Totales por día (yyyy-MM-dd, hora de Perú, ambos inclusive) y billetera.
+  /// No recorre los pagos: el costo depende solo de la cantidad de días.
+  static Future<List<LedgerDailyTotal>> getLedgerDailyTotals({
+    required String fromDay,
+    required String toDay,
+    int? idBilletera,
+  }) async {
+    try {
+      final result = await methodeChannel.invokeMethod<List<dynamic>>('getLedgerDailyTotals', {
+        'fromDay': fromDay,
+        'toDay': toDay,
+        'idBilletera': idBilletera,
+      });
+      return (result ?? const [])
+          .map((item) => LedgerDailyTotal.fromMap(item as Map<dynamic, dynamic>))
+          .toList();
+    } on PlatformException catch (error) {
+      log("Error en getLedgerDailyTotals: $error");
+      return const [];
+    }
+  }
+
+  /// Estado de la caché de respuestas rápidas: size, hits, misses, evictions.
+  static Future<Map<String, dynamic>?> getActionCacheStats() async {
+    try {
+      final result = await methodeChannel.invokeMethod('getActionCacheStats');
+      return result == null ? null : Map<String, dynamic>.from(result);
+    } on PlatformException catch (error) {
+      log("Error en getActionCacheStats: $error");
+      return null;
+    }
+  }
+
   /// Request notification permission
   /// It will open the notification settings page and return `true` once the permission granted.
   static Future<bool> requestPermission() async {
@@ -108,29 +668,28 @@ class NotificationListenerService {
     }
   }
 
-  /// Fuerza la reconexión del NotificationListenerService.
-  /// 
-  /// Implementa el "Toggle del Componente" recomendado para Xiaomi:
-  /// Deshabilita y habilita el componente para forzar al sistema
-  /// a reinicializar el enlace con el servicio.
-  /// 
-  /// Úsalo cuando detectes que [isServiceConnected] devuelve false
-  /// pero los permisos están concedidos, o como parte de un Watchdog
-  /// periódico (cada 15-20 minutos).
-  /// 
+  /// Pide una reconexión al coordinador nativo y vuelve de inmediato.
+  ///
+  /// El coordinador corre fuera del hilo principal, suma los pedidos
+  /// simultáneos (boot, WorkManager, Flutter) a un solo intento y respeta un
+  /// cooldown. Empieza por requestRebind y solo hace el "Toggle del
+  /// Componente" si el rebind no reconecta a tiempo. El avance llega como
+  /// evento de estado "reconnect" en el stream (ver [ReconnectStatus]).
+  ///
   /// Ejemplo:
   /// ```dart
   /// final isConnected = await NotificationListenerService.isServiceConnected();
   /// if (!isConnected) {
-  ///   await NotificationListenerService.reconnectService();
+  ///   await NotificationListenerService.reconnectService(trigger: ReconnectTrigger.auto);
   /// }
   /// ```
-  static Future<bool> reconnectService() async {
+  static Future<bool> reconnectService(
+      {ReconnectTrigger trigger = ReconnectTrigger.suspect}) async {
     if (!Platform.isAndroid) return false;
     try {
-      log("🔄 Solicitando reconexión del servicio...");
-      final result = await methodeChannel.invokeMethod('reconnectService');
-      log("✅ Reconexión completada: $result");
+      log("🔄 Solicitando reconexión del servicio (${trigger.name})...");
+      final result = await methodeChannel
+          .invokeMethod('reconnectService', {'trigger': trigger.name});
       return result ?? false;
     } on PlatformException catch (error) {
       log("❌ Error en reconnectService: $error");
@@ -138,6 +697,31 @@ class NotificationListenerService {
     }
   }
 
+  /// Estado actual del monitor nativo de salud. No hace falta sondearlo: los
+  /// cambios llegan solos como evento de estado "health" en el stream.
+  static Future<HealthStatus?> getHealthStatus() async {
+    if (!Platform.isAndroid) return null;
+    try {
+      final result = await methodeChannel.invokeMethod('getHealthStatus');
+      return result == null ? null : HealthStatus.fromMap(result);
+    } on PlatformException catch (error) {
+      log("Error en getHealthStatus: $error");
+      return null;
+    }
+  }
+
+  /// Estado actual del coordinador de reconexión
+  static Future<ReconnectStatus?> getReconnectStatus() async {
+    if (!Platform.isAndroid) return null;
+    try {
+      final result = await methodeChannel.invokeMethod('getReconnectStatus');
+      return result == null ? null : ReconnectStatus.fromMap(result);
+    } on PlatformException catch (error) {
+      log("Error en getReconnectStatus: $error");
+      return null;
+    }
+  }
+
   /// Solicita al sistema que vuelva a enlazar el NotificationListenerService.
   /// 
   /// Usa la API oficial de Android [requestRebind] (disponible desde API 24).
@@ -159,17 +743,10 @@ class NotificationListenerService {
   }
 
   /// Verifica la salud del servicio y reconecta si es necesario.
-  /// 
-  /// Este es un método de conveniencia que combina la verificación
-  /// de estado con la reconexión automática. Ideal para usar en un
-  /// Timer periódico o WorkManager.
-  /// 
-  /// Ejemplo de uso con Timer:
-  /// ```dart
-  /// Timer.periodic(Duration(minutes: 15), (_) async {
-  ///   await NotificationListenerService.checkAndReconnectIfNeeded();
-  /// });
-  /// ```
+  ///
+  /// No hace falta llamarlo con un Timer: el monitor nativo de salud ya
+  /// vigila los latidos, reconecta solo y avisa con eventos "health" en el
+  /// stream. Queda para verificaciones puntuales (p.ej. al abrir la app).
   static Future<bool> checkAndReconnectIfNeeded() async {
     if (!Platform.isAndroid) return false;
     
@@ -183,7 +760,7 @@ class NotificationListenerService {
       final isConnected = await isServiceConnected();
       if (!isConnected) {
         log("⚠️ Servicio desconectado - Intentando reconectar...");
-        return await reconnectService();
+        return await reconnectService(trigger: ReconnectTrigger.auto);
       }
       
       log("✅ Servicio funcionando correctamente");
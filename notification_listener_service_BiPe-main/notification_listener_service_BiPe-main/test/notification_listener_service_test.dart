@@ -4,6 +4,7 @@ import 'package:notification_listener_service/notification_listener_service.dart
 
 void main() {
   TestWidgetsFlutterBinding.ensureInitialized();
+  Map? lastBatchArgs;
   const MethodChannel methodChannel =
       MethodChannel('x-slayer/notifications_channel');
 
@@ -15,6 +16,9 @@ void main() {
           return true;
         case 'isPermissionGranted':
           return true;
+        case 'setBatchDelivery':
+          lastBatchArgs = methodCall.arguments as Map;
+          return true;
         default:
           return null;
       }
@@ -68,4 +72,44 @@ void main() {
       expect(result, isFalse);
     });
   });
+
+  group('NotificationSubscription', () {
+    test('toMap omits unset options', () {
+      expect(const NotificationSubscription().toMap(), isEmpty);
+    });
+
+    test('toMap sends packages, field names and image size', () {
+      const subscription = NotificationSubscription(
+        packages: ['com.bcp.innovacxion.yapeapp'],
+        fields: {NotificationField.appIcon},
+        maxImageSize: 128,
+      );
+      expect(subscription.toMap(), {
+        'packages': ['com.bcp.innovacxion.yapeapp'],
+        'fields': ['appIcon'],
+        'maxImageSize': 128,
+      });
+    });
+
+    test('empty fields asks for no images', () {
+      const subscription = NotificationSubscription(fields: <NotificationField>{});
+      expect(subscription.toMap(), {'fields': <String>[]});
+    });
+  });
+
+  group('setBatchDelivery', () {
+    test('sends window and batch size', () async {
+      final result = await NotificationListenerService.setBatchDelivery(
+        window: const Duration(milliseconds: 300),
+        maxBatch: 20,
+      );
+      expect(result, isTrue);
+      expect(lastBatchArgs, {'windowMs': 300, 'maxBatch': 20});
+    });
+
+    test('disabling sends a zero window', () async {
+      await NotificationListenerService.setBatchDelivery(enabled: false);
+      expect(lastBatchArgs!['windowMs'], 0);
+    });
+  });
 }